@@ -0,0 +1,66 @@
+package com.amex.personServer.benchmark;
+
+import java.sql.Date;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.amex.personServer.PersonServerApplication;
+
+/**
+ * Starts the application, without its web server, against an in-memory H2 DB whose Person table
+ * holds BenchmarkPeople 1..rowCount.
+ */
+final class BenchmarkDatabase {
+	
+	private BenchmarkDatabase() {
+	}
+	
+	static ConfigurableApplicationContext start(long rowCount, String... args) {
+		return new SpringApplicationBuilder(PersonServerApplication.class)
+			.web(WebApplicationType.NONE)
+			.listeners(new Seeder(rowCount))
+			.run(args);
+	}
+	
+	// Replaces the contents of the Person table with BenchmarkPeople 1..rowCount in one set-based insert.
+	static void seed(JdbcTemplate jdbcTemplate, long rowCount) {
+		jdbcTemplate.update("delete from person");
+		jdbcTemplate.update(
+			"insert into person (id, name, age, date_of_birth, email_address, normalized_email_address, "
+			+ "email_domain, version) "
+			+ "select x, 'Person ' || x, mod(x, 100), dateadd('DAY', -mod(x, 36500), ?), "
+			+ "'Person.' || x || '@example' || mod(x, 100) || '.com', "
+			+ "'person.' || x || '@example' || mod(x, 100) || '.com', "
+			+ "'example' || mod(x, 100) || '.com', 0 "
+			+ "from system_range(1, ?)",
+			Date.valueOf(BenchmarkPeople.LATEST_DATE_OF_BIRTH), rowCount);
+		jdbcTemplate.execute("alter sequence person_id_seq restart with " + (rowCount + 1));
+	}
+	
+	// Seeds the table once the context is refreshed, ahead of any other listener, so that
+	// beans that load the table at that point (such as the PersonReadModel) see the seeded rows.
+	private static final class Seeder implements ApplicationListener<ContextRefreshedEvent>, Ordered {
+		private final long rowCount;
+		
+		Seeder(long rowCount) {
+			this.rowCount = rowCount;
+		}
+		
+		@Override
+		public void onApplicationEvent(ContextRefreshedEvent event) {
+			seed(event.getApplicationContext().getBean(JdbcTemplate.class), rowCount);
+		}
+		
+		@Override
+		public int getOrder() {
+			return Ordered.HIGHEST_PRECEDENCE;
+		}
+	}
+
+}
@@ -0,0 +1,49 @@
+package com.amex.personServer.benchmark;
+
+import java.time.LocalDate;
+
+import com.amex.personServer.dto.PersonDto;
+
+/**
+ * Deterministic test people shared by the benchmarks.  Person n is the same in every benchmark,
+ * and in the rows seeded into the DB by BenchmarkDatabase.
+ */
+final class BenchmarkPeople {
+	
+	// Dates of birth are spread over the 100 years before this date:
+	static final LocalDate LATEST_DATE_OF_BIRTH = LocalDate.parse("2018-01-01");
+	
+	private BenchmarkPeople() {
+	}
+	
+	static String name(long n) {
+		return "Person " + n;
+	}
+	
+	static int age(long n) {
+		return (int) (n % 100);
+	}
+	
+	static LocalDate dateOfBirth(long n) {
+		return LATEST_DATE_OF_BIRTH.minusDays(n % 36500);
+	}
+	
+	static String emailDomain(long n) {
+		return "example" + (n % 100) + ".com";
+	}
+	
+	static String emailAddress(long n) {
+		return "Person." + n + "@" + emailDomain(n);
+	}
+	
+	static PersonDto personDto(long n) {
+		PersonDto personDto = new PersonDto();
+		personDto.setId(n);
+		personDto.setName(name(n));
+		personDto.setAge(age(n));
+		personDto.setDateOfBirth(dateOfBirth(n).toString());
+		personDto.setEmailAddress(emailAddress(n));
+		return personDto;
+	}
+
+}
@@ -0,0 +1,73 @@
+package com.amex.personServer.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.amex.personServer.bulk.PersonExporter;
+import com.amex.personServer.dto.PersonExportResultDto;
+
+/**
+ * A full export of rowCount people by the PersonExporter, in each format, plain and gzipped.
+ * 
+ * tearDown reports the heap in use after the exports, which should not grow with rowCount
+ * beyond H2's own copy of the table.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+@State(Scope.Benchmark)
+public class ExportBenchmark {
+	
+	@Param({"1000000", "10000000"})
+	long rowCount;
+	
+	@Param({"CSV", "NDJSON"})
+	PersonExporter.Format format;
+	
+	@Param({"false", "true"})
+	boolean gzip;
+	
+	private ConfigurableApplicationContext applicationContext;
+	private PersonExporter personExporter;
+	private Path file;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		applicationContext = BenchmarkDatabase.start(rowCount);
+		personExporter = applicationContext.getBean(PersonExporter.class);
+		file = Files.createTempFile("people-", format.getExtension() + (gzip ? ".gz" : ""));
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Runtime runtime = Runtime.getRuntime();
+		System.out.println("Heap used after exports: " + (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024) + "MB");
+		applicationContext.close();
+		Files.deleteIfExists(file);
+	}
+	
+	@Benchmark
+	public PersonExportResultDto export() throws IOException {
+		return personExporter.export(file, format, gzip);
+	}
+
+}
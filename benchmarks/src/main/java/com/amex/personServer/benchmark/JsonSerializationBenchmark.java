@@ -0,0 +1,147 @@
+package com.amex.personServer.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.amex.personServer.domain.Person;
+import com.amex.personServer.dto.PersonDto;
+import com.amex.personServer.json.PersonJsonReader;
+import com.amex.personServer.json.PersonJsonWriter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Cost of serializing lists of PersonDto's to json with an ObjectMapper configured the way
+ * Spring Boot configures the server's, and of writing Person entities the way GET /people
+ * does: through PersonDto's and Jackson data binding as it used to, and with the
+ * PersonJsonWriter as it does now.  Reading the list back compares Jackson data binding with
+ * the PersonJsonReader.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+	
+	@Param({"100", "10000"})
+	int listSize;
+	
+	private static final DateTimeFormatter DATE_OF_BIRTH_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+	
+	private ObjectMapper objectMapper;
+	private ObjectWriter personDtoWriter;
+	private ObjectReader personDtosReader;
+	private List<PersonDto> personDtos;
+	private List<Person> people;
+	private byte[] json;
+	private ByteArrayOutputStream outputStream;
+	
+	@Setup
+	public void setUp() {
+		objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		personDtoWriter = objectMapper.writerFor(PersonDto.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		personDtosReader = objectMapper.readerFor(new TypeReference<List<PersonDto>>() {});
+		personDtos = new ArrayList<>(listSize);
+		people = new ArrayList<>(listSize);
+		for (int i = 1; i <= listSize; i++) {
+			personDtos.add(BenchmarkPeople.personDto(i));
+			people.add(person(i));
+		}
+		outputStream = new ByteArrayOutputStream(listSize * 128);
+		try {
+			json = objectMapper.writeValueAsBytes(personDtos);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private static Person person(long n) {
+		Person person = new Person();
+		person.setId(n);
+		person.setName(BenchmarkPeople.name(n));
+		person.setAge(BenchmarkPeople.age(n));
+		person.setDateOfBirth(BenchmarkPeople.dateOfBirth(n));
+		person.setEmailAddress(BenchmarkPeople.emailAddress(n));
+		person.setVersion(0L);
+		return person;
+	}
+	
+	@Benchmark
+	public int serializeList() throws IOException {
+		outputStream.reset();
+		objectMapper.writeValue(outputStream, personDtos);
+		return outputStream.size();
+	}
+	
+	// GET /people before the PersonJsonWriter: each entity mapped to a PersonDto, then data bound.
+	@Benchmark
+	public int serializeEntitiesThroughPersonDtos() throws IOException {
+		outputStream.reset();
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+			generator.writeStartArray();
+			for (Person person : people) {
+				PersonDto personDto = new PersonDto();
+				personDto.setId(person.getId());
+				personDto.setName(person.getName());
+				personDto.setAge(person.getAge());
+				personDto.setEmailAddress(person.getEmailAddress());
+				personDto.setDateOfBirth(person.getDateOfBirth().format(DATE_OF_BIRTH_FORMATTER));
+				personDto.setVersion(person.getVersion());
+				personDtoWriter.writeValue(generator, personDto);
+			}
+			generator.writeEndArray();
+		}
+		return outputStream.size();
+	}
+	
+	@Benchmark
+	public int serializeEntitiesWithPersonJsonWriter() throws IOException {
+		outputStream.reset();
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+			generator.writeStartArray();
+			PersonJsonWriter writer = new PersonJsonWriter(generator);
+			for (Person person : people) {
+				writer.write(person);
+			}
+			generator.writeEndArray();
+		}
+		return outputStream.size();
+	}
+	
+	@Benchmark
+	public List<PersonDto> readList() throws IOException {
+		return personDtosReader.readValue(json);
+	}
+	
+	@Benchmark
+	public List<PersonDto> readListWithPersonJsonReader() throws IOException {
+		try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+			return PersonJsonReader.readPersonDtos(parser);
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+package com.amex.personServer.benchmark;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.amex.personServer.benchmark.RepositoryBenchmark.RandomPerson;
+import com.amex.personServer.domain.Person;
+import com.amex.personServer.readmodel.PersonReadModel;
+import com.amex.personServer.readmodel.PersonRecord;
+import com.amex.personServer.repository.PersonRepository;
+
+/**
+ * Lookups by id and email in the PersonReadModel, next to the same lookups through the
+ * PersonRepository for comparison, with rowCount people loaded and four threads reading at once.
+ * 
+ * setUp reports the heap the loaded model takes up per person.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+@Threads(4)
+@State(Scope.Benchmark)
+public class ReadModelBenchmark {
+	
+	@Param({"1000000", "10000000"})
+	long rowCount;
+	
+	private ConfigurableApplicationContext applicationContext;
+	private PersonReadModel personReadModel;
+	private PersonRepository personRepository;
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		long heapBeforeLoad = usedHeap();
+		applicationContext = BenchmarkDatabase.start(rowCount, "--person.cache.max-size=0", "--person.read-model.enabled=true");
+		personReadModel = applicationContext.getBean(PersonReadModel.class);
+		personRepository = applicationContext.getBean(PersonRepository.class);
+		
+		// Includes H2's in-memory copy of the table too, so only an upper bound:
+		System.out.println("Heap used per person by the DB and read model: at most " 
+			+ (usedHeap() - heapBeforeLoad) / rowCount + " bytes");
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		applicationContext.close();
+	}
+	
+	@Benchmark
+	public PersonRecord readModelGet(RandomPerson randomPerson) {
+		return personReadModel.get(randomPerson.next(rowCount));
+	}
+	
+	@Benchmark
+	public boolean readModelContainsEmailAddress(RandomPerson randomPerson) {
+		return personReadModel.containsEmailAddress(BenchmarkPeople.emailAddress(randomPerson.next(rowCount)));
+	}
+	
+	@Benchmark
+	public Optional<Person> repositoryFindById(RandomPerson randomPerson) {
+		return personRepository.findById(randomPerson.next(rowCount));
+	}
+	
+	@Benchmark
+	public boolean repositoryExistsByNormalizedEmailAddress(RandomPerson randomPerson) {
+		return personRepository.existsByNormalizedEmailAddress(
+			Person.normalizeEmailAddress(BenchmarkPeople.emailAddress(randomPerson.next(rowCount))));
+	}
+	
+	private static long usedHeap() {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.amex.personServer.benchmark;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.amex.personServer.domain.Person;
+import com.amex.personServer.repository.PersonRepository;
+
+/**
+ * Cost of PersonRepository lookups against an H2 DB seeded with rowCount people.  Each fork
+ * starts the application (without its web server) and seeds the Person table with
+ * BenchmarkPeople 1..rowCount.
+ * 
+ * The largest row counts need a large heap and a long time to seed; select them explicitly
+ * with -p rowCount=... when they are not wanted.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+@State(Scope.Benchmark)
+public class RepositoryBenchmark {
+	
+	@Param({"10000", "1000000", "10000000"})
+	long rowCount;
+	
+	private ConfigurableApplicationContext applicationContext;
+	PersonRepository personRepository;
+	
+	// Picks which person each lookup reads; the same sequence in every run.
+	@State(Scope.Thread)
+	public static class RandomPerson {
+		private final SplittableRandom random = new SplittableRandom(42);
+		
+		long next(long rowCount) {
+			return 1 + random.nextLong(rowCount);
+		}
+	}
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		applicationContext = BenchmarkDatabase.start(rowCount, "--person.cache.max-size=0");
+		personRepository = applicationContext.getBean(PersonRepository.class);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		applicationContext.close();
+	}
+	
+	@Benchmark
+	public Optional<Person> findById(RandomPerson randomPerson) {
+		return personRepository.findById(randomPerson.next(rowCount));
+	}
+	
+	@Benchmark
+	public Optional<Person> findByEmailAddressIgnoreCase(RandomPerson randomPerson) {
+		return personRepository.findByEmailAddressIgnoreCase(BenchmarkPeople.emailAddress(randomPerson.next(rowCount)));
+	}
+	
+	@Benchmark
+	public boolean existsByNormalizedEmailAddress(RandomPerson randomPerson) {
+		return personRepository.existsByNormalizedEmailAddress(
+			Person.normalizeEmailAddress(BenchmarkPeople.emailAddress(randomPerson.next(rowCount))));
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.amex.personServer.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares two JMH json result files (as written with -rf json), typically from two commits,
+ * and reports the change in score of every benchmark present in both.  Exits with status 1 if
+ * any benchmark regressed by more than the threshold percentage (default 10).
+ * 
+ * Usage: java -cp target/benchmarks.jar com.amex.personServer.benchmark.ResultComparison 
+ *            baseline.json candidate.json [thresholdPercent]
+ */
+public class ResultComparison {
+	
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: ResultComparison baseline.json candidate.json [thresholdPercent]");
+			System.exit(2);
+		}
+		double thresholdPercent = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+		
+		Map<String, JsonNode> baseline = readResults(new File(args[0]));
+		Map<String, JsonNode> candidate = readResults(new File(args[1]));
+		
+		int regressions = 0;
+		for (Map.Entry<String, JsonNode> entry : candidate.entrySet()) {
+			JsonNode baselineResult = baseline.get(entry.getKey());
+			if (null==baselineResult) {
+				System.out.printf("%-90s %s%n", entry.getKey(), "new");
+				continue;
+			}
+			double baselineScore = baselineResult.path("primaryMetric").path("score").asDouble();
+			double candidateScore = entry.getValue().path("primaryMetric").path("score").asDouble();
+			
+			// Throughput modes improve upwards; the time modes improve downwards:
+			boolean higherIsBetter = "thrpt".equals(entry.getValue().path("mode").asText());
+			double changePercent = 100.0 * (candidateScore - baselineScore) / baselineScore;
+			double regressionPercent = higherIsBetter ? -changePercent : changePercent;
+			boolean regressed = regressionPercent > thresholdPercent;
+			if (regressed) {
+				regressions++;
+			}
+			System.out.printf("%-90s %12.3f -> %12.3f %s %+7.1f%%%s%n", entry.getKey(), baselineScore, candidateScore,
+				entry.getValue().path("primaryMetric").path("scoreUnit").asText(), changePercent,
+				regressed ? "  REGRESSION" : "");
+		}
+		
+		if (regressions > 0) {
+			System.out.println(regressions + " benchmark(s) regressed by more than " + thresholdPercent + "%");
+			System.exit(1);
+		}
+	}
+	
+	// Maps "benchmark [param=value, ...]" to the benchmark's result.
+	private static Map<String, JsonNode> readResults(File file) throws IOException {
+		Map<String, JsonNode> results = new LinkedHashMap<>();
+		for (JsonNode result : new ObjectMapper().readTree(file)) {
+			StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+			JsonNode params = result.path("params");
+			if (params.size() > 0) {
+				key.append(' ').append(params);
+			}
+			results.put(key.toString(), result);
+		}
+		return results;
+	}
+
+}
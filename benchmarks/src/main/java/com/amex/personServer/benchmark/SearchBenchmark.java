@@ -0,0 +1,129 @@
+package com.amex.personServer.benchmark;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.amex.personServer.domain.Person;
+import com.amex.personServer.repository.PersonRepository;
+import com.amex.personServer.repository.PersonSpecifications;
+
+/**
+ * Cost of the search endpoint's queries (PersonSpecifications run through
+ * PersonRepository.findAll, fetching the first page of 20 and the total count) against an H2 DB
+ * seeded with rowCount people.  Each criterion selects about 1% of the people or fewer.
+ * 
+ * Before measuring, setUp asks H2 to explain the equivalent SQL of each criterion and fails the
+ * benchmark if the plan does not use the criterion's index, so a run that completes shows the
+ * queries are index-backed at that row count.  Per-query time should then grow with the number
+ * of matching rows rather than with the size of the table.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+	
+	@Param({"1000000", "10000000"})
+	long rowCount;
+	
+	private static final Pageable FIRST_PAGE = PageRequest.of(0, 20, Sort.by("id"));
+	
+	private ConfigurableApplicationContext applicationContext;
+	private PersonRepository personRepository;
+	
+	// Picks the values searched for; the same sequence in every run.
+	@State(Scope.Thread)
+	public static class RandomCriteria {
+		private final SplittableRandom random = new SplittableRandom(42);
+		
+		int age() {
+			return random.nextInt(100);
+		}
+		
+		LocalDate dateOfBirth() {
+			return BenchmarkPeople.LATEST_DATE_OF_BIRTH.minusDays(random.nextInt(36500));
+		}
+		
+		// "Person " and five digits: 111 people at 1M rows (the person itself, and 10 and 100 longer ids)
+		String namePrefix() {
+			return "Person " + (10000 + random.nextInt(90000));
+		}
+		
+		String emailDomain() {
+			return BenchmarkPeople.emailDomain(random.nextInt(100));
+		}
+	}
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		applicationContext = BenchmarkDatabase.start(rowCount, "--person.cache.max-size=0");
+		personRepository = applicationContext.getBean(PersonRepository.class);
+		
+		JdbcTemplate jdbcTemplate = applicationContext.getBean(JdbcTemplate.class);
+		jdbcTemplate.execute("analyze");
+		requireIndex(jdbcTemplate, "IDX_PERSON_AGE", "age between ? and ?", 42, 42);
+		requireIndex(jdbcTemplate, "IDX_PERSON_DATE_OF_BIRTH", "date_of_birth between ? and ?", 
+			LocalDate.parse("1970-01-01"), LocalDate.parse("1970-12-31"));
+		requireIndex(jdbcTemplate, "IDX_PERSON_NAME", "name like ? escape '\\'", "Person 12345%");
+		requireIndex(jdbcTemplate, "IDX_PERSON_EMAIL_DOMAIN", "email_domain = ?", "example42.com");
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		applicationContext.close();
+	}
+	
+	@Benchmark
+	public Page<Person> ageEquals(RandomCriteria criteria) {
+		int age = criteria.age();
+		return personRepository.findAll(PersonSpecifications.ageBetween(age, age), FIRST_PAGE);
+	}
+	
+	@Benchmark
+	public Page<Person> bornInOneYear(RandomCriteria criteria) {
+		LocalDate from = criteria.dateOfBirth();
+		return personRepository.findAll(PersonSpecifications.bornBetween(from, from.plusYears(1)), FIRST_PAGE);
+	}
+	
+	@Benchmark
+	public Page<Person> nameStartsWith(RandomCriteria criteria) {
+		return personRepository.findAll(PersonSpecifications.nameStartsWith(criteria.namePrefix()), FIRST_PAGE);
+	}
+	
+	@Benchmark
+	public Page<Person> emailDomainIs(RandomCriteria criteria) {
+		return personRepository.findAll(PersonSpecifications.emailDomainIs(criteria.emailDomain()), FIRST_PAGE);
+	}
+	
+	// Throws if H2's plan for selecting people matching the condition doesn't use the index.
+	private static void requireIndex(JdbcTemplate jdbcTemplate, String indexName, String condition, Object... args) {
+		String plan = jdbcTemplate.queryForObject("explain select * from person where " + condition, String.class, args);
+		if (!plan.toUpperCase().contains(indexName)) {
+			throw new IllegalStateException("Query on " + condition + " does not use " + indexName + ": " + plan);
+		}
+	}
+
+}
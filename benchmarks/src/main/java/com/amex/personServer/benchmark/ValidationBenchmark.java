@@ -0,0 +1,64 @@
+package com.amex.personServer.benchmark;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amex.personServer.domain.Person;
+import com.amex.personServer.service.PersonService;
+
+/**
+ * Cost of PersonService.validatePerson for a valid person and for one that fails every check
+ * (which builds and throws the error summary).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+	
+	private Person validPerson;
+	private Person invalidPerson;
+	
+	@Setup
+	public void setUp() {
+		validPerson = new Person();
+		validPerson.setName("John Smith");
+		validPerson.setAge(45);
+		validPerson.setDateOfBirth(LocalDate.parse("1972-05-12"));
+		validPerson.setEmailAddress("John.Smith@yahoo.com");
+		
+		invalidPerson = new Person();
+		invalidPerson.setAge(-1);
+		invalidPerson.setEmailAddress("20th Street");
+	}
+	
+	@Benchmark
+	public Person validPerson() {
+		PersonService.validatePerson(validPerson);
+		return validPerson;
+	}
+	
+	@Benchmark
+	public String invalidPerson() {
+		try {
+			PersonService.validatePerson(invalidPerson);
+			throw new IllegalStateException("Invalid person passed validation");
+		} catch (IllegalArgumentException e) {
+			return e.getMessage();
+		}
+	}
+
+}
@@ -0,0 +1,94 @@
+package com.amex.personServer.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amex.personServer.domain.Person;
+import com.amex.personServer.dto.PersonDto;
+import com.amex.personServer.json.PersonJsonReader;
+import com.amex.personServer.json.PersonJsonWriter;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Cost of encoding a list of people the way GET /people does, and of decoding it the way a
+ * batch POST does, in json and in Smile.  The size of each format's payload is printed at the
+ * start of each trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+	@Param({"json", "smile"})
+	String format;
+
+	@Param({"10000", "100000"})
+	int listSize;
+
+	private JsonFactory jsonFactory;
+	private List<Person> people;
+	private byte[] payload;
+	private ByteArrayOutputStream outputStream;
+
+	@Setup
+	public void setUp() throws IOException {
+		jsonFactory = "smile".equals(format) ? new SmileFactory() : new JsonFactory();
+		people = new ArrayList<>(listSize);
+		for (int i = 1; i <= listSize; i++) {
+			Person person = new Person();
+			person.setId((long) i);
+			person.setName(BenchmarkPeople.name(i));
+			person.setAge(BenchmarkPeople.age(i));
+			person.setDateOfBirth(BenchmarkPeople.dateOfBirth(i));
+			person.setEmailAddress(BenchmarkPeople.emailAddress(i));
+			people.add(person);
+		}
+		outputStream = new ByteArrayOutputStream(listSize * 128);
+		encode();
+		payload = outputStream.toByteArray();
+		System.out.println(format + " payload of " + listSize + " people: " + payload.length + " bytes, "
+			+ payload.length / listSize + " per person");
+	}
+
+	@Benchmark
+	public int encode() throws IOException {
+		outputStream.reset();
+		try (JsonGenerator generator = jsonFactory.createGenerator(outputStream)) {
+			generator.writeStartArray();
+			PersonJsonWriter writer = new PersonJsonWriter(generator);
+			for (Person person : people) {
+				writer.write(person);
+			}
+			generator.writeEndArray();
+		}
+		return outputStream.size();
+	}
+
+	@Benchmark
+	public List<PersonDto> decode() throws IOException {
+		try (JsonParser parser = jsonFactory.createParser(payload)) {
+			return PersonJsonReader.readPersonDtos(parser);
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.amex.personServer.controller;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amex.personServer.domain.Person;
+import com.amex.personServer.dto.PersonDto;
+
+/**
+ * Cost of the PersonController's entity/dto mapping, including formatting and parsing of the
+ * date of birth.  Lives in the controller's package because the mapping methods are package-private.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+	
+	private Person person;
+	private PersonDto personDto;
+	
+	@Setup
+	public void setUp() {
+		person = new Person();
+		person.setId(1234567L);
+		person.setName("John Smith");
+		person.setAge(45);
+		person.setDateOfBirth(LocalDate.parse("1972-05-12"));
+		person.setEmailAddress("John.Smith@yahoo.com");
+		
+		personDto = PersonController.personToPersonDto(person);
+	}
+	
+	@Benchmark
+	public PersonDto personToPersonDto() {
+		return PersonController.personToPersonDto(person);
+	}
+	
+	@Benchmark
+	public Person personDtoToPerson() {
+		return PersonController.personDtoToPerson(personDto);
+	}
+
+}
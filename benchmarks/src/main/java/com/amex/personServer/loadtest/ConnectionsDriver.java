@@ -0,0 +1,343 @@
+package com.amex.personServer.loadtest;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Holds a large number of keep-alive connections open to a running PersonServer, each sending
+ * GET /people/{id} for random ids one after another, and reports the throughput and latency
+ * percentiles.  All the connections are driven by one thread through a Selector, so the driver
+ * can hold 10000 of them where LoadDriver would need a thread each.
+ *
+ * Connections are opened a few hundred at a time, so as not to overflow the server's accept
+ * queue, and are reopened when the server closes them (Tomcat closes a connection after 100
+ * requests).  Ids are picked as by LoadDriver, from the lowest id up to as many as GET
+ * /people/stats counts, so the server is best seeded with person.synthetic.count people.
+ *
+ * Usage: java -cp target/benchmarks.jar com.amex.personServer.loadtest.ConnectionsDriver [--option=value...]
+ *
+ *   --url          the server's base URL (http://localhost:5000/personService/v1/)
+ *   --connections  concurrent connections (10000)
+ *   --warmup       seconds of requests before measuring, after all connections are open (10)
+ *   --duration     seconds of requests measured (30)
+ *   --seed         seed of the random ids (1)
+ */
+public class ConnectionsDriver {
+
+	private static final Map<String, String> DEFAULT_OPTIONS = new LinkedHashMap<>();
+	static {
+		DEFAULT_OPTIONS.put("url", "http://localhost:5000/personService/v1/");
+		DEFAULT_OPTIONS.put("connections", "10000");
+		DEFAULT_OPTIONS.put("warmup", "10");
+		DEFAULT_OPTIONS.put("duration", "30");
+		DEFAULT_OPTIONS.put("seed", "1");
+	}
+
+	// Most connections being opened at once:
+	private static final int MAX_PENDING_CONNECTS = 200;
+
+	private static final byte[] HEADER_END = "\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final String baseUrl;
+	private final InetSocketAddress address;
+	private final String host;
+	private final String path;
+	private final int connections;
+	private final long warmupNanos;
+	private final long durationNanos;
+	private final SplittableRandom random;
+
+	private long minId;
+	private long maxId;
+
+	private final Histogram latencies = new Histogram(3);
+	private long errors;
+	private long reconnects;
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new LinkedHashMap<>(DEFAULT_OPTIONS);
+		for (String arg : args) {
+			int equals = arg.indexOf('=');
+			String name = arg.startsWith("--") && equals > 0 ? arg.substring(2, equals) : null;
+			if (null==name || !options.containsKey(name)) {
+				System.err.println("Unknown option: " + arg + "; options are " + DEFAULT_OPTIONS);
+				System.exit(2);
+			}
+			options.put(name, arg.substring(equals + 1));
+		}
+		new ConnectionsDriver(options).run();
+	}
+
+	ConnectionsDriver(Map<String, String> options) throws IOException {
+		String url = options.get("url");
+		baseUrl = url.endsWith("/") ? url : url + "/";
+		URL parsed = new URL(baseUrl);
+		int port = parsed.getPort() < 0 ? parsed.getDefaultPort() : parsed.getPort();
+		address = new InetSocketAddress(parsed.getHost(), port);
+		host = parsed.getHost() + ":" + port;
+		path = parsed.getPath();
+		connections = Integer.parseInt(options.get("connections"));
+		warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("warmup")));
+		durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("duration")));
+		random = new SplittableRandom(Long.parseLong(options.get("seed")));
+	}
+
+	void run() throws IOException {
+		findIds();
+		System.out.println("Sending GETs for people with ids " + minId + " to " + maxId + " over " + connections
+			+ " connections");
+
+		try (Selector selector = Selector.open()) {
+			// Open the connections, sending each its first request as soon as it is connected:
+			long openStart = System.nanoTime();
+			int opened = 0;
+			int pending = 0;
+			while (opened < connections || pending > 0) {
+				while (opened < connections && pending < MAX_PENDING_CONNECTS) {
+					Connection connection = new Connection();
+					connect(selector, connection);
+					opened++;
+					if (connection.opening) {
+						pending++;
+					}
+				}
+				pending -= poll(selector, Long.MAX_VALUE);
+			}
+			System.out.println("Opened " + connections + " connections in "
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - openStart) + "ms");
+
+			long measureFrom = System.nanoTime() + warmupNanos;
+			long end = measureFrom + durationNanos;
+			boolean measuring = false;
+			while (System.nanoTime() < end) {
+				if (!measuring && System.nanoTime() >= measureFrom) {
+					measuring = true;
+					latencies.reset();
+					errors = 0;
+					reconnects = 0;
+				}
+				poll(selector, end);
+			}
+		}
+		report();
+	}
+
+	// The lowest id from the first page of people, and as many ids after it as there are people:
+	private void findIds() throws IOException {
+		JsonNode page = objectMapper.readTree(new URL(baseUrl + "people?limit=1"));
+		JsonNode stats = objectMapper.readTree(new URL(baseUrl + "people/stats?topEmailDomains=0"));
+		if (0==page.get("people").size()) {
+			throw new IllegalStateException("The server has no people; start it with --person.synthetic.count=N");
+		}
+		minId = page.get("people").get(0).get("id").asLong();
+		maxId = minId + stats.get("count").asLong() - 1;
+	}
+
+	private void connect(Selector selector, Connection connection) throws IOException {
+		SocketChannel channel = SocketChannel.open();
+		channel.configureBlocking(false);
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		connection.channel = channel;
+		if (channel.connect(address)) {
+			connection.opening = false;
+			connection.key = channel.register(selector, 0, connection);
+			send(connection);
+		} else {
+			connection.key = channel.register(selector, SelectionKey.OP_CONNECT, connection);
+		}
+	}
+
+	// Handles the ready connections, returning how many finished connecting.
+	private int poll(Selector selector, long until) throws IOException {
+		long timeoutMillis = Long.MAX_VALUE==until ? 1000
+			: Math.max(1, TimeUnit.NANOSECONDS.toMillis(until - System.nanoTime()));
+		selector.select(timeoutMillis);
+		int connected = 0;
+		Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+		while (keys.hasNext()) {
+			SelectionKey key = keys.next();
+			keys.remove();
+			Connection connection = (Connection) key.attachment();
+			try {
+				if (key.isConnectable()) {
+					connection.channel.finishConnect();
+					if (connection.opening) {
+						connection.opening = false;
+						connected++;
+					}
+					send(connection);
+				} else if (key.isWritable()) {
+					write(connection);
+				} else if (key.isReadable()) {
+					read(selector, connection);
+				}
+			} catch (IOException e) {
+				errors++;
+				if (connection.opening) {
+					connection.opening = false;
+					connected++;
+				}
+				reconnect(selector, connection);
+			}
+		}
+		return connected;
+	}
+
+	private void send(Connection connection) throws IOException {
+		String request = "GET " + path + "people/" + (minId + random.nextLong(maxId - minId + 1)) + " HTTP/1.1\r\n"
+			+ "Host: " + host + "\r\n"
+			+ "Accept: application/json\r\n"
+			+ "\r\n";
+		connection.request = ByteBuffer.wrap(request.getBytes(StandardCharsets.US_ASCII));
+		connection.responseLength = 0;
+		connection.sentAt = System.nanoTime();
+		write(connection);
+	}
+
+	private void write(Connection connection) throws IOException {
+		connection.channel.write(connection.request);
+		connection.key.interestOps(connection.request.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+	}
+
+	private void read(Selector selector, Connection connection) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(connection.response, connection.responseLength,
+			connection.response.length - connection.responseLength);
+		int read = connection.channel.read(buffer);
+		if (read < 0) {
+			// Closed by the server between requests:
+			reconnect(selector, connection);
+			return;
+		}
+		connection.responseLength += read;
+		int complete = completeLength(connection.response, connection.responseLength);
+		if (complete < 0) {
+			if (connection.responseLength==connection.response.length) {
+				byte[] larger = new byte[connection.response.length * 2];
+				System.arraycopy(connection.response, 0, larger, 0, connection.responseLength);
+				connection.response = larger;
+			}
+			return;
+		}
+
+		latencies.recordValue(System.nanoTime() - connection.sentAt);
+		String head = new String(connection.response, 0, Math.min(complete, 1024), StandardCharsets.US_ASCII);
+		int status = Integer.parseInt(head.substring(9, 12));
+		if (200!=status && 404!=status) {
+			errors++;
+		}
+		if (head.toLowerCase().contains("\r\nconnection: close")) {
+			reconnect(selector, connection);
+		} else {
+			send(connection);
+		}
+	}
+
+	private void reconnect(Selector selector, Connection connection) throws IOException {
+		connection.key.cancel();
+		connection.channel.close();
+		reconnects++;
+		connect(selector, connection);
+	}
+
+	/**
+	 * @return the length of the HTTP response at the start of the bytes, or -1 if they don't
+	 *  yet hold all of it.  Bodies are either of a Content-Length or chunked.
+	 */
+	static int completeLength(byte[] bytes, int length) {
+		int headerEnd = indexOf(bytes, 0, length, HEADER_END);
+		if (headerEnd < 0) {
+			return -1;
+		}
+		int bodyStart = headerEnd + HEADER_END.length;
+		String head = new String(bytes, 0, headerEnd, StandardCharsets.US_ASCII).toLowerCase();
+		int contentLength = head.indexOf("\r\ncontent-length:");
+		if (contentLength >= 0) {
+			int valueStart = contentLength + "\r\ncontent-length:".length();
+			int valueEnd = head.indexOf("\r\n", valueStart);
+			int bodyLength = Integer.parseInt(head.substring(valueStart, valueEnd < 0 ? head.length() : valueEnd).trim());
+			return length >= bodyStart + bodyLength ? bodyStart + bodyLength : -1;
+		}
+		if (!head.contains("\r\ntransfer-encoding: chunked")) {
+			// No body, as for a 304:
+			return bodyStart;
+		}
+		int position = bodyStart;
+		for (;;) {
+			int lineEnd = indexOf(bytes, position, length, HEADER_END, 2);
+			if (lineEnd < 0) {
+				return -1;
+			}
+			String sizeLine = new String(bytes, position, lineEnd - position, StandardCharsets.US_ASCII);
+			int semicolon = sizeLine.indexOf(';');
+			int size = Integer.parseInt((semicolon < 0 ? sizeLine : sizeLine.substring(0, semicolon)).trim(), 16);
+			// The chunk and its CRLF; the last chunk is empty and followed by a CRLF ending the (absent) trailers:
+			position = lineEnd + 2 + size + 2;
+			if (position > length) {
+				return -1;
+			}
+			if (0==size) {
+				return position;
+			}
+		}
+	}
+
+	private static int indexOf(byte[] bytes, int from, int to, byte[] pattern) {
+		return indexOf(bytes, from, to, pattern, pattern.length);
+	}
+
+	// The index of the first patternLength bytes of the pattern within bytes[from, to), or -1.
+	private static int indexOf(byte[] bytes, int from, int to, byte[] pattern, int patternLength) {
+		outer:
+		for (int i = from; i <= to - patternLength; i++) {
+			for (int j = 0; j < patternLength; j++) {
+				if (bytes[i + j]!=pattern[j]) {
+					continue outer;
+				}
+			}
+			return i;
+		}
+		return -1;
+	}
+
+	private void report() {
+		double seconds = durationNanos / 1e9;
+		System.out.printf("%-11s %10s %8s %10s %10s %9s %9s %9s %9s %9s%n", "connections", "count", "errors",
+			"reconnects", "per sec", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+		System.out.printf("%-11d %10d %8d %10d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", connections,
+			latencies.getTotalCount(), errors, reconnects, latencies.getTotalCount() / seconds, millis(50), millis(90),
+			millis(99), millis(99.9), latencies.getMaxValue() / 1e6);
+	}
+
+	private double millis(double percentile) {
+		return latencies.getValueAtPercentile(percentile) / 1e6;
+	}
+
+	private static final class Connection {
+		SocketChannel channel;
+		SelectionKey key;
+		boolean opening = true;
+		ByteBuffer request;
+		byte[] response = new byte[1024];
+		int responseLength;
+		long sentAt;
+	}
+}
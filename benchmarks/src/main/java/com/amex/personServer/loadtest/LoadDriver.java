@@ -0,0 +1,340 @@
+package com.amex.personServer.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+
+import com.amex.personServer.domain.Person;
+import com.amex.personServer.dto.PersonDto;
+import com.amex.personServer.startup.SyntheticPeople;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Sends a running PersonServer a mix of GET, POST, PUT and DELETE requests, and GETs of the whole
+ * list of people, from a number of threads and reports the throughput and latency percentiles of
+ * each kind of request.  Needs nothing but the server.
+ *
+ * GETs and PUTs are of random people with ids from the lowest id in the table up to as many as
+ * GET /people/stats counts, so the server is best seeded with person.synthetic.count people,
+ * whose ids are consecutive.  POSTs create new SyntheticPeople with email addresses unique to
+ * the run, and DELETEs remove the people the thread has created, oldest first; a thread with
+ * none to delete sends a POST instead.  LISTs GET /people, all of them.  Each thread's sequence of
+ * requests is fixed by the seed.
+ *
+ * With a rate, requests are sent on a fixed schedule and each latency is measured from the time
+ * the request was due, so that a stalled server is charged for the requests it held up.
+ * Without one, each thread sends its next request as soon as the last is answered.
+ *
+ * Usage: java -cp target/benchmarks.jar com.amex.personServer.loadtest.LoadDriver [--option=value...]
+ *
+ *   --url       the server's base URL (http://localhost:5000/personService/v1/)
+ *   --threads   concurrent connections (8)
+ *   --warmup    seconds of requests before measuring (10)
+ *   --duration  seconds of requests measured (60)
+ *   --rate      requests per second across all threads; 0 for as fast as answered (0)
+ *   --mix       percent of each request, of get, post, put, delete and list (get:80,post:5,put:10,delete:5)
+ *   --seed      seed of each thread's random requests (1)
+ */
+public class LoadDriver {
+
+	enum Operation { GET, POST, PUT, DELETE, LIST }
+
+	private static final Map<String, String> DEFAULT_OPTIONS = new LinkedHashMap<>();
+	static {
+		DEFAULT_OPTIONS.put("url", "http://localhost:5000/personService/v1/");
+		DEFAULT_OPTIONS.put("threads", "8");
+		DEFAULT_OPTIONS.put("warmup", "10");
+		DEFAULT_OPTIONS.put("duration", "60");
+		DEFAULT_OPTIONS.put("rate", "0");
+		DEFAULT_OPTIONS.put("mix", "get:80,post:5,put:10,delete:5");
+		DEFAULT_OPTIONS.put("seed", "1");
+	}
+
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final String baseUrl;
+	private final int threads;
+	private final long warmupNanos;
+	private final long durationNanos;
+	private final double rate;
+	// Percent of each operation, in Operation order:
+	private final int[] mix = new int[Operation.values().length];
+	private final long seed;
+
+	// Ids of the people that GETs and PUTs pick from:
+	private long minId;
+	private long maxId;
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new LinkedHashMap<>(DEFAULT_OPTIONS);
+		for (String arg : args) {
+			int equals = arg.indexOf('=');
+			String name = arg.startsWith("--") && equals > 0 ? arg.substring(2, equals) : null;
+			if (null==name || !options.containsKey(name)) {
+				System.err.println("Unknown option: " + arg + "; options are " + DEFAULT_OPTIONS);
+				System.exit(2);
+			}
+			options.put(name, arg.substring(equals + 1));
+		}
+		new LoadDriver(options).run();
+	}
+
+	LoadDriver(Map<String, String> options) {
+		String url = options.get("url");
+		baseUrl = url.endsWith("/") ? url : url + "/";
+		threads = Integer.parseInt(options.get("threads"));
+		warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("warmup")));
+		durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("duration")));
+		rate = Double.parseDouble(options.get("rate"));
+		seed = Long.parseLong(options.get("seed"));
+		int total = 0;
+		for (String entry : options.get("mix").split(",")) {
+			String[] operationAndPercent = entry.split(":");
+			int percent = Integer.parseInt(operationAndPercent[1].trim());
+			mix[Operation.valueOf(operationAndPercent[0].trim().toUpperCase()).ordinal()] = percent;
+			total += percent;
+		}
+		if (total!=100) {
+			throw new IllegalArgumentException("The mix must add up to 100 percent: " + options.get("mix"));
+		}
+	}
+
+	void run() throws Exception {
+		// Keep a connection open per thread rather than the default 5:
+		System.setProperty("http.maxConnections", Integer.toString(threads));
+		findIds();
+		System.out.println("Sending requests for people with ids " + minId + " to " + maxId + " from " + threads
+			+ " threads, " + (rate > 0 ? rate + " per second" : "as fast as they are answered"));
+
+		long start = System.nanoTime();
+		long measureFrom = start + warmupNanos;
+		long end = measureFrom + durationNanos;
+		// Unique to this run, so POSTs don't repeat an earlier run's email addresses:
+		long runNumber = System.currentTimeMillis() * 1000;
+		List<Worker> workers = new ArrayList<>();
+		List<Thread> workerThreads = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			Worker worker = new Worker(i, start, measureFrom, end, runNumber);
+			workers.add(worker);
+			Thread thread = new Thread(worker, "load-driver-" + i);
+			workerThreads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : workerThreads) {
+			thread.join();
+		}
+
+		report(workers);
+	}
+
+	// The lowest id from the first page of people, and as many ids after it as there are people:
+	private void findIds() throws IOException {
+		JsonNode page = objectMapper.readTree(new URL(baseUrl + "people?limit=1"));
+		JsonNode stats = objectMapper.readTree(new URL(baseUrl + "people/stats?topEmailDomains=0"));
+		if (0==page.get("people").size()) {
+			throw new IllegalStateException("The server has no people; start it with --person.synthetic.count=N");
+		}
+		minId = page.get("people").get(0).get("id").asLong();
+		maxId = minId + stats.get("count").asLong() - 1;
+	}
+
+	private void report(List<Worker> workers) {
+		Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+		Histogram allLatencies = new Histogram(3);
+		long[] errors = new long[Operation.values().length];
+		for (Operation operation : Operation.values()) {
+			latencies.put(operation, new Histogram(3));
+		}
+		for (Worker worker : workers) {
+			for (Operation operation : Operation.values()) {
+				latencies.get(operation).add(worker.latencies[operation.ordinal()]);
+				allLatencies.add(worker.latencies[operation.ordinal()]);
+				errors[operation.ordinal()] += worker.errors[operation.ordinal()];
+			}
+		}
+
+		double seconds = durationNanos / 1e9;
+		System.out.printf("%-8s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+			"request", "count", "errors", "per sec", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+		for (Operation operation : Operation.values()) {
+			printRow(operation.name(), latencies.get(operation), errors[operation.ordinal()], seconds);
+		}
+		long totalErrors = 0;
+		for (long operationErrors : errors) {
+			totalErrors += operationErrors;
+		}
+		printRow("all", allLatencies, totalErrors, seconds);
+	}
+
+	private static void printRow(String name, Histogram latencies, long errors, double seconds) {
+		System.out.printf("%-8s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, latencies.getTotalCount(), errors,
+			latencies.getTotalCount() / seconds, millis(latencies, 50), millis(latencies, 90), millis(latencies, 99),
+			millis(latencies, 99.9), latencies.getMaxValue() / 1e6);
+	}
+
+	private static double millis(Histogram latencies, double percentile) {
+		return latencies.getValueAtPercentile(percentile) / 1e6;
+	}
+
+	private final class Worker implements Runnable {
+		private final SplittableRandom random;
+		private final SyntheticPeople syntheticPeople;
+		private final long start;
+		private final long measureFrom;
+		private final long end;
+		// Nanoseconds between requests, or 0 to send each as soon as the last is answered:
+		private final long intervalNanos;
+		// Numbers of the SyntheticPeople this thread creates, unique to the thread and the run:
+		private long nextPersonNumber;
+		private final Deque<Long> createdIds = new ArrayDeque<>();
+		private final byte[] readBuffer = new byte[8192];
+
+		final Histogram[] latencies = new Histogram[Operation.values().length];
+		final long[] errors = new long[Operation.values().length];
+
+		Worker(int index, long start, long measureFrom, long end, long runNumber) {
+			this.random = new SplittableRandom(seed + index);
+			this.syntheticPeople = new SyntheticPeople(seed);
+			this.start = start;
+			this.measureFrom = measureFrom;
+			this.end = end;
+			this.intervalNanos = rate > 0 ? (long) (threads * 1e9 / rate) : 0;
+			this.nextPersonNumber = runNumber + index * 1000000000L;
+			for (int i = 0; i < latencies.length; i++) {
+				latencies[i] = new Histogram(3);
+			}
+		}
+
+		@Override
+		public void run() {
+			long due = start;
+			for (;;) {
+				long requestStart;
+				if (intervalNanos > 0) {
+					due += intervalNanos;
+					long wait = due - System.nanoTime();
+					if (wait > 0) {
+						LockSupport.parkNanos(wait);
+					}
+					requestStart = due;
+				} else {
+					requestStart = System.nanoTime();
+				}
+				if (requestStart >= end) {
+					return;
+				}
+
+				Operation operation = pickOperation();
+				if (operation==Operation.DELETE && createdIds.isEmpty()) {
+					operation = Operation.POST;
+				}
+				boolean ok;
+				try {
+					ok = send(operation);
+				} catch (IOException e) {
+					ok = false;
+				}
+				long latency = System.nanoTime() - requestStart;
+				if (requestStart >= measureFrom) {
+					latencies[operation.ordinal()].recordValue(latency);
+					if (!ok) {
+						errors[operation.ordinal()]++;
+					}
+				}
+			}
+		}
+
+		private Operation pickOperation() {
+			int percent = random.nextInt(100);
+			for (Operation operation : Operation.values()) {
+				percent -= mix[operation.ordinal()];
+				if (percent < 0) {
+					return operation;
+				}
+			}
+			return Operation.GET;
+		}
+
+		// Returns whether the server answered as expected:
+		private boolean send(Operation operation) throws IOException {
+			switch (operation) {
+			case GET: {
+				int status = request("GET", "people/" + randomId(), null).getResponseCode();
+				return status==200 || status==404;
+			}
+			case POST: {
+				HttpURLConnection connection = request("POST", "people", newPersonJson());
+				if (connection.getResponseCode()!=201) {
+					return false;
+				}
+				String location = connection.getHeaderField("Location");
+				createdIds.addLast(Long.parseLong(location.substring(location.lastIndexOf('/') + 1)));
+				return true;
+			}
+			case PUT: {
+				int status = request("PUT", "people/" + randomId(), newPersonJson()).getResponseCode();
+				return status==200 || status==404;
+			}
+			case DELETE:
+				return request("DELETE", "people/" + createdIds.removeFirst(), null).getResponseCode()==204;
+			default:
+				return request("GET", "people", null).getResponseCode()==200;
+			}
+		}
+
+		private long randomId() {
+			return minId + random.nextLong(maxId - minId + 1);
+		}
+
+		private byte[] newPersonJson() throws IOException {
+			Person person = syntheticPeople.person(nextPersonNumber++);
+			PersonDto personDto = new PersonDto();
+			personDto.setName(person.getName());
+			personDto.setAge(person.getAge());
+			personDto.setDateOfBirth(person.getDateOfBirth().toString());
+			personDto.setEmailAddress(person.getEmailAddress());
+			return objectMapper.writeValueAsBytes(personDto);
+		}
+
+		// Sends the request and reads the whole response, so the connection can be reused:
+		private HttpURLConnection request(String method, String path, byte[] body) throws IOException {
+			HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+			connection.setRequestMethod(method);
+			connection.setConnectTimeout(5000);
+			connection.setReadTimeout(30000);
+			if (null!=body) {
+				connection.setDoOutput(true);
+				connection.setRequestProperty("Content-Type", "application/json");
+				connection.setFixedLengthStreamingMode(body.length);
+				try (OutputStream out = connection.getOutputStream()) {
+					out.write(body);
+				}
+			}
+			int status = connection.getResponseCode();
+			try (InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream()) {
+				if (null!=in) {
+					while (in.read(readBuffer) >= 0) {
+						// Discarded.
+					}
+				}
+			}
+			return connection;
+		}
+	}
+
+}
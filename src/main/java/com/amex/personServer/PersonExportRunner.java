@@ -0,0 +1,48 @@
+package com.amex.personServer;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.amex.personServer.bulk.PersonExporter;
+import com.amex.personServer.dto.PersonExportResultDto;
+
+/**
+ * Exports the Person table to the files named by --export options once the application has
+ * started, after any --import, printing the totals to standard output.  Files named *.ndjson or
+ * *.ndjson.gz are written as NDJSON and others as CSV; names ending .gz are gzipped.  For example:
+ *
+ *   java -jar personServer-1.0.0-exec.jar --spring.main.web-application-type=none --export=people.csv.gz
+ */
+@Component
+@Order(2)
+public class PersonExportRunner implements ApplicationRunner {
+
+	public static final String EXPORT_OPTION = "export";
+
+	@Autowired
+	PersonExporter personExporter;
+
+	@Override
+	public void run(ApplicationArguments args) throws IOException {
+		List<String> files = args.getOptionValues(EXPORT_OPTION);
+		if (null==files) {
+			return;
+		}
+		for (String file : files) {
+			boolean gzip = file.endsWith(".gz");
+			String name = gzip ? file.substring(0, file.length() - ".gz".length()) : file;
+			PersonExporter.Format format = name.endsWith(PersonExporter.Format.NDJSON.getExtension())
+				? PersonExporter.Format.NDJSON : PersonExporter.Format.CSV;
+			PersonExportResultDto result = personExporter.export(Paths.get(file), format, gzip);
+			System.out.println(file + ": " + result.getRows() + " people, " + result.getBytes() + " bytes in "
+				+ result.getElapsedMillis() + " ms (" + result.getRowsPerSecond() + " people/s)");
+		}
+	}
+}
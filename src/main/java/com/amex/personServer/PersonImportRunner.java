@@ -0,0 +1,53 @@
+package com.amex.personServer;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.amex.personServer.bulk.PersonCsvImporter;
+import com.amex.personServer.dto.PersonImportResultDto;
+
+/**
+ * Imports the CSV files named by --import options once the application has started, printing
+ * each rejected line to standard error and the totals to standard output.  For example:
+ *
+ *   java -jar personServer-1.0.0-exec.jar --spring.main.web-application-type=none --import=people.csv
+ *
+ * imports people.csv and exits; without the web-application-type option the server carries on
+ * running afterwards.  A file that can't be read, or whose header is missing a column, fails
+ * the start-up.
+ */
+@Component
+@Order(1)
+public class PersonImportRunner implements ApplicationRunner {
+
+	public static final String IMPORT_OPTION = "import";
+
+	@Autowired
+	PersonCsvImporter personCsvImporter;
+
+	@Override
+	public void run(ApplicationArguments args) throws IOException {
+		List<String> files = args.getOptionValues(IMPORT_OPTION);
+		if (null==files) {
+			return;
+		}
+		for (String file : files) {
+			try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+				PersonImportResultDto result = personCsvImporter.importCsv(channel, 0,
+					(line, error) -> System.err.println(file + ":" + line + ": " + error));
+				System.out.println(file + ": " + result.getRecords() + " records, " + result.getCreated() + " created, "
+					+ result.getRejected() + " rejected in " + result.getElapsedMillis() + " ms ("
+					+ result.getRowsPerSecond() + " people/s)");
+			}
+		}
+	}
+}
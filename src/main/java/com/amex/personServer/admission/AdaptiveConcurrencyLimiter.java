@@ -0,0 +1,132 @@
+package com.amex.personServer.admission;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the requests in progress at once to a limit that adapts to their latency, queueing a
+ * bounded number of requests beyond it for a bounded time and turning away the rest.
+ *
+ * The limit follows the gradient between a long-term average latency, which stands for the
+ * latency of a server that is not overloaded, and each new latency: while latency holds near the
+ * long-term average the limit grows by a share of its square root per request, and as latency rises
+ * above tolerance times that average the limit shrinks in proportion, by at most half.  Changes
+ * are smoothed, and the limit is kept between 1 and maxLimit.  While fewer than half the limit's
+ * requests are in progress their latency says nothing about the limit, so it is left alone.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+	// Latency this many times the long-term average is taken as the start of overload:
+	static final double TOLERANCE = 1.5;
+
+	// Share of each new limit taken into the limit:
+	static final double SMOOTHING = 0.2;
+
+	// Requests the long-term average latency is taken over:
+	static final int LONG_WINDOW = 600;
+
+	private final int maxLimit;
+	private final int queueSize;
+	private final long maxWaitNanos;
+
+	private double limit;
+	private double longLatencyNanos;
+	private int inFlight;
+	private int waiting;
+	private long rejectedCount;
+
+	/**
+	 * @param initialLimit the limit until latencies have been seen.
+	 * @param maxLimit the most the limit may grow to.
+	 * @param queueSize the most requests that may wait for the limit at once.
+	 * @param maxWaitMillis the longest a request waits before being turned away.
+	 */
+	public AdaptiveConcurrencyLimiter(int initialLimit, int maxLimit, int queueSize, long maxWaitMillis) {
+		if (initialLimit < 1 || maxLimit < initialLimit || queueSize < 0 || maxWaitMillis < 0) {
+			throw new IllegalArgumentException("Need 1 <= initialLimit <= maxLimit, and a queue size and wait of at least 0");
+		}
+		this.limit = initialLimit;
+		this.maxLimit = maxLimit;
+		this.queueSize = queueSize;
+		this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+	}
+
+	/**
+	 * Admits a request, waiting for the limit if need be.  An admitted request must be released.
+	 *
+	 * @return whether the request was admitted; false if the queue was full or the wait ran out.
+	 */
+	public synchronized boolean acquire() throws InterruptedException {
+		if (inFlight < (int) limit) {
+			inFlight++;
+			return true;
+		}
+		if (waiting >= queueSize) {
+			rejectedCount++;
+			return false;
+		}
+		waiting++;
+		try {
+			long deadline = System.nanoTime() + maxWaitNanos;
+			while (inFlight >= (int) limit) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					rejectedCount++;
+					return false;
+				}
+				TimeUnit.NANOSECONDS.timedWait(this, remaining);
+			}
+			inFlight++;
+			return true;
+		} finally {
+			waiting--;
+		}
+	}
+
+	/**
+	 * Releases an admitted request, adapting the limit to its latency.
+	 *
+	 * @param latencyNanos the request's latency, or a negative value if it failed and so says
+	 *        nothing about the limit.
+	 */
+	public synchronized void release(long latencyNanos) {
+		if (latencyNanos >= 0) {
+			adapt(latencyNanos, inFlight);
+		}
+		inFlight--;
+		notifyAll();
+	}
+
+	private void adapt(long latencyNanos, int requestsInFlight) {
+		if (0==longLatencyNanos) {
+			longLatencyNanos = latencyNanos;
+			return;
+		}
+		longLatencyNanos += (latencyNanos - longLatencyNanos) * 2 / (LONG_WINDOW + 1);
+		// After a spike in latency, come back down to a shorter latency promptly:
+		if (longLatencyNanos > 2 * latencyNanos) {
+			longLatencyNanos *= 0.95;
+		}
+		if (requestsInFlight < limit / 2) {
+			return;
+		}
+		double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longLatencyNanos / Math.max(1, latencyNanos)));
+		double newLimit = limit * gradient + Math.sqrt(limit);
+		limit = Math.max(1, Math.min(maxLimit, limit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+	}
+
+	public synchronized int getLimit() {
+		return (int) limit;
+	}
+
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	public synchronized int getWaiting() {
+		return waiting;
+	}
+
+	public synchronized long getRejectedCount() {
+		return rejectedCount;
+	}
+}
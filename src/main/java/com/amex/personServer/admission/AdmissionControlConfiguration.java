@@ -0,0 +1,103 @@
+package com.amex.personServer.admission;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Limits the PersonController's requests in progress with an AdmissionControlInterceptor.
+ * Enabled by setting person.admission.enabled=true.
+ *
+ * Each pool's limit starts at person.admission.{point|bulk}.initial-limit and adapts between 1
+ * and max-limit; queue-size requests beyond it may wait up to max-wait-ms for a place before
+ * being answered with a 503 whose Retry-After is person.admission.retry-after-seconds.  The bulk
+ * pool's limit is best kept well below the DB connection pool's size, so that point requests
+ * always find connections free.  Each pool's limit, requests in progress and waiting, and
+ * rejections are published as person.admission.* metrics tagged with the pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = "person.admission.enabled", havingValue = "true")
+public class AdmissionControlConfiguration {
+
+	@Value("${person.admission.retry-after-seconds:1}")
+	long retryAfterSeconds;
+
+	@Value("${person.admission.point.initial-limit:20}")
+	int pointInitialLimit;
+
+	@Value("${person.admission.point.max-limit:200}")
+	int pointMaxLimit;
+
+	@Value("${person.admission.point.queue-size:50}")
+	int pointQueueSize;
+
+	@Value("${person.admission.point.max-wait-ms:100}")
+	long pointMaxWaitMillis;
+
+	@Value("${person.admission.bulk.initial-limit:2}")
+	int bulkInitialLimit;
+
+	@Value("${person.admission.bulk.max-limit:4}")
+	int bulkMaxLimit;
+
+	@Value("${person.admission.bulk.queue-size:4}")
+	int bulkQueueSize;
+
+	@Value("${person.admission.bulk.max-wait-ms:1000}")
+	long bulkMaxWaitMillis;
+
+	@Bean
+	public AdaptiveConcurrencyLimiter pointLimiter() {
+		return new AdaptiveConcurrencyLimiter(pointInitialLimit, pointMaxLimit, pointQueueSize, pointMaxWaitMillis);
+	}
+
+	@Bean
+	public AdaptiveConcurrencyLimiter bulkLimiter() {
+		return new AdaptiveConcurrencyLimiter(bulkInitialLimit, bulkMaxLimit, bulkQueueSize, bulkMaxWaitMillis);
+	}
+
+	@Bean
+	public WebMvcConfigurer admissionControlConfigurer() {
+		return new WebMvcConfigurer() {
+			@Override
+			public void addInterceptors(InterceptorRegistry registry) {
+				registry.addInterceptor(new AdmissionControlInterceptor(pointLimiter(), bulkLimiter(), retryAfterSeconds));
+			}
+		};
+	}
+
+	@Bean
+	public MeterBinder admissionControlMetrics() {
+		return registry -> {
+			bindTo(registry, AdmissionControlInterceptor.POINT_POOL, pointLimiter());
+			bindTo(registry, AdmissionControlInterceptor.BULK_POOL, bulkLimiter());
+		};
+	}
+
+	private static void bindTo(MeterRegistry registry, String pool, AdaptiveConcurrencyLimiter limiter) {
+		Gauge.builder("person.admission.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+			.tag("pool", pool)
+			.description("Requests that may be in progress at once")
+			.register(registry);
+		Gauge.builder("person.admission.in.flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+			.tag("pool", pool)
+			.description("Requests in progress")
+			.register(registry);
+		Gauge.builder("person.admission.waiting", limiter, AdaptiveConcurrencyLimiter::getWaiting)
+			.tag("pool", pool)
+			.description("Requests waiting to be admitted")
+			.register(registry);
+		FunctionCounter.builder("person.admission.rejections", limiter, AdaptiveConcurrencyLimiter::getRejectedCount)
+			.tag("pool", pool)
+			.description("Requests turned away with a 503")
+			.register(registry);
+	}
+}
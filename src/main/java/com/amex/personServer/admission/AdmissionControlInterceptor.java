@@ -0,0 +1,85 @@
+package com.amex.personServer.admission;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import com.amex.personServer.controller.PersonController;
+
+/**
+ * Admits each request to a PersonController handler through one of two limiters: the bulk pool
+ * for handlers marked as BulkEndpoints, and the point pool for the rest, so that a few requests
+ * for many people cannot hold up the many requests for one.  A request the limiter turns away
+ * fails with an AdmissionRejectedException before its handler is called.
+ *
+ * A request holds its place until it has completed, including, for a handler run asynchronously,
+ * the dispatch that writes its result; its latency over that time is what the limiter adapts to.
+ * Requests answered with a 5xx status are released without their latency, which may say more
+ * about the failure than about the load.
+ */
+public class AdmissionControlInterceptor implements AsyncHandlerInterceptor {
+
+	public static final String POINT_POOL = "point";
+	public static final String BULK_POOL = "bulk";
+
+	private static final String ADMISSION_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".admission";
+
+	private final AdaptiveConcurrencyLimiter pointLimiter;
+	private final AdaptiveConcurrencyLimiter bulkLimiter;
+	private final long retryAfterSeconds;
+
+	public AdmissionControlInterceptor(AdaptiveConcurrencyLimiter pointLimiter, AdaptiveConcurrencyLimiter bulkLimiter,
+			long retryAfterSeconds) {
+		this.pointLimiter = pointLimiter;
+		this.bulkLimiter = bulkLimiter;
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+		if (!(handler instanceof HandlerMethod)
+				|| !PersonController.class.isAssignableFrom(((HandlerMethod) handler).getBeanType())
+				// Already admitted, and now dispatched to write an asynchronous result:
+				|| null!=request.getAttribute(ADMISSION_ATTRIBUTE)) {
+			return true;
+		}
+		boolean bulk = ((HandlerMethod) handler).hasMethodAnnotation(BulkEndpoint.class);
+		AdaptiveConcurrencyLimiter limiter = bulk ? bulkLimiter : pointLimiter;
+		boolean admitted;
+		try {
+			admitted = limiter.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			admitted = false;
+		}
+		if (!admitted) {
+			throw new AdmissionRejectedException(bulk ? BULK_POOL : POINT_POOL, retryAfterSeconds);
+		}
+		request.setAttribute(ADMISSION_ATTRIBUTE, new Admission(limiter, System.nanoTime()));
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) throws Exception {
+		Admission admission = (Admission) request.getAttribute(ADMISSION_ATTRIBUTE);
+		if (null==admission) {
+			return;
+		}
+		request.removeAttribute(ADMISSION_ATTRIBUTE);
+		boolean failed = null!=ex || response.getStatus() >= 500;
+		admission.limiter.release(failed ? -1 : System.nanoTime() - admission.startTime);
+	}
+
+	private static final class Admission {
+		final AdaptiveConcurrencyLimiter limiter;
+		final long startTime;
+
+		Admission(AdaptiveConcurrencyLimiter limiter, long startTime) {
+			this.limiter = limiter;
+			this.startTime = startTime;
+		}
+	}
+}
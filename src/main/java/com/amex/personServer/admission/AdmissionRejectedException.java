@@ -0,0 +1,21 @@
+package com.amex.personServer.admission;
+
+/**
+ * Thrown when a request is turned away by admission control, to be answered with a 503 and a
+ * Retry-After header.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final long retryAfterSeconds;
+
+	public AdmissionRejectedException(String pool, long retryAfterSeconds) {
+		super("Too many " + pool + " requests in progress; try again later");
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	public long getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+}
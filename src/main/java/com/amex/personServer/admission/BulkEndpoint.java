@@ -0,0 +1,17 @@
+package com.amex.personServer.admission;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a PersonController handler whose requests read or write many people, which the
+ * AdmissionControlInterceptor admits through the bulk pool rather than the point pool.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface BulkEndpoint {
+}
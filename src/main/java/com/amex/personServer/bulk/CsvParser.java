@@ -0,0 +1,128 @@
+package com.amex.personServer.bulk;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental parser of comma-separated values as described by RFC 4180: fields may be quoted,
+ * quoted fields may hold commas, line breaks and doubled quotes, and records end with LF or CRLF.
+ * Text is fed in whatever pieces it arrives in; a record split across pieces is carried over to
+ * the next call.  Blank lines are skipped.  Not thread-safe.
+ */
+final class CsvParser {
+
+	interface RecordHandler {
+		/**
+		 * @param line the line number, from 1, that the record starts on.
+		 * @param fields the record's fields.  The list is reused for the next record.
+		 */
+		void record(long line, List<String> fields) throws InterruptedException;
+	}
+
+	private final RecordHandler handler;
+
+	private final List<String> fields = new ArrayList<>();
+	private final StringBuilder field = new StringBuilder();
+	private boolean inRecord;
+	private boolean inQuotes;
+	// Within quotes, a quote has just been read: it's either escaping a quote or closing the field.
+	private boolean quoteInQuotes;
+	private boolean atStart = true;
+	private long line = 1;
+	private long recordLine = 1;
+
+	CsvParser(RecordHandler handler) {
+		this.handler = handler;
+	}
+
+	/**
+	 * Parses all of the remaining chars, handling every record that they complete.
+	 */
+	void parse(CharBuffer chars) throws InterruptedException {
+		if (atStart && chars.hasRemaining()) {
+			atStart = false;
+			// Skip any byte order mark:
+			if (chars.get(chars.position())=='\uFEFF') {
+				chars.get();
+			}
+		}
+		while (chars.hasRemaining()) {
+			char c = chars.get();
+			if (inQuotes) {
+				if (quoteInQuotes) {
+					quoteInQuotes = false;
+					if (c=='"') {
+						field.append('"');
+						continue;
+					}
+					inQuotes = false;
+					// The field's closing quote: handle c as unquoted below.
+				} else {
+					if (c=='"') {
+						quoteInQuotes = true;
+					} else {
+						if (c=='\n') {
+							line++;
+						}
+						field.append(c);
+					}
+					continue;
+				}
+			}
+			switch (c) {
+			case ',':
+				inRecord = true;
+				endField();
+				break;
+			case '\n':
+				if (inRecord) {
+					endRecord();
+				}
+				line++;
+				recordLine = line;
+				break;
+			case '\r':
+				// Dropped: it ends the line along with the following LF.
+				break;
+			case '"':
+				inRecord = true;
+				if (0==field.length()) {
+					inQuotes = true;
+				} else {
+					field.append(c);
+				}
+				break;
+			default:
+				inRecord = true;
+				field.append(c);
+			}
+		}
+	}
+
+	/**
+	 * Handles the last record when the text does not end with a line break.
+	 */
+	void finish() throws InterruptedException {
+		if (inQuotes && !quoteInQuotes) {
+			throw new IllegalArgumentException("Line " + recordLine + ": unterminated quoted field");
+		}
+		inQuotes = false;
+		quoteInQuotes = false;
+		if (inRecord) {
+			endRecord();
+		}
+	}
+
+	private void endField() {
+		fields.add(field.toString());
+		field.setLength(0);
+	}
+
+	private void endRecord() throws InterruptedException {
+		endField();
+		handler.record(recordLine, fields);
+		fields.clear();
+		inRecord = false;
+	}
+}
@@ -0,0 +1,393 @@
+package com.amex.personServer.bulk;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.amex.personServer.domain.DateOfBirthFormat;
+import com.amex.personServer.domain.Person;
+import com.amex.personServer.dto.PersonImportResultDto;
+import com.amex.personServer.service.PersonService;
+
+/**
+ * Imports people from CSV text as a pipeline of three stages, so that no stage waits for the
+ * whole file and only a bounded part of it is ever in memory:
+ *
+ * 1. A reader thread decodes the channel through a direct buffer, parses it into records and
+ *    cuts them into chunks of person.import.chunk-size records.
+ * 2. Each chunk is mapped to people and checked with PersonService.validatePerson on a
+ *    fork-join pool of person.import.parallelism threads.
+ * 3. The calling thread creates each chunk's valid people, in file order, with
+ *    PersonService.createAllValidated: one transaction per chunk, a set-based duplicate email
+ *    check and batched inserts.
+ *
+ * The chunks between the reader and the writer are held in a bounded queue: when the writer
+ * falls behind, the reader blocks rather than reading ahead.
+ *
+ * The first record is a header naming the columns, in any order: name, age, dateOfBirth
+ * (yyyy-MM-dd) and emailAddress.  Other columns, such as an id, are ignored.  Each chunk is
+ * committed once it is written, so an import that fails part way keeps the chunks before it.
+ */
+@Component
+public class PersonCsvImporter {
+
+	private static final Logger logger = LoggerFactory.getLogger(PersonCsvImporter.class);
+
+	public static final List<String> COLUMNS = Collections.unmodifiableList(
+		Arrays.asList("name", "age", "dateOfBirth", "emailAddress"));
+
+	private static final int READ_BUFFER_SIZE = 1 << 20;
+
+	// Queued by the reader after the last chunk:
+	private static final CompletableFuture<List<Row>> END_OF_INPUT = CompletableFuture.completedFuture(null);
+
+	/**
+	 * Told of every rejected record, in file order, as the import goes.
+	 */
+	public interface LineErrorListener {
+		void lineRejected(long line, String error);
+	}
+
+	@Autowired
+	PersonService personService;
+
+	@Value("${person.import.chunk-size:5000}")
+	int chunkSize;
+
+	// Threads validating chunks; 0 for one per processor:
+	@Value("${person.import.parallelism:0}")
+	int parallelism;
+
+	private ForkJoinPool validationPool;
+
+	private final ExecutorService readerExecutor = Executors.newCachedThreadPool(readerThreadFactory());
+
+	@PostConstruct
+	public void start() {
+		if (parallelism <= 0) {
+			parallelism = Runtime.getRuntime().availableProcessors();
+		}
+		validationPool = new ForkJoinPool(parallelism);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		readerExecutor.shutdownNow();
+		validationPool.shutdownNow();
+	}
+
+	/**
+	 * Imports the people in the channel's CSV text, which must be UTF-8.
+	 *
+	 * @param maxErrors the most rejected lines to include in the result.
+	 * @param listener told of every rejected line, or null.
+	 * @throws IllegalArgumentException if the header is missing a column, a quoted field is not
+	 *  terminated or the text is not UTF-8.
+	 * @throws IOException if the channel can't be read.
+	 */
+	public PersonImportResultDto importCsv(ReadableByteChannel channel, int maxErrors, LineErrorListener listener)
+			throws IOException {
+		long startTime = System.nanoTime();
+		Results results = new Results(maxErrors, listener);
+
+		// Twice as many chunks as validating threads keeps them all busy while the writer works:
+		BlockingQueue<CompletableFuture<List<Row>>> chunks = new ArrayBlockingQueue<>(2 * parallelism);
+		Future<?> reader = readerExecutor.submit(() -> read(channel, chunks));
+		try {
+			for (;;) {
+				CompletableFuture<List<Row>> chunk = chunks.take();
+				if (chunk==END_OF_INPUT) {
+					break;
+				}
+				write(getChunk(chunk), results);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("CSV import interrupted");
+		} finally {
+			// Stops the reader if the writer has failed:
+			reader.cancel(true);
+		}
+
+		long elapsedNanos = Math.max(1, System.nanoTime() - startTime);
+		PersonImportResultDto result = new PersonImportResultDto(results.records, results.created,
+			results.records - results.created, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+			results.created * TimeUnit.SECONDS.toNanos(1) / elapsedNanos, results.errors);
+		logger.info("CSV import: {}", result);
+		return result;
+	}
+
+	// Runs on the reader thread, ending the queue with END_OF_INPUT or a failed chunk:
+	private void read(ReadableByteChannel channel, BlockingQueue<CompletableFuture<List<Row>>> chunks) {
+		try {
+			Chunker chunker = new Chunker(chunks);
+			CsvParser parser = new CsvParser(chunker);
+			CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+			ByteBuffer bytes = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+			// UTF-8 never decodes to more chars than bytes, so the decoder never runs out of room:
+			CharBuffer chars = CharBuffer.allocate(READ_BUFFER_SIZE);
+			boolean endOfInput = false;
+			while (!endOfInput) {
+				endOfInput = channel.read(bytes) < 0;
+				bytes.flip();
+				checkDecoded(decoder.decode(bytes, chars, endOfInput));
+				if (endOfInput) {
+					checkDecoded(decoder.flush(chars));
+				}
+				bytes.compact();
+				chars.flip();
+				parser.parse(chars);
+				chars.clear();
+			}
+			parser.finish();
+			chunker.finish();
+			chunks.put(END_OF_INPUT);
+		} catch (InterruptedException e) {
+			// Cancelled by the writer, which is no longer taking chunks.
+		} catch (Throwable t) {
+			CompletableFuture<List<Row>> failed = new CompletableFuture<>();
+			failed.completeExceptionally(t);
+			try {
+				chunks.put(failed);
+			} catch (InterruptedException e) {
+				// Cancelled by the writer.
+			}
+		}
+	}
+
+	private static void checkDecoded(CoderResult result) {
+		if (result.isError()) {
+			throw new IllegalArgumentException("CSV text is not UTF-8");
+		}
+	}
+
+	private static List<Row> getChunk(CompletableFuture<List<Row>> chunk) throws IOException, InterruptedException {
+		try {
+			return chunk.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	// Runs on the validation pool:
+	private static List<Row> validate(List<Row> rows, int[] columnIndexes, int columnCount) {
+		for (Row row : rows) {
+			String[] fields = row.fields;
+			row.fields = null;
+			if (fields.length!=columnCount) {
+				row.error = "Expected " + columnCount + " fields but found " + fields.length;
+				continue;
+			}
+			Person person = new Person();
+			person.setName(fields[columnIndexes[0]]);
+			String age = fields[columnIndexes[1]];
+			String dateOfBirth = fields[columnIndexes[2]];
+			person.setEmailAddress(fields[columnIndexes[3]]);
+			try {
+				if (!age.isEmpty()) {
+					person.setAge(Integer.valueOf(age));
+				}
+			} catch (NumberFormatException e) {
+				row.error = "Age is not a number: " + age;
+				continue;
+			}
+			// The column is not null, and validatePerson doesn't check it:
+			if (dateOfBirth.isEmpty()) {
+				row.error = "Missing date of birth";
+				continue;
+			}
+			try {
+				person.setDateOfBirth(DateOfBirthFormat.parse(dateOfBirth));
+			} catch (DateTimeParseException e) {
+				row.error = "Date of birth is not yyyy-MM-dd: " + dateOfBirth;
+				continue;
+			}
+			try {
+				PersonService.validatePerson(person);
+				row.person = person;
+			} catch (IllegalArgumentException e) {
+				row.error = e.getMessage();
+			}
+		}
+		return rows;
+	}
+
+	// Runs on the calling thread:
+	private void write(List<Row> rows, Results results) {
+		List<Person> people = new ArrayList<>(rows.size());
+		for (Row row : rows) {
+			if (null!=row.person) {
+				people.add(row.person);
+			}
+		}
+
+		List<String> createErrors;
+		try {
+			createErrors = personService.createAllValidated(people);
+		} catch (IllegalArgumentException e) {
+			// A concurrent writer inserted one of the emails; the duplicate check will now find it:
+			try {
+				createErrors = personService.createAllValidated(people);
+			} catch (IllegalArgumentException again) {
+				createErrors = Collections.nCopies(people.size(), again.getMessage());
+			}
+		}
+
+		int peopleIndex = 0;
+		for (Row row : rows) {
+			String error = row.error;
+			if (null!=row.person) {
+				error = createErrors.get(peopleIndex++);
+			}
+			results.add(row.line, error);
+		}
+	}
+
+	private static CustomizableThreadFactory readerThreadFactory() {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("person-import-");
+		threadFactory.setDaemon(true);
+		return threadFactory;
+	}
+
+	// A record on its way through the pipeline: its fields are replaced by a person or an error.
+	private static final class Row {
+		final long line;
+		String[] fields;
+		Person person;
+		String error;
+
+		Row(long line, String[] fields) {
+			this.line = line;
+			this.fields = fields;
+		}
+	}
+
+	// Cuts the parsed records into chunks and hands each to the validation pool.
+	private final class Chunker implements CsvParser.RecordHandler {
+		private final BlockingQueue<CompletableFuture<List<Row>>> chunks;
+		// The fields' positions in a record, in the order of COLUMNS; null until the header is read:
+		private int[] columnIndexes;
+		private int columnCount;
+		private List<Row> rows = new ArrayList<>(chunkSize);
+
+		Chunker(BlockingQueue<CompletableFuture<List<Row>>> chunks) {
+			this.chunks = chunks;
+		}
+
+		@Override
+		public void record(long line, List<String> fields) throws InterruptedException {
+			if (null==columnIndexes) {
+				readHeader(fields);
+				return;
+			}
+			rows.add(new Row(line, fields.toArray(new String[fields.size()])));
+			if (rows.size()==chunkSize) {
+				submit();
+			}
+		}
+
+		void finish() throws InterruptedException {
+			if (null==columnIndexes) {
+				throw new IllegalArgumentException("CSV text has no header");
+			}
+			if (!rows.isEmpty()) {
+				submit();
+			}
+		}
+
+		private void readHeader(List<String> fields) {
+			columnCount = fields.size();
+			columnIndexes = new int[COLUMNS.size()];
+			List<String> missing = new ArrayList<>();
+			for (int i = 0; i < COLUMNS.size(); i++) {
+				columnIndexes[i] = -1;
+				for (int j = 0; j < fields.size(); j++) {
+					if (fields.get(j).trim().equalsIgnoreCase(COLUMNS.get(i))) {
+						columnIndexes[i] = j;
+					}
+				}
+				if (columnIndexes[i] < 0) {
+					missing.add(COLUMNS.get(i));
+				}
+			}
+			if (!missing.isEmpty()) {
+				throw new IllegalArgumentException("CSV header is missing columns: " + String.join(", ", missing));
+			}
+		}
+
+		private void submit() throws InterruptedException {
+			List<Row> chunk = rows;
+			rows = new ArrayList<>(chunkSize);
+			int[] indexes = columnIndexes;
+			int count = columnCount;
+			chunks.put(CompletableFuture.supplyAsync(() -> validate(chunk, indexes, count), validationPool));
+		}
+	}
+
+	// Totals and errors, in file order, of the chunks written so far.
+	private static final class Results {
+		private final int maxErrors;
+		private final LineErrorListener listener;
+		private final List<PersonImportResultDto.LineError> errors = new ArrayList<>();
+		private long records;
+		private long created;
+
+		Results(int maxErrors, LineErrorListener listener) {
+			this.maxErrors = maxErrors;
+			this.listener = listener;
+		}
+
+		void add(long line, String error) {
+			records++;
+			if (null==error) {
+				created++;
+				return;
+			}
+			if (errors.size() < maxErrors) {
+				errors.add(new PersonImportResultDto.LineError(line, error));
+			}
+			if (null!=listener) {
+				listener.lineRejected(line, error);
+			}
+		}
+	}
+}
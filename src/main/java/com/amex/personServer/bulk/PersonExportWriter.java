@@ -0,0 +1,256 @@
+package com.amex.personServer.bulk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Writes people as CSV or NDJSON rows, encoding them to UTF-8 directly into a ByteBuffer that is
+ * drained to a channel whenever it fills, so that no String or byte[] is created per row.
+ * The rows match what PersonCsvImporter reads and what GET /people sends as NDJSON.
+ * Not thread-safe.
+ */
+final class PersonExportWriter {
+
+	private static final byte[] CSV_HEADER = ascii("id," + String.join(",", PersonCsvImporter.COLUMNS) + "\n");
+	private static final byte[] JSON_ID = ascii("{\"id\":");
+	private static final byte[] JSON_NAME = ascii(",\"name\":");
+	private static final byte[] JSON_AGE = ascii(",\"age\":");
+	private static final byte[] JSON_DATE_OF_BIRTH = ascii(",\"dateOfBirth\":");
+	private static final byte[] JSON_EMAIL_ADDRESS = ascii(",\"emailAddress\":");
+	private static final byte[] JSON_END = ascii("}\n");
+	private static final byte[] JSON_NULL = ascii("null");
+	private static final byte[] HEX_DIGITS = ascii("0123456789abcdef");
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer;
+	private final PersonExporter.Format format;
+	private final byte[] digits = new byte[20];
+
+	PersonExportWriter(WritableByteChannel channel, ByteBuffer buffer, PersonExporter.Format format) {
+		this.channel = channel;
+		this.buffer = buffer;
+		this.format = format;
+		buffer.clear();
+	}
+
+	/**
+	 * Writes the CSV header; NDJSON has none.
+	 */
+	void writeHeader() throws IOException {
+		if (format==PersonExporter.Format.CSV) {
+			put(CSV_HEADER);
+		}
+	}
+
+	void writeRow(Long id, String name, Integer age, LocalDate dateOfBirth, String emailAddress) throws IOException {
+		if (format==PersonExporter.Format.CSV) {
+			putNumber(id);
+			put((byte) ',');
+			putCsvString(name);
+			put((byte) ',');
+			putNumber(age);
+			put((byte) ',');
+			if (null!=dateOfBirth) {
+				putDate(dateOfBirth);
+			}
+			put((byte) ',');
+			putCsvString(emailAddress);
+			put((byte) '\n');
+		} else {
+			put(JSON_ID);
+			putNumber(id);
+			put(JSON_NAME);
+			putJsonString(name);
+			put(JSON_AGE);
+			putNumber(age);
+			put(JSON_DATE_OF_BIRTH);
+			if (null==dateOfBirth) {
+				put(JSON_NULL);
+			} else {
+				put((byte) '"');
+				putDate(dateOfBirth);
+				put((byte) '"');
+			}
+			put(JSON_EMAIL_ADDRESS);
+			putJsonString(emailAddress);
+			put(JSON_END);
+		}
+	}
+
+	/**
+	 * Writes out whatever is in the buffer.
+	 */
+	void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	private void put(byte b) throws IOException {
+		if (!buffer.hasRemaining()) {
+			flush();
+		}
+		buffer.put(b);
+	}
+
+	private void put(byte[] bytes) throws IOException {
+		if (buffer.remaining() < bytes.length) {
+			flush();
+		}
+		buffer.put(bytes);
+	}
+
+	// CSV leaves a null number empty; JSON writes null.
+	private void putNumber(Number number) throws IOException {
+		if (null==number) {
+			if (format==PersonExporter.Format.NDJSON) {
+				put(JSON_NULL);
+			}
+			return;
+		}
+		long value = number.longValue();
+		if (value < 0) {
+			if (value==Long.MIN_VALUE) {
+				put(ascii(Long.toString(value)));
+				return;
+			}
+			put((byte) '-');
+			value = -value;
+		}
+		int start = digits.length;
+		do {
+			digits[--start] = (byte) ('0' + value % 10);
+			value /= 10;
+		} while (value!=0);
+		for (int i = start; i < digits.length; i++) {
+			put(digits[i]);
+		}
+	}
+
+	// yyyy-MM-dd
+	private void putDate(LocalDate date) throws IOException {
+		int year = date.getYear();
+		if (year < 0 || year > 9999) {
+			put(ascii(date.toString()));
+			return;
+		}
+		putDigits(year / 100);
+		putDigits(year % 100);
+		put((byte) '-');
+		putDigits(date.getMonthValue());
+		put((byte) '-');
+		putDigits(date.getDayOfMonth());
+	}
+
+	private void putDigits(int twoDigits) throws IOException {
+		put((byte) ('0' + twoDigits / 10));
+		put((byte) ('0' + twoDigits % 10));
+	}
+
+	// Quoted, with quotes doubled, if the value holds a comma, quote or line break.
+	private void putCsvString(String value) throws IOException {
+		if (null==value) {
+			return;
+		}
+		boolean quoted = false;
+		for (int i = 0; i < value.length() && !quoted; i++) {
+			char c = value.charAt(i);
+			quoted = c==',' || c=='"' || c=='\n' || c=='\r';
+		}
+		if (!quoted) {
+			putUtf8(value, false);
+			return;
+		}
+		put((byte) '"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c=='"') {
+				put((byte) '"');
+				put((byte) '"');
+			} else {
+				i = putUtf8Char(value, i);
+			}
+		}
+		put((byte) '"');
+	}
+
+	private void putJsonString(String value) throws IOException {
+		if (null==value) {
+			put(JSON_NULL);
+			return;
+		}
+		put((byte) '"');
+		putUtf8(value, true);
+		put((byte) '"');
+	}
+
+	private void putUtf8(String value, boolean jsonEscaped) throws IOException {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (jsonEscaped && (c=='"' || c=='\\' || c < 0x20)) {
+				putJsonEscape(c);
+			} else {
+				i = putUtf8Char(value, i);
+			}
+		}
+	}
+
+	private void putJsonEscape(char c) throws IOException {
+		put((byte) '\\');
+		switch (c) {
+		case '"':
+		case '\\':
+			put((byte) c);
+			break;
+		case '\n':
+			put((byte) 'n');
+			break;
+		case '\r':
+			put((byte) 'r');
+			break;
+		case '\t':
+			put((byte) 't');
+			break;
+		default:
+			put((byte) 'u');
+			put((byte) '0');
+			put((byte) '0');
+			put(HEX_DIGITS[c >> 4]);
+			put(HEX_DIGITS[c & 0xF]);
+		}
+	}
+
+	// Writes the char at i, or the surrogate pair starting there; returns the index of its last char.
+	private int putUtf8Char(String value, int i) throws IOException {
+		char c = value.charAt(i);
+		if (c < 0x80) {
+			put((byte) c);
+		} else if (c < 0x800) {
+			put((byte) (0xC0 | c >> 6));
+			put((byte) (0x80 | c & 0x3F));
+		} else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+			int codePoint = Character.toCodePoint(c, value.charAt(++i));
+			put((byte) (0xF0 | codePoint >> 18));
+			put((byte) (0x80 | codePoint >> 12 & 0x3F));
+			put((byte) (0x80 | codePoint >> 6 & 0x3F));
+			put((byte) (0x80 | codePoint & 0x3F));
+		} else if (Character.isSurrogate(c)) {
+			// An unpaired surrogate can't be encoded:
+			put((byte) '?');
+		} else {
+			put((byte) (0xE0 | c >> 12));
+			put((byte) (0x80 | c >> 6 & 0x3F));
+			put((byte) (0x80 | c & 0x3F));
+		}
+		return i;
+	}
+
+	private static byte[] ascii(String value) {
+		return value.getBytes(StandardCharsets.US_ASCII);
+	}
+}
@@ -0,0 +1,211 @@
+package com.amex.personServer.bulk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.amex.personServer.changes.PersonChangeLog;
+import com.amex.personServer.dto.PersonExportResultDto;
+import com.amex.personServer.repository.PersonRepository;
+
+/**
+ * Exports the Person table to a CSV or NDJSON file, optionally gzipped.
+ *
+ * The id space is split into ranges (person.export.parallelism at most, and no more than there
+ * are processors) that are exported at once, each by its own thread reading its range in id
+ * order through a forward-only cursor of plain column values and encoding the rows into a
+ * direct buffer that is written to a FileChannel.  The first range writes the file itself and
+ * the others write part files that are then appended to it in order, so the file lists the
+ * people in id order.  Gzipped parts are separate gzip members, which gzip readers read as one
+ * stream.  Heap use does not grow with the number of people.
+ *
+ * Each range is read in a transaction of its own, so people changed during an export may be
+ * exported as they were either before or after the change.  Every change up to the result's
+ * lastSeq is reflected in the file.
+ */
+@Component
+public class PersonExporter {
+
+	private static final Logger logger = LoggerFactory.getLogger(PersonExporter.class);
+
+	// Ranges of ids smaller than this aren't worth a thread of their own:
+	private static final long MIN_EXPORT_RANGE = 100000;
+
+	private static final int WRITE_BUFFER_SIZE = 1 << 22;
+
+	public enum Format {
+		CSV(".csv"), NDJSON(".ndjson");
+
+		private final String extension;
+
+		Format(String extension) {
+			this.extension = extension;
+		}
+
+		public String getExtension() {
+			return extension;
+		}
+	}
+
+	@Autowired
+	PersonRepository personRepository;
+
+	@Autowired
+	PersonChangeLog personChangeLog;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	// Threads exporting ranges of ids; 0 for one per processor:
+	@Value("${person.export.parallelism:0}")
+	int parallelism;
+
+	// Where exports requested without a file name are written:
+	@Value("${person.export.directory:${java.io.tmpdir}}")
+	String directory;
+
+	/**
+	 * Writes every person to a new file in the person.export.directory.
+	 */
+	public PersonExportResultDto export(Format format, boolean gzip) throws IOException {
+		Path exportDirectory = Files.createDirectories(Paths.get(directory));
+		return export(Files.createTempFile(exportDirectory, "people-", format.getExtension() + (gzip ? ".gz" : "")),
+			format, gzip);
+	}
+
+	/**
+	 * Writes every person to the file, replacing anything already there.
+	 */
+	public PersonExportResultDto export(Path file, Format format, boolean gzip) throws IOException {
+		long startTime = System.nanoTime();
+		long lastSeq = personChangeLog.getLastSeq();
+
+		Long minId = personRepository.findMinId();
+		Long maxId = personRepository.findMaxId();
+		if (null==minId) {
+			minId = maxId = 0L;
+		}
+		int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+		long rangeCount = Math.max(1, Math.min(Math.min(threads, Runtime.getRuntime().availableProcessors()),
+			(maxId - minId + 1) / MIN_EXPORT_RANGE));
+		long rangeSize = (maxId - minId) / rangeCount + 1;
+
+		List<Path> parts = new ArrayList<>();
+		List<Future<Long>> futures = new ArrayList<>();
+		long rows = 0;
+		ExecutorService executor = Executors.newFixedThreadPool((int) rangeCount, new CustomizableThreadFactory("person-export-"));
+		try {
+			for (long fromId = minId; fromId <= maxId; fromId += rangeSize) {
+				long from = fromId;
+				long to = Math.min(maxId, fromId + rangeSize - 1);
+				boolean first = fromId==minId;
+				Path part = first ? file : Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName() + ".", ".part");
+				if (!first) {
+					parts.add(part);
+				}
+				futures.add(executor.submit(() -> exportRange(from, to, part, format, gzip, first)));
+			}
+			for (Future<Long> future : futures) {
+				rows += future.get();
+			}
+			appendParts(file, parts);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Export interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			}
+			throw new IllegalStateException("Failed to export the Person table", e.getCause());
+		} finally {
+			executor.shutdownNow();
+			for (Path part : parts) {
+				Files.deleteIfExists(part);
+			}
+		}
+
+		long elapsedNanos = Math.max(1, System.nanoTime() - startTime);
+		PersonExportResultDto result = new PersonExportResultDto(file.toString(), rows, Files.size(file),
+			TimeUnit.NANOSECONDS.toMillis(elapsedNanos), rows * TimeUnit.SECONDS.toNanos(1) / elapsedNanos, lastSeq);
+		logger.info("Export: {}", result);
+		return result;
+	}
+
+	// Runs on an export thread: writes the people with ids in the range to the file and returns how many.
+	private long exportRange(long fromId, long toId, Path file, Format format, boolean gzip, boolean withHeader)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+		try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+			WritableByteChannel channel = gzip
+				? Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(fileChannel), 1 << 16))
+				: fileChannel) {
+			PersonExportWriter writer = new PersonExportWriter(channel, buffer, format);
+			if (withHeader) {
+				writer.writeHeader();
+			}
+			TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+			transactionTemplate.setReadOnly(true);
+			long rows = transactionTemplate.execute(status -> {
+				long count = 0;
+				try (Stream<Object[]> people = personRepository.streamDtoColumns(fromId, toId)) {
+					for (Object[] person : (Iterable<Object[]>) people::iterator) {
+						writer.writeRow((Long) person[0], (String) person[1], (Integer) person[2],
+							(LocalDate) person[3], (String) person[4]);
+						count++;
+					}
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return count;
+			});
+			writer.flush();
+			return rows;
+		}
+	}
+
+	private static void appendParts(Path file, List<Path> parts) throws IOException {
+		if (parts.isEmpty()) {
+			return;
+		}
+		try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+			for (Path part : parts) {
+				try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+					long size = in.size();
+					for (long position = 0; position < size; ) {
+						position += in.transferTo(position, size - position, out);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package com.amex.personServer.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.amex.personServer.dto.PersonDto;
+
+/**
+ * Bounded, in-process read-through cache of ready-to-serve PersonDto's keyed by person id.
+ * 
+ * The cache is split into segments, each an access-ordered LinkedHashMap with its own lock, so
+ * that lookups of different ids rarely contend.  Each segment evicts its least recently used
+ * entry once it holds more than its share of the configured maximum size.
+ * 
+ * Writers must call invalidate after their change is committed.  To keep a reader that loaded
+ * the old row just before the commit from putting it back afterwards, each segment counts its
+ * invalidations, and a loaded value is only cached if no invalidation happened in its segment
+ * while it was being loaded.
+ * 
+ * Concurrent misses for the same id share one load through the personLoads SingleFlight, so that
+ * a popular person fetched by many clients at once is read from the DB once, not once per client.
+ * Invalidation also forgets any load in progress, so readers arriving after a commit load afresh.
+ */
+@Component
+public class PersonDtoCache {
+	
+	private static final int SEGMENT_COUNT = 16;
+	
+	private final Segment[] segments;
+	private final int maxSize;
+	
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+	
+	@Autowired
+	SingleFlight<Long, PersonDto> personLoads;
+	
+	/**
+	 * @param maxSize most entries the cache will hold; 0 disables caching.
+	 */
+	public PersonDtoCache(@Value("${person.cache.max-size:10000}") int maxSize) {
+		if (maxSize < 0) {
+			throw new IllegalArgumentException("person.cache.max-size is negative: " + maxSize);
+		}
+		this.maxSize = maxSize;
+		segments = new Segment[SEGMENT_COUNT];
+		int segmentMaxSize = (maxSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT;
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			segments[i] = new Segment(segmentMaxSize);
+		}
+	}
+	
+	/**
+	 * Returns the cached dto for the id, or else calls the loader and caches what it returns.
+	 * Concurrent callers missing the same id share a single call of the loader.
+	 * 
+	 * @param loader reads the person from the DB; returns null if there is no such person, in
+	 *  which case nothing is cached.
+	 * @return the dto, or null if the person does not exist.  The dto is shared and must not be modified.
+	 */
+	public PersonDto getOrLoad(Long id, Function<Long, PersonDto> loader) {
+		if (0==maxSize) {
+			return personLoads.execute(id, loader);
+		}
+		
+		Segment segment = segmentFor(id);
+		long invalidationCount;
+		synchronized (segment) {
+			PersonDto personDto = segment.get(id);
+			if (null!=personDto) {
+				hitCount.increment();
+				return personDto;
+			}
+			invalidationCount = segment.invalidationCount;
+		}
+		missCount.increment();
+		
+		// Load outside the lock so a slow query doesn't hold up other ids in the segment:
+		PersonDto personDto = personLoads.execute(id, loader);
+		if (null!=personDto) {
+			synchronized (segment) {
+				if (invalidationCount==segment.invalidationCount) {
+					segment.put(id, personDto);
+				}
+			}
+		}
+		return personDto;
+	}
+	
+	/**
+	 * Removes the id's entry, if any.  Must be called after any change to the person is committed.
+	 */
+	public void invalidate(Long id) {
+		Segment segment = segmentFor(id);
+		synchronized (segment) {
+			// Forget under the lock, so that a reader that sees the new invalidationCount cannot
+			// then share a load that started before the commit:
+			personLoads.forget(id);
+			segment.invalidationCount++;
+			segment.remove(id);
+		}
+	}
+	
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+	
+	public long getMissCount() {
+		return missCount.sum();
+	}
+	
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+	
+	public int getMaxSize() {
+		return maxSize;
+	}
+	
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+	
+	private Segment segmentFor(Long id) {
+		// Spread the bits so that sequential ids are spread evenly over the segments:
+		long h = id * 0x9E3779B97F4A7C15L;
+		return segments[(int) (h >>> 60) & (SEGMENT_COUNT - 1)];
+	}
+	
+	// All access is synchronized on the segment itself.
+	private class Segment extends LinkedHashMap<Long, PersonDto> {
+		private static final long serialVersionUID = 1L;
+		
+		private final int maxSize;
+		private long invalidationCount;
+		
+		Segment(int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, PersonDto> eldest) {
+			if (size() > maxSize) {
+				evictionCount.increment();
+				return true;
+			}
+			return false;
+		}
+	}
+
+}
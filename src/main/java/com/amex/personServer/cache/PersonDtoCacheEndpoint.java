@@ -0,0 +1,32 @@
+package com.amex.personServer.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint (actuator/personcache) reporting the PersonDtoCache's counters.
+ */
+@Component
+@Endpoint(id = "personcache")
+public class PersonDtoCacheEndpoint {
+	
+	@Autowired
+	PersonDtoCache personDtoCache;
+	
+	@ReadOperation
+	public Map<String, Object> statistics() {
+		Map<String, Object> statistics = new LinkedHashMap<>();
+		statistics.put("maxSize", personDtoCache.getMaxSize());
+		statistics.put("size", personDtoCache.size());
+		statistics.put("hits", personDtoCache.getHitCount());
+		statistics.put("misses", personDtoCache.getMissCount());
+		statistics.put("evictions", personDtoCache.getEvictionCount());
+		return statistics;
+	}
+
+}
@@ -0,0 +1,44 @@
+package com.amex.personServer.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Publishes the PersonDtoCache's counters as metrics, named after Micrometer's cache conventions.
+ * The meters read the cache's own counters when scraped, so this adds nothing to the lookup path.
+ */
+@Component
+public class PersonDtoCacheMetrics implements MeterBinder {
+	
+	private static final String CACHE_TAG = "cache";
+	private static final String CACHE_NAME = "personDto";
+	
+	@Autowired
+	PersonDtoCache personDtoCache;
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("cache.gets", personDtoCache, PersonDtoCache::getHitCount)
+			.tags(CACHE_TAG, CACHE_NAME, "result", "hit")
+			.description("Lookups that were served from the cache")
+			.register(registry);
+		FunctionCounter.builder("cache.gets", personDtoCache, PersonDtoCache::getMissCount)
+			.tags(CACHE_TAG, CACHE_NAME, "result", "miss")
+			.description("Lookups that had to be loaded from the DB")
+			.register(registry);
+		FunctionCounter.builder("cache.evictions", personDtoCache, PersonDtoCache::getEvictionCount)
+			.tags(CACHE_TAG, CACHE_NAME)
+			.description("Entries evicted to keep the cache within its maximum size")
+			.register(registry);
+		Gauge.builder("cache.size", personDtoCache, PersonDtoCache::size)
+			.tags(CACHE_TAG, CACHE_NAME)
+			.description("Number of entries in the cache")
+			.register(registry);
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.amex.personServer.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Collapses concurrent calls for the same key into one: the first caller for a key makes the
+ * call, and callers arriving while it is in progress wait for it and share its result, or its
+ * exception, rather than making the same call again.  The calls in progress are kept in a
+ * ConcurrentHashMap, so calls for different keys take no lock in common.
+ *
+ * A result is only shared with callers that arrive while its call is in progress; once it has
+ * returned, the next caller makes a new call.  A writer that changes what a key's call would
+ * return should forget the key once the change is committed, so that callers arriving afterwards
+ * do not share a call that may have read the data as it was before.  Results are shared as they
+ * are, so they must not be modified.
+ *
+ * As a MeterBinder, publishes the "person.singleflight.calls" counter tagged with the name given
+ * and with result "made" for the calls made and "collapsed" for those that shared another's.
+ */
+public class SingleFlight<K, V> implements MeterBinder {
+
+	private final String name;
+
+	private final ConcurrentMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+
+	private final LongAdder madeCount = new LongAdder();
+	private final LongAdder collapsedCount = new LongAdder();
+
+	public SingleFlight(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns what the call returns for the key, making the call unless one for the key is already
+	 * in progress, in which case its outcome is shared.
+	 */
+	public V execute(K key, Function<? super K, ? extends V> call) {
+		CompletableFuture<V> own = new CompletableFuture<>();
+		CompletableFuture<V> inProgress = calls.putIfAbsent(key, own);
+		if (null!=inProgress) {
+			collapsedCount.increment();
+			return await(inProgress);
+		}
+		madeCount.increment();
+		try {
+			V value = call.apply(key);
+			own.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			own.completeExceptionally(e);
+			throw e;
+		} finally {
+			calls.remove(key, own);
+		}
+	}
+
+	/**
+	 * Makes callers for the key that arrive from now on make a call of their own, rather than
+	 * share any that is in progress.
+	 */
+	public void forget(K key) {
+		calls.remove(key);
+	}
+
+	private static <V> V await(CompletableFuture<V> inProgress) {
+		try {
+			return inProgress.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted waiting for a call in progress");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	public long getMadeCount() {
+		return madeCount.sum();
+	}
+
+	public long getCollapsedCount() {
+		return collapsedCount.sum();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("person.singleflight.calls", this, SingleFlight::getMadeCount)
+			.tags("name", name, "result", "made")
+			.description("Calls made, with any concurrent identical calls sharing their result")
+			.register(registry);
+		FunctionCounter.builder("person.singleflight.calls", this, SingleFlight::getCollapsedCount)
+			.tags("name", name, "result", "collapsed")
+			.description("Calls that shared the result of an identical call in progress")
+			.register(registry);
+	}
+
+}
@@ -0,0 +1,27 @@
+package com.amex.personServer.cache;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.amex.personServer.dto.PersonDto;
+
+/**
+ * The SingleFlights that collapse concurrent identical reads, each published as metrics under its
+ * name.
+ */
+@Configuration
+public class SingleFlightConfiguration {
+	
+	// Loads of people by id for the PersonDtoCache, which also forgets them on invalidation:
+	@Bean
+	public SingleFlight<Long, PersonDto> personLoads() {
+		return new SingleFlight<>("personLoads");
+	}
+	
+	// The PersonService's checks for an existing person with a (normalized) email address:
+	@Bean
+	public SingleFlight<String, Boolean> emailAddressChecks() {
+		return new SingleFlight<>("emailAddressChecks");
+	}
+	
+}
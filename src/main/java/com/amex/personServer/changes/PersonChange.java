@@ -0,0 +1,57 @@
+package com.amex.personServer.changes;
+
+import com.amex.personServer.domain.Person;
+
+/**
+ * One committed change to the Person table, as recorded in the PersonChangeLog.
+ */
+public final class PersonChange {
+	
+	public enum Type { CREATED, UPDATED, DELETED }
+	
+	// States of a change while it is in the log; only COMMITTED changes are ever read.
+	static final int PENDING = 0;
+	static final int COMMITTED = 1;
+	static final int DISCARDED = 2;
+	
+	private final long seq;
+	private final Type type;
+	private final Long personId;
+	private final Person person;
+	
+	// Guarded by the PersonChangeLog's lock:
+	int state = PENDING;
+	
+	PersonChange(long seq, Type type, Long personId, Person person) {
+		this.seq = seq;
+		this.type = type;
+		this.personId = personId;
+		this.person = person;
+	}
+
+	public long getSeq() {
+		return seq;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public Long getPersonId() {
+		return personId;
+	}
+
+	/**
+	 * @return the person's values as written by the change; null for a DELETED change.  The
+	 *  Person is shared by every reader and must not be modified.
+	 */
+	public Person getPerson() {
+		return person;
+	}
+
+	@Override
+	public String toString() {
+		return "PersonChange [seq=" + seq + ", type=" + type + ", personId=" + personId + "]";
+	}
+
+}
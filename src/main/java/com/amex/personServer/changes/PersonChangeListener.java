@@ -0,0 +1,16 @@
+package com.amex.personServer.changes;
+
+/**
+ * Receives the changes logged by the PersonChangeLog, in sequence number order, as they become
+ * readable.  Register with PersonChangeLog.addListener.
+ */
+public interface PersonChangeListener {
+	
+	/**
+	 * Called once for each committed change, by the thread that committed it or by another
+	 * committing thread, with no other call to the listener running.  The call holds up the
+	 * committing thread, so it must be quick.  Exceptions are logged and otherwise ignored.
+	 */
+	void onChange(PersonChange change);
+
+}
@@ -0,0 +1,311 @@
+package com.amex.personServer.changes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.amex.personServer.domain.Person;
+
+/**
+ * In-memory log of the changes committed to the Person table, numbered with increasing
+ * sequence numbers, from which replicas can read the changes made since the last one they saw.
+ * The most recent person.changes.retention changes are kept in a ring buffer, which grows if a
+ * single transaction makes more changes than that; a reader that falls further behind must
+ * start again from a snapshot.
+ * 
+ * Writers record each change from within their transaction, after its SQL has been executed.
+ * The change is given its sequence number just before the transaction commits, while the
+ * transaction still holds the row's lock, so two changes to the same person are numbered in
+ * the order they were committed.  It only becomes readable once the transaction has committed,
+ * and readers never see past a change that is still waiting for its commit: every change up to
+ * getLastSeq() is committed, and nothing after it is.  Changes whose commit fails are dropped.
+ * 
+ * Sequence numbers start from the time the server started, in microseconds, so that the
+ * sequence numbers of a restarted server are above any that the previous one issued and a
+ * replica still holding one of those is told to start again rather than missing changes.
+ * 
+ * PersonChangeListeners are given each change as it becomes readable, in order; a change is
+ * delivered before the transaction that made it returns to its caller, unless an earlier
+ * change is still committing, in which case it is delivered when that one completes.
+ * 
+ * The log only holds changes made through this server.
+ */
+@Component
+public class PersonChangeLog {
+	
+	private static final Logger logger = LoggerFactory.getLogger(PersonChangeLog.class);
+	
+	// Reads of more changes than this are cut short:
+	public static final int MAX_READ_SIZE = 1000;
+	
+	/**
+	 * Changes read from the log.
+	 */
+	public static final class Batch {
+		private final List<PersonChange> changes;
+		private final long lastSeq;
+		
+		Batch(List<PersonChange> changes, long lastSeq) {
+			this.changes = changes;
+			this.lastSeq = lastSeq;
+		}
+		
+		public List<PersonChange> getChanges() {
+			return changes;
+		}
+		
+		/**
+		 * @return the sequence number to read the following changes after.  It may be past
+		 *  the last change in the batch, as changes whose commit failed take up sequence numbers too.
+		 */
+		public long getLastSeq() {
+			return lastSeq;
+		}
+	}
+	
+	// Guarded by this:
+	private PersonChange[] ring;
+	
+	// Sequence number of the first change, less one:
+	private final long firstSeq;
+	
+	// Guarded by this:
+	private long lastReservedSeq;
+	private long lastSeq;
+	private final List<Runnable> waiters = new ArrayList<>();
+	
+	private final List<PersonChangeListener> listeners = new CopyOnWriteArrayList<>();
+	
+	// Written while holding the listeners list; changes up to this one have been delivered:
+	private volatile long lastDeliveredSeq;
+	
+	/**
+	 * @param retention number of most recent changes kept.
+	 */
+	public PersonChangeLog(@Value("${person.changes.retention:100000}") int retention) {
+		if (retention < 1) {
+			throw new IllegalArgumentException("person.changes.retention must be positive: " + retention);
+		}
+		ring = new PersonChange[retention];
+		firstSeq = System.currentTimeMillis() * 1000;
+		lastReservedSeq = firstSeq;
+		lastSeq = firstSeq;
+		lastDeliveredSeq = firstSeq;
+	}
+	
+	/**
+	 * Registers a listener for the changes logged from now on.
+	 * 
+	 * @return the sequence number of the last change the listener will not be given.
+	 */
+	public long addListener(PersonChangeListener listener) {
+		synchronized (listeners) {
+			listeners.add(listener);
+			return lastDeliveredSeq;
+		}
+	}
+	
+	/**
+	 * Records a change made by the current transaction.  The change is logged when, and if, the
+	 * transaction commits.  Outside a transaction it is logged at once.
+	 * 
+	 * @param person the person's values after the change; null for DELETED.  The Person must not
+	 *  be modified afterwards.
+	 */
+	public void record(PersonChange.Type type, Long personId, Person person) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			PersonChange change = reserve(Collections.singletonList(new Pending(type, personId, person))).get(0);
+			complete(Collections.singletonList(change), true);
+			return;
+		}
+		
+		TransactionChanges transactionChanges = (TransactionChanges) TransactionSynchronizationManager.getResource(this);
+		if (null==transactionChanges) {
+			transactionChanges = new TransactionChanges();
+			TransactionSynchronizationManager.bindResource(this, transactionChanges);
+			TransactionSynchronizationManager.registerSynchronization(transactionChanges);
+		}
+		transactionChanges.pending.add(new Pending(type, personId, person));
+	}
+	
+	/**
+	 * @return the sequence number of the latest change that can be read.  A snapshot of the
+	 *  Person table taken after this call reflects every change up to it, and replicas loading
+	 *  that snapshot should read the changes after it.
+	 */
+	public synchronized long getLastSeq() {
+		return lastSeq;
+	}
+	
+	/**
+	 * Reads the changes after a sequence number, oldest first.
+	 * 
+	 * @param since sequence number of the last change already seen.
+	 * @param limit most changes to return; at most MAX_READ_SIZE.
+	 * @return the changes, which may be none; or null if the changes after since are no longer
+	 *  all retained, or since is not a sequence number issued by this server.
+	 */
+	public synchronized Batch read(long since, int limit) {
+		if (!isRetained(since)) {
+			return null;
+		}
+		List<PersonChange> changes = new ArrayList<>(Math.min(Math.min(limit, MAX_READ_SIZE), (int) (lastSeq - since)));
+		long seq = since;
+		while (seq < lastSeq && changes.size() < Math.min(limit, MAX_READ_SIZE)) {
+			PersonChange change = ring[slot(++seq)];
+			if (PersonChange.COMMITTED==change.state) {
+				changes.add(change);
+			}
+		}
+		return new Batch(changes, seq);
+	}
+	
+	/**
+	 * Runs the callback once there are changes after the sequence number, or straight away if
+	 * there already are, or if they are not retained.  The callback is run by the thread that
+	 * logs the changes, so it must be quick; it is run once at most.
+	 */
+	public void awaitChangesAfter(long since, Runnable callback) {
+		synchronized (this) {
+			if (since >= lastSeq && isRetained(since)) {
+				waiters.add(callback);
+				return;
+			}
+		}
+		callback.run();
+	}
+	
+	/**
+	 * Stops waiting to run a callback passed to awaitChangesAfter, if it has not been run.
+	 */
+	public synchronized void cancelAwait(Runnable callback) {
+		waiters.remove(callback);
+	}
+	
+	public synchronized int getRetention() {
+		return ring.length;
+	}
+	
+	private boolean isRetained(long since) {
+		return since >= Math.max(firstSeq, lastReservedSeq - ring.length) && since <= lastSeq;
+	}
+	
+	private int slot(long seq) {
+		return (int) (seq % ring.length);
+	}
+	
+	// Numbers the changes and puts them in the log, not yet readable.
+	private synchronized List<PersonChange> reserve(List<Pending> pending) {
+		// Changes can't be dropped before they are delivered, so grow the ring if need be:
+		long undelivered = lastReservedSeq - lastDeliveredSeq + pending.size();
+		if (undelivered > ring.length) {
+			grow(undelivered);
+		}
+		
+		List<PersonChange> changes = new ArrayList<>(pending.size());
+		for (Pending p : pending) {
+			PersonChange change = new PersonChange(++lastReservedSeq, p.type, p.personId, p.person);
+			ring[slot(change.getSeq())] = change;
+			changes.add(change);
+		}
+		return changes;
+	}
+	
+	private void grow(long minLength) {
+		if (minLength > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("Too many changes waiting to be delivered: " + minLength);
+		}
+		PersonChange[] newRing = new PersonChange[(int) Math.max(minLength, Math.min(2L * ring.length, Integer.MAX_VALUE - 8))];
+		for (long seq = Math.max(firstSeq + 1, lastReservedSeq - ring.length + 1); seq <= lastReservedSeq; seq++) {
+			newRing[(int) (seq % newRing.length)] = ring[slot(seq)];
+		}
+		ring = newRing;
+	}
+	
+	// Marks the changes as committed or not, and makes them readable once all the changes
+	// before them are too.
+	private void complete(List<PersonChange> changes, boolean committed) {
+		List<Runnable> readyWaiters = Collections.emptyList();
+		synchronized (this) {
+			for (PersonChange change : changes) {
+				change.state = committed ? PersonChange.COMMITTED : PersonChange.DISCARDED;
+			}
+			long previousLastSeq = lastSeq;
+			while (lastSeq < lastReservedSeq && PersonChange.PENDING!=ring[slot(lastSeq + 1)].state) {
+				lastSeq++;
+			}
+			if (lastSeq > previousLastSeq && !waiters.isEmpty()) {
+				readyWaiters = new ArrayList<>(waiters);
+				waiters.clear();
+			}
+		}
+		for (Runnable waiter : readyWaiters) {
+			waiter.run();
+		}
+		deliverToListeners();
+	}
+	
+	// Delivers the readable changes that have not been delivered yet.  Whichever committing
+	// thread gets here first delivers them all, while the others wait, so that each listener
+	// gets every change once and in order.
+	private void deliverToListeners() {
+		synchronized (listeners) {
+			if (listeners.isEmpty()) {
+				lastDeliveredSeq = getLastSeq();
+				return;
+			}
+			Batch batch;
+			while (lastDeliveredSeq < (batch = read(lastDeliveredSeq, MAX_READ_SIZE)).getLastSeq()) {
+				for (PersonChange change : batch.getChanges()) {
+					for (PersonChangeListener listener : listeners) {
+						try {
+							listener.onChange(change);
+						} catch (RuntimeException e) {
+							logger.error("PersonChangeListener failed on " + change, e);
+						}
+					}
+				}
+				lastDeliveredSeq = batch.getLastSeq();
+			}
+		}
+	}
+	
+	private static final class Pending {
+		final PersonChange.Type type;
+		final Long personId;
+		final Person person;
+		
+		Pending(PersonChange.Type type, Long personId, Person person) {
+			this.type = type;
+			this.personId = personId;
+			this.person = person;
+		}
+	}
+	
+	// The changes recorded by one transaction, numbered just before it commits.
+	private final class TransactionChanges extends TransactionSynchronizationAdapter {
+		final List<Pending> pending = new ArrayList<>();
+		List<PersonChange> reserved = Collections.emptyList();
+		
+		@Override
+		public void beforeCommit(boolean readOnly) {
+			reserved = reserve(pending);
+		}
+		
+		@Override
+		public void afterCompletion(int status) {
+			TransactionSynchronizationManager.unbindResourceIfPossible(PersonChangeLog.this);
+			complete(reserved, TransactionSynchronization.STATUS_COMMITTED==status);
+		}
+	}
+
+}
@@ -2,11 +2,19 @@ package com.amex.personServer.controller;
 
 import java.util.Date;
 
+import javax.servlet.http.HttpServletRequest;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.amex.personServer.admission.AdmissionRejectedException;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * 
@@ -19,7 +27,13 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
  * object including the message and a timestamp, with an HTTP 422 response code.
  * 
  * *Only* IllegalArgumentExceptions thrown by the controller methods
- * will be intercepted and handled this way.
+ * will be intercepted and handled this way.  Requests that could not be queued
+ * for an executor (a TaskRejectedException) or were turned away by admission
+ * control (an AdmissionRejectedException) are answered the same way with a
+ * 503, as they may succeed if retried; the latter with a Retry-After header.
+ * 
+ * Each 422 response is counted in the "person.validation.rejections" metric, tagged
+ * with the request's URI pattern; the 503s are not.
  * 
  * @author David Kalfus
  *
@@ -42,12 +56,37 @@ public abstract class AmexBaseController {
 			return message;
 		}
 	}
+	
+	public static final String VALIDATION_REJECTIONS_METRIC = "person.validation.rejections";
+	
+	@Autowired(required = false)
+	MeterRegistry meterRegistry;
 		
     @ExceptionHandler(IllegalArgumentException.class)
-    public final ResponseEntity<ExceptionResponse> errorHandler(Exception e) {
+    public final ResponseEntity<ExceptionResponse> errorHandler(Exception e, HttpServletRequest request) {
+	   if (null!=meterRegistry) {
+		   Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		   meterRegistry.counter(VALIDATION_REJECTIONS_METRIC, "uri", null==uri ? "UNKNOWN" : uri.toString())
+		   	.increment();
+	   }
 	   ExceptionResponse exceptionResponse= new ExceptionResponse(e.getMessage());
        return new ResponseEntity<> (exceptionResponse, new HttpHeaders(), 
            HttpStatus.UNPROCESSABLE_ENTITY); 
     }
+    
+    // A request turned away by a full executor (see AsyncHandlerConfiguration) may be retried:
+    @ExceptionHandler(TaskRejectedException.class)
+    public final ResponseEntity<ExceptionResponse> rejectedHandler(TaskRejectedException e) {
+       return new ResponseEntity<> (new ExceptionResponse("Too many requests in progress; try again later"), 
+           new HttpHeaders(), HttpStatus.SERVICE_UNAVAILABLE); 
+    }
+    
+    // See AdmissionControlInterceptor:
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public final ResponseEntity<ExceptionResponse> admissionRejectedHandler(AdmissionRejectedException e) {
+       HttpHeaders headers = new HttpHeaders();
+       headers.set(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()));
+       return new ResponseEntity<> (new ExceptionResponse(e.getMessage()), headers, HttpStatus.SERVICE_UNAVAILABLE); 
+    }
 }
 
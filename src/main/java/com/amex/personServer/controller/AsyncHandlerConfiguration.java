@@ -0,0 +1,247 @@
+package com.amex.personServer.controller;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.coyote.AbstractProtocol;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.handler.WebRequestHandlerInterceptorAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ExceptionHandlerExceptionResolver;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+
+/**
+ * Runs the PersonController's handlers off the web server's threads, which are freed as soon as
+ * a request's arguments are read rather than held while the handler waits on the DB.  Enabled by
+ * setting person.async-handlers.enabled=true.
+ *
+ * Each handler is run as a Spring MVC asynchronous request, with everything that applies to one:
+ * argument resolution, exception handlers and response writing.  person.async-handlers.executor
+ * chooses what runs them:
+ *
+ *   pool     a pool of person.async-handlers.pool-size threads, sized with the DB connection pool
+ *            since a handler can do little without a connection, behind a queue of
+ *            person.async-handlers.queue-capacity requests.  Requests beyond those get a 503.
+ *   virtual  a virtual thread per request, which needs Java 21 or later (run with
+ *            --add-opens java.base/java.lang=ALL-UNNAMED for Spring 5.0's CGLIB).  Waiting
+ *            requests then cost a virtual thread's few hundred bytes of stack rather than a platform
+ *            thread's, and are bounded only by the connections the web server accepts.
+ *
+ * The handlers run without an EntityManager held open for the request, which would hold its DB
+ * connection until the result had been dispatched back to, and written on, a web server thread;
+ * the PersonService's transactions each use their own, returning the connection on commit.
+ *
+ * Each request in progress keeps one of Tomcat's request processors, with its buffers some 90KB
+ * of heap, so the heap must allow for as many as are expected at once.  Tomcat otherwise caches
+ * only 200 processors, creating and registering with JMX a new one for each request beyond those;
+ * here it caches as many as it has been asked for.
+ */
+@Configuration
+@ConditionalOnProperty(name = "person.async-handlers.enabled", havingValue = "true")
+public class AsyncHandlerConfiguration {
+
+	@Value("${person.async-handlers.executor:pool}")
+	String executor;
+
+	@Value("${person.async-handlers.pool-size:10}")
+	int poolSize;
+
+	@Value("${person.async-handlers.queue-capacity:10000}")
+	int queueCapacity;
+
+	// 0 for none, as for requests handled on the web server's threads:
+	@Value("${person.async-handlers.timeout-ms:0}")
+	long timeoutMillis;
+
+	@Bean
+	public AsyncTaskExecutor personHandlerExecutor() {
+		switch (executor) {
+		case "pool":
+			ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+			pool.setCorePoolSize(poolSize);
+			pool.setMaxPoolSize(poolSize);
+			pool.setQueueCapacity(queueCapacity);
+			pool.setThreadNamePrefix("person-handler-");
+			return pool;
+		case "virtual":
+			return new ConcurrentTaskExecutor(newVirtualThreadPerTaskExecutor());
+		default:
+			throw new IllegalArgumentException("person.async-handlers.executor must be pool or virtual: " + executor);
+		}
+	}
+
+	@Bean
+	public WebServerFactoryCustomizer<TomcatServletWebServerFactory> asyncHandlerProcessorCache() {
+		return factory -> factory.addConnectorCustomizers(connector -> {
+			if (connector.getProtocolHandler() instanceof AbstractProtocol) {
+				// -1 for no limit, beyond that on connections:
+				((AbstractProtocol<?>) connector.getProtocolHandler()).setProcessorCache(-1);
+			}
+		});
+	}
+
+	// Found in place of Spring Boot's own, which it then does not register for every handler:
+	@Bean
+	public OpenEntityManagerInViewInterceptor openEntityManagerInViewInterceptor() {
+		return new OpenEntityManagerInViewInterceptor();
+	}
+
+	@Bean
+	public WebMvcConfigurer openEntityManagerInViewConfigurer(OpenEntityManagerInViewInterceptor openEntityManagerInViewInterceptor) {
+		return new WebMvcConfigurer() {
+			@Override
+			public void addInterceptors(InterceptorRegistry registry) {
+				registry.addInterceptor(new NotForPersonController(
+					new WebRequestHandlerInterceptorAdapter(openEntityManagerInViewInterceptor)));
+			}
+		};
+	}
+
+	@Bean
+	public WebMvcRegistrations asyncHandlerRegistrations(AsyncTaskExecutor personHandlerExecutor) {
+		return new WebMvcRegistrations() {
+			@Override
+			public RequestMappingHandlerMapping getRequestMappingHandlerMapping() {
+				return null;
+			}
+
+			@Override
+			public RequestMappingHandlerAdapter getRequestMappingHandlerAdapter() {
+				return new AsyncHandlerAdapter(personHandlerExecutor, timeoutMillis);
+			}
+
+			@Override
+			public ExceptionHandlerExceptionResolver getExceptionHandlerExceptionResolver() {
+				return null;
+			}
+		};
+	}
+
+	// Compiled for Java 8, so looked up rather than called:
+	private static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException("person.async-handlers.executor=virtual needs Java 21 or later; this is "
+				+ System.getProperty("java.version"));
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Could not create a virtual thread executor", e);
+		}
+	}
+
+	private static boolean isPersonController(Object handler) {
+		return handler instanceof HandlerMethod
+			&& PersonController.class.isAssignableFrom(((HandlerMethod) handler).getBeanType());
+	}
+
+	/**
+	 * Applies an interceptor to every handler but the PersonController's.
+	 */
+	static class NotForPersonController implements AsyncHandlerInterceptor {
+
+		private final AsyncHandlerInterceptor interceptor;
+
+		NotForPersonController(AsyncHandlerInterceptor interceptor) {
+			this.interceptor = interceptor;
+		}
+
+		@Override
+		public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+			return isPersonController(handler) || interceptor.preHandle(request, response, handler);
+		}
+
+		@Override
+		public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+				ModelAndView modelAndView) throws Exception {
+			if (!isPersonController(handler)) {
+				interceptor.postHandle(request, response, handler, modelAndView);
+			}
+		}
+
+		@Override
+		public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+				Exception ex) throws Exception {
+			if (!isPersonController(handler)) {
+				interceptor.afterCompletion(request, response, handler, ex);
+			}
+		}
+
+		@Override
+		public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+				Object handler) throws Exception {
+			if (!isPersonController(handler)) {
+				interceptor.afterConcurrentHandlingStarted(request, response, handler);
+			}
+		}
+	}
+
+	/**
+	 * Invokes PersonController handlers on the executor, completing a DeferredResult with what
+	 * they return or throw; other controllers' handlers are invoked as usual.  The handler is
+	 * submitted here rather than by the WebAsyncManager, so that a TaskRejectedException is thrown
+	 * before asynchronous processing starts and is handled once, as for any handler.  (Spring
+	 * 5.0's WebAsyncManager both dispatches a rejected WebAsyncTask's exception as its result and
+	 * rethrows it, so that its error response would be written twice.)
+	 */
+	static class AsyncHandlerAdapter extends RequestMappingHandlerAdapter {
+
+		private final AsyncTaskExecutor executor;
+		private final long timeoutMillis;
+
+		AsyncHandlerAdapter(AsyncTaskExecutor executor, long timeoutMillis) {
+			this.executor = executor;
+			this.timeoutMillis = timeoutMillis;
+		}
+
+		@Override
+		protected ServletInvocableHandlerMethod createInvocableHandlerMethod(HandlerMethod handlerMethod) {
+			if (!isPersonController(handlerMethod)) {
+				return super.createInvocableHandlerMethod(handlerMethod);
+			}
+			return new ServletInvocableHandlerMethod(handlerMethod) {
+				@Override
+				protected Object doInvoke(Object... args) {
+					// Handlers may build URIs from the current request, which is bound to this thread only:
+					RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+					DeferredResult<Object> result = new DeferredResult<>(timeoutMillis);
+					executor.execute(() -> {
+						ServletRequestAttributes servletAttributes = (ServletRequestAttributes) attributes;
+						RequestContextHolder.setRequestAttributes(
+							new ServletRequestAttributes(servletAttributes.getRequest(), servletAttributes.getResponse()));
+						try {
+							result.setResult(super.doInvoke(args));
+						} catch (Throwable e) {
+							result.setErrorResult(e);
+						} finally {
+							RequestContextHolder.resetRequestAttributes();
+						}
+					});
+					return result;
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package com.amex.personServer.controller;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.amex.personServer.changes.PersonChange;
+import com.amex.personServer.changes.PersonChangeLog;
+import com.amex.personServer.dto.PersonChangeDto;
+import com.amex.personServer.dto.PersonChangesDto;
+
+/**
+ * 
+ * Serves the PersonChangeLog, so that services keeping a copy of the people can apply the
+ * changes made since they last looked instead of re-reading the whole collection.
+ * 
+ * A replica starts from a snapshot: GET /people, whose X-Change-Seq header holds the sequence
+ * number of the last change the snapshot reflects.  It then reads the changes after that
+ * sequence number, either by long polling GET /people/changes?since=<seq> or from the
+ * server-sent event stream at the same URL.  Changes already in the snapshot may be read again,
+ * so replicas should apply each change as an upsert or delete of the person.  When the changes
+ * after a replica's sequence number are no longer retained, it is answered with 410 (Gone) and
+ * must start again from a new snapshot.
+ *
+ */
+@RestController
+@RequestMapping("/people/changes")
+public class PersonChangeController extends AmexBaseController {
+	
+	@Autowired
+	PersonChangeLog personChangeLog;
+	
+	// Response header of GET /people, holding the sequence number of the last change the people reflect:
+	public static final String CHANGE_SEQ_HEADER = "X-Change-Seq";
+	
+	// Longest that a long poll waits for a change:
+	static final int MAX_WAIT_SECONDS = 60;
+	
+	// Event streams end after this long; clients reconnect with Last-Event-ID to carry on.
+	static final long EVENT_STREAM_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+	
+	// Writes changes to the event streams, so that a slow client holds up neither the thread
+	// committing a change nor the other streams:
+	private final ExecutorService eventStreamExecutor = Executors.newCachedThreadPool(eventStreamThreadFactory());
+	
+	/**
+	 * Long poll for the changes after a sequence number: answered as soon as there are any, or
+	 * with no changes once waitSeconds have passed.
+	 */
+	@GetMapping
+	public DeferredResult<ResponseEntity<?>> getChanges(@RequestParam long since,
+			@RequestParam(defaultValue = "" + PersonChangeLog.MAX_READ_SIZE) int limit,
+			@RequestParam(defaultValue = "30") int waitSeconds) {
+		if (limit < 1 || limit > PersonChangeLog.MAX_READ_SIZE) {
+			throw new IllegalArgumentException("limit must be between 1 and " + PersonChangeLog.MAX_READ_SIZE + ": " + limit);
+		}
+		if (waitSeconds < 0 || waitSeconds > MAX_WAIT_SECONDS) {
+			throw new IllegalArgumentException("waitSeconds must be between 0 and " + MAX_WAIT_SECONDS + ": " + waitSeconds);
+		}
+		
+		DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(TimeUnit.SECONDS.toMillis(waitSeconds));
+		Runnable respond = () -> result.setResult(readChanges(since, limit));
+		result.onTimeout(respond);
+		result.onCompletion(() -> personChangeLog.cancelAwait(respond));
+		if (0==waitSeconds) {
+			respond.run();
+		} else {
+			personChangeLog.awaitChangesAfter(since, respond);
+		}
+		return result;
+	}
+	
+	/**
+	 * Server-sent event stream of the changes after a sequence number, given either as "since"
+	 * or, when an EventSource reconnects, as the Last-Event-ID header.  Each event's id is the
+	 * change's sequence number, its name is the change type and its data the person as json.
+	 * If the stream falls so far behind that the changes it has yet to send are no longer
+	 * retained, an "expired" event is sent and the stream ends.
+	 */
+	@GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public ResponseEntity<SseEmitter> streamChanges(@RequestParam(required = false) Long since,
+			@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+		Long from = null==lastEventId ? since : lastEventId;
+		if (null==from) {
+			throw new IllegalArgumentException("since is required");
+		}
+		if (null==personChangeLog.read(from, 1)) {
+			// The body of a stream response can only be the stream:
+			return ResponseEntity.status(HttpStatus.GONE).build();
+		}
+		
+		SseEmitter emitter = new SseEmitter(EVENT_STREAM_TIMEOUT_MILLIS);
+		new PersonChangeStream(emitter, personChangeLog, eventStreamExecutor, from).start();
+		return ResponseEntity.ok(emitter);
+	}
+	
+	@PreDestroy
+	public void shutdown() {
+		eventStreamExecutor.shutdownNow();
+	}
+	
+	private ResponseEntity<?> readChanges(long since, int limit) {
+		PersonChangeLog.Batch batch = personChangeLog.read(since, limit);
+		if (null==batch) {
+			return expired(since);
+		}
+		List<PersonChangeDto> changes = batch.getChanges().stream()
+			.map(change-> personChangeToPersonChangeDto(change))
+			.collect(Collectors.toList());
+		return ResponseEntity.ok(new PersonChangesDto(changes, batch.getLastSeq()));
+	}
+	
+	private static ResponseEntity<?> expired(long since) {
+		return ResponseEntity.status(HttpStatus.GONE).body(new ExceptionResponse(
+			"Changes after " + since + " are no longer retained; reload GET /people and read the changes after its "
+			+ CHANGE_SEQ_HEADER));
+	}
+	
+	static PersonChangeDto personChangeToPersonChangeDto(PersonChange change) {
+		return new PersonChangeDto(change.getSeq(), change.getType().name(), change.getPersonId(), 
+			null==change.getPerson() ? null : PersonController.personToPersonDto(change.getPerson()));
+	}
+	
+	private static CustomizableThreadFactory eventStreamThreadFactory() {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("person-changes-");
+		threadFactory.setDaemon(true);
+		return threadFactory;
+	}
+
+}
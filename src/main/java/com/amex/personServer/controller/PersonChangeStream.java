@@ -0,0 +1,85 @@
+package com.amex.personServer.controller;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.amex.personServer.changes.PersonChange;
+import com.amex.personServer.changes.PersonChangeLog;
+
+/**
+ * Sends the changes from a PersonChangeLog to one server-sent event stream.  Whenever changes
+ * are logged, the stream's executor sends all those not yet sent and then waits for more; only
+ * one such send runs at a time for a stream.
+ */
+class PersonChangeStream {
+	
+	private final SseEmitter emitter;
+	private final PersonChangeLog personChangeLog;
+	private final Executor executor;
+	private final Runnable wakeUp;
+	
+	// Only used by the one running send:
+	private long lastSeq;
+	
+	private volatile boolean closed;
+	
+	PersonChangeStream(SseEmitter emitter, PersonChangeLog personChangeLog, Executor executor, long since) {
+		this.emitter = emitter;
+		this.personChangeLog = personChangeLog;
+		this.executor = executor;
+		this.lastSeq = since;
+		this.wakeUp = () -> {
+			try {
+				this.executor.execute(this::send);
+			} catch (RejectedExecutionException e) {
+				// Shutting down
+				close();
+			}
+		};
+	}
+	
+	void start() {
+		emitter.onCompletion(this::close);
+		emitter.onTimeout(this::close);
+		personChangeLog.awaitChangesAfter(lastSeq, wakeUp);
+	}
+	
+	private void close() {
+		closed = true;
+		personChangeLog.cancelAwait(wakeUp);
+	}
+	
+	private void send() {
+		try {
+			while (!closed) {
+				PersonChangeLog.Batch batch = personChangeLog.read(lastSeq, PersonChangeLog.MAX_READ_SIZE);
+				if (null==batch) {
+					emitter.send(SseEmitter.event().name("expired")
+						.data("Changes after " + lastSeq + " are no longer retained"));
+					emitter.complete();
+					return;
+				}
+				if (batch.getLastSeq()==lastSeq) {
+					personChangeLog.awaitChangesAfter(lastSeq, wakeUp);
+					return;
+				}
+				for (PersonChange change : batch.getChanges()) {
+					emitter.send(SseEmitter.event()
+						.id(Long.toString(change.getSeq()))
+						.name(change.getType().name())
+						.data(PersonChangeController.personChangeToPersonChangeDto(change), MediaType.APPLICATION_JSON));
+				}
+				lastSeq = batch.getLastSeq();
+			}
+		} catch (IOException | IllegalStateException e) {
+			// The client has gone, or the stream has timed out:
+			emitter.completeWithError(e);
+			close();
+		}
+	}
+
+}
@@ -1,32 +1,88 @@
 package com.amex.personServer.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
 import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.rest.webmvc.ResourceNotFoundException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.amex.personServer.admission.BulkEndpoint;
+import com.amex.personServer.bulk.PersonCsvImporter;
+import com.amex.personServer.bulk.PersonExporter;
+import com.amex.personServer.cache.PersonDtoCache;
+import com.amex.personServer.changes.PersonChangeLog;
+import com.amex.personServer.domain.DateOfBirthFormat;
 import com.amex.personServer.domain.Person;
+import com.amex.personServer.domain.PersonField;
+import com.amex.personServer.dto.PersonBatchResultDto;
+import com.amex.personServer.dto.PersonDeleteResultDto;
 import com.amex.personServer.dto.PersonDto;
+import com.amex.personServer.dto.PersonExportResultDto;
+import com.amex.personServer.dto.PersonFieldsDto;
+import com.amex.personServer.dto.PersonImportResultDto;
+import com.amex.personServer.dto.PersonLookupDto;
+import com.amex.personServer.dto.PersonPageDto;
+import com.amex.personServer.dto.PersonStatsDto;
+import com.amex.personServer.json.JsonConfiguration;
+import com.amex.personServer.json.PersonJsonWriter;
+import com.amex.personServer.readmodel.PersonReadModel;
+import com.amex.personServer.readmodel.PersonRecord;
 import com.amex.personServer.repository.PersonRepository;
+import com.amex.personServer.repository.PersonSpecifications;
+import com.amex.personServer.service.PersonGroupCommitter;
 import com.amex.personServer.service.PersonService;
+import com.amex.personServer.stats.PersonStats;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 
 /**
  * 
@@ -47,79 +103,774 @@ public class PersonController extends AmexBaseController  {
 	@Autowired
 	PersonService personService;
 	
-	// Defines the format for setting and parsing the DTO's date of birth:
-	private static DateTimeFormatter DATE_OF_BIRTH_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+	@Autowired
+	PersonDtoCache personDtoCache;
+	
+	@Autowired
+	PersonChangeLog personChangeLog;
+	
+	// Present when person.read-model.enabled, in which case single and full-list reads are served from it:
+	@Autowired(required = false)
+	PersonReadModel personReadModel;
+	
+	// Present when person.group-commit.enabled, in which case single creates go through it:
+	@Autowired(required = false)
+	PersonGroupCommitter personGroupCommitter;
+	
+	@Autowired
+	PersonStats personStats;
+	
+	@Autowired
+	PersonCsvImporter personCsvImporter;
+	
+	@Autowired
+	PersonExporter personExporter;
+	
+	@Autowired
+	ObjectMapper objectMapper;
+	
+	@Autowired
+	SmileFactory smileFactory;
+	
+	// Newline-delimited json: one PersonDto object per line.
+	public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+	
+	public static final String TEXT_CSV_VALUE = "text/csv";
+	
+	// Page sizes for keyset pagination of the people collection:
+	static final int DEFAULT_PAGE_LIMIT = 100;
+	static final int MAX_PAGE_LIMIT = 1000;
+	
+	static final int DEFAULT_SEARCH_PAGE_SIZE = 20;
+	static final Set<String> SORTABLE_PROPERTIES = Collections.unmodifiableSet(new LinkedHashSet<>(
+		Arrays.asList("id", "name", "age", "dateOfBirth", "emailAddress")));
+	
+	// The request parameters a search or a delete by criteria may filter on:
+	static final Set<String> SEARCH_CRITERIA = Collections.unmodifiableSet(new LinkedHashSet<>(
+		Arrays.asList("minAge", "maxAge", "dateOfBirthFrom", "dateOfBirthTo", "namePrefix", "emailDomain")));
 	
+	// Most email domains that the stats may list:
+	static final int MAX_TOP_EMAIL_DOMAINS = 10000;
+	
+	// Most people that may be created in one batch, all in one transaction:
+	static final int MAX_BATCH_PEOPLE = 10000;
+	
+	// Most ids that may be looked up in one request:
+	static final int MAX_LOOKUP_IDS = 10000;
+	
+	// Most ids that may be deleted in one request:
+	static final int MAX_DELETE_IDS = 100000;
+	
+	// Page cursors are the base64 encoding of this prefix plus the last id of the page.  The prefix
+	// keeps an encoded cursor from ever looking like a plain numeric id.
+	private static final String CURSOR_PREFIX = "p:";
+	
+	/**
+	 * Returns the person with the person's version as its ETag.  A request whose If-None-Match
+	 * header holds the current ETag is answered with 304 (Not Modified) and no body.
+	 */
 	@RequestMapping(method = RequestMethod.GET, value = "/{id}")
-	public PersonDto getPerson(@PathVariable Long id) {
-		return personRepository.findById(id)
+	public ResponseEntity<PersonDto> getPerson(@PathVariable Long id) {
+		if (null!=personReadModel) {
+			PersonRecord record = personReadModel.get(id);
+			if (null==record) {
+				throw new ResourceNotFoundException("Person: id=" + id.toString() + " not found.");
+			}
+			return withETag(ResponseEntity.ok(), record.getVersion()).body(personRecordToPersonDto(record));
+		}
+		
+		PersonDto personDto = personDtoCache.getOrLoad(id, key -> personRepository.findById(key)
 			.map(thePerson-> personToPersonDto(thePerson))
-			.orElseThrow(() -> 
-				new ResourceNotFoundException("Person: id=" + id.toString() + " not found."));	
+			.orElse(null));
+		if (null==personDto) {
+			throw new ResourceNotFoundException("Person: id=" + id.toString() + " not found.");
+		}
+		
+		// Spring answers a matching If-None-Match with 304 itself, given the ETag:
+		return withETag(ResponseEntity.ok(), personDto.getVersion()).body(personDto);
+	}
+	
+	/**
+	 * Same as getPerson, but with only the fields named in the comma-separated fields parameter,
+	 * e.g. fields=id,emailAddress.  Only their columns (and the version, for the ETag) are read.
+	 */
+	@GetMapping(value = "/{id}", params = "fields")
+	public ResponseEntity<PersonFieldsDto> getPersonFields(@PathVariable Long id, @RequestParam String fields) {
+		PersonField[] personFields = PersonField.parse(fields);
+		if (null!=personReadModel) {
+			PersonRecord record = personReadModel.get(id);
+			if (null==record) {
+				throw new ResourceNotFoundException("Person: id=" + id.toString() + " not found.");
+			}
+			return withETag(ResponseEntity.ok(), record.getVersion())
+				.body(new PersonFieldsDto(personFields, personRecordValues(personFields, record), record.getVersion()));
+		}
+		
+		Object[] values = personRepository.findFieldsById(id, personFields);
+		if (null==values) {
+			throw new ResourceNotFoundException("Person: id=" + id.toString() + " not found.");
+		}
+		// The version follows the fields' values:
+		Long version = (Long) values[personFields.length];
+		return withETag(ResponseEntity.ok(), version).body(new PersonFieldsDto(personFields, values, version));
 	}
 	
+	/**
+	 * Writes all people as a json array.  Rows are streamed from the DB and written to the
+	 * response one at a time rather than collected into a list first, so the response starts
+	 * immediately and heap use stays flat regardless of the size of the table.
+	 * 
+	 * The X-Change-Seq header makes the response a snapshot for PersonChangeController's change
+	 * feed: it holds the sequence number of the last change whose effect the people reflect.
+	 * 
+	 * The optional fields parameter, e.g. fields=id,emailAddress, limits each person to the
+	 * named fields; only their columns are read from the DB.
+	 */
+	@BulkEndpoint
 	@GetMapping
-	ResponseEntity<List<PersonDto>> getAllPeople() {
-		return ResponseEntity.ok(StreamSupport.stream(personRepository.findAll().spliterator(), false)
-			.map(person-> personToPersonDto(person))
-			.collect(Collectors.toList()));
+	public void getAllPeople(HttpServletResponse response, @RequestParam(required = false) String fields)
+			throws IOException {
+		PersonField[] personFields = null==fields ? null : PersonField.parse(fields);
+		response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+		writeAllPeople(response, objectMapper.getFactory(), true, personFields);
+	}
+	
+	/**
+	 * Same as getAllPeople, but as newline-delimited json (one person per line) for
+	 * clients that want to process the people as they arrive.
+	 */
+	@BulkEndpoint
+	@GetMapping(produces = APPLICATION_NDJSON_VALUE)
+	public void getAllPeopleAsNdjson(HttpServletResponse response, @RequestParam(required = false) String fields)
+			throws IOException {
+		PersonField[] personFields = null==fields ? null : PersonField.parse(fields);
+		response.setContentType(APPLICATION_NDJSON_VALUE);
+		writeAllPeople(response, objectMapper.getFactory(), false, personFields);
+	}
+	
+	/**
+	 * Same as getAllPeople, but as a Smile array, for clients that would rather not parse json.
+	 */
+	@BulkEndpoint
+	@GetMapping(produces = JsonConfiguration.APPLICATION_SMILE_VALUE)
+	public void getAllPeopleAsSmile(HttpServletResponse response, @RequestParam(required = false) String fields)
+			throws IOException {
+		PersonField[] personFields = null==fields ? null : PersonField.parse(fields);
+		response.setContentType(JsonConfiguration.APPLICATION_SMILE_VALUE);
+		writeAllPeople(response, smileFactory, true, personFields);
+	}
+ 
+	/**
+	 * Searches for people by any combination of age range, date of birth range (inclusive,
+	 * YYYY-MM-DD), name prefix (case-sensitive) and email domain, with the usual page, size and
+	 * sort parameters.  People are sorted by id unless another sort is requested.  Each
+	 * criterion is backed by an index on the Person table.
+	 */
+	@BulkEndpoint
+	@GetMapping("/search")
+	public Page<PersonDto> searchPeople(
+			@RequestParam(required = false) Integer minAge,
+			@RequestParam(required = false) Integer maxAge,
+			@RequestParam(required = false) String dateOfBirthFrom,
+			@RequestParam(required = false) String dateOfBirthTo,
+			@RequestParam(required = false) String namePrefix,
+			@RequestParam(required = false) String emailDomain,
+			@PageableDefault(size = DEFAULT_SEARCH_PAGE_SIZE, sort = "id") Pageable pageable) {
+		
+		for (Sort.Order order : pageable.getSort()) {
+			if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+				throw new IllegalArgumentException("Cannot sort by '" + order.getProperty() 
+					+ "'; sortable properties are " + SORTABLE_PROPERTIES);
+			}
+		}
+		
+		Specification<Person> specification = searchSpecification(minAge, maxAge, dateOfBirthFrom, dateOfBirthTo,
+			namePrefix, emailDomain);
+		return personRepository.findAll(specification, pageable).map(person-> personToPersonDto(person));
+	}
+	
+	/**
+	 * Deletes every person matching the search criteria, which are as for searchPeople; at least
+	 * one must be given.  For example, DELETE /people?emailDomain=example.com.  Any other
+	 * parameter is rejected rather than ignored, since ignoring a misspelt criterion would delete
+	 * more people than were meant.  The people are deleted in chunks with set-based DELETEs,
+	 * without being loaded.
+	 */
+	@BulkEndpoint
+	@DeleteMapping
+	public PersonDeleteResultDto deletePeopleMatching(HttpServletRequest request,
+			@RequestParam(required = false) Integer minAge,
+			@RequestParam(required = false) Integer maxAge,
+			@RequestParam(required = false) String dateOfBirthFrom,
+			@RequestParam(required = false) String dateOfBirthTo,
+			@RequestParam(required = false) String namePrefix,
+			@RequestParam(required = false) String emailDomain) {
+		for (String parameterName : request.getParameterMap().keySet()) {
+			if (!SEARCH_CRITERIA.contains(parameterName)) {
+				throw new IllegalArgumentException("Unknown criterion '" + parameterName + "'; people may be deleted by "
+					+ String.join(", ", SEARCH_CRITERIA));
+			}
+		}
+		if (null==minAge && null==maxAge && StringUtils.isEmpty(dateOfBirthFrom) && StringUtils.isEmpty(dateOfBirthTo) 
+				&& StringUtils.isEmpty(namePrefix) && StringUtils.isEmpty(emailDomain)) {
+			throw new IllegalArgumentException("At least one of minAge, maxAge, dateOfBirthFrom, dateOfBirthTo, "
+				+ "namePrefix and emailDomain must be given to delete people");
+		}
+		long deleted = personService.deleteMatching(searchSpecification(minAge, maxAge, dateOfBirthFrom, 
+			dateOfBirthTo, namePrefix, emailDomain));
+		return new PersonDeleteResultDto(deleted, Collections.emptyList());
+	}
+	
+	// The people matching all the criteria given; null criteria are ignored.
+	private static Specification<Person> searchSpecification(Integer minAge, Integer maxAge, String dateOfBirthFrom,
+			String dateOfBirthTo, String namePrefix, String emailDomain) {
+		return Specification.where(PersonSpecifications.ageBetween(minAge, maxAge))
+			.and(PersonSpecifications.bornBetween(parseDate("dateOfBirthFrom", dateOfBirthFrom), 
+				parseDate("dateOfBirthTo", dateOfBirthTo)))
+			.and(PersonSpecifications.nameStartsWith(namePrefix))
+			.and(PersonSpecifications.emailDomainIs(emailDomain));
+	}
+	
+	/**
+	 * Count of people in total, by age, by birth year and by email domain (the topEmailDomains
+	 * most common).  The counts are maintained as people change, so this never scans the table.
+	 */
+	@GetMapping("/stats")
+	public PersonStatsDto getStats(@RequestParam(defaultValue = "100") int topEmailDomains) {
+		if (topEmailDomains < 0 || topEmailDomains > MAX_TOP_EMAIL_DOMAINS) {
+			throw new IllegalArgumentException("topEmailDomains must be between 0 and " + MAX_TOP_EMAIL_DOMAINS 
+				+ ": " + topEmailDomains);
+		}
+		return personStats.getStats(topEmailDomains);
+	}
+	
+	/**
+	 * Looks up many people by id at once: GET /people?ids=1,2,3.  See lookupPeople.
+	 */
+	@BulkEndpoint
+	@GetMapping(params = "ids")
+	public PersonLookupDto getPeople(@RequestParam List<Long> ids) {
+		return lookupPeople(ids);
+	}
+	
+	/**
+	 * Looks up many people by id at once, for sets of ids too large for a query string.  The body
+	 * is a json array of ids.  The people found are returned in the order their ids were given
+	 * (each person once, however many times the id was given) and the ids not found are listed
+	 * separately rather than failing the request.
+	 */
+	@BulkEndpoint
+	@PostMapping("/lookup")
+	public PersonLookupDto lookupPeople(@RequestBody List<Long> ids) {
+		if (ids.contains(null)) {
+			throw new IllegalArgumentException("ids must not contain null");
+		}
+		if (ids.size() > MAX_LOOKUP_IDS) {
+			throw new IllegalArgumentException("At most " + MAX_LOOKUP_IDS + " ids may be looked up at once: " + ids.size());
+		}
+		
+		Map<Long, Person> peopleById = personService.findByIds(ids);
+		List<PersonDto> people = new ArrayList<>(peopleById.size());
+		List<Long> missingIds = new ArrayList<>();
+		for (Long id : new LinkedHashSet<>(ids)) {
+			Person person = peopleById.get(id);
+			if (null==person) {
+				missingIds.add(id);
+			} else {
+				people.add(personToPersonDto(person));
+			}
+		}
+		return new PersonLookupDto(people, missingIds);
 	}
  
 	@PostMapping
 	public ResponseEntity<Person> createPerson(@RequestBody PersonDto personDto) {			
 		Person person = personDtoToPerson(personDto);
-		personService.create(person);
+		if (null==personGroupCommitter) {
+			personService.create(person);
+		} else {
+			personGroupCommitter.create(person);
+		}
 		
 		URI location = ServletUriComponentsBuilder
 				.fromCurrentRequest().path("/{id}")
 				.buildAndExpand(person.getId()).toUri();
 
-		return ResponseEntity.created(location).body(person);
+		return withETag(ResponseEntity.created(location), person.getVersion()).body(person);
+	}
+	
+	/**
+	 * Creates many people at once, at most MAX_BATCH_PEOPLE.  Each person is accepted or rejected
+	 * on its own; the response reports the outcome for every person along with the overall throughput.
+	 */
+	@BulkEndpoint
+	@PostMapping("/batch")
+	public PersonBatchResultDto createPeople(@RequestBody List<PersonDto> personDtos) {
+		if (personDtos.contains(null)) {
+			throw new IllegalArgumentException("people must not contain null");
+		}
+		if (personDtos.size() > MAX_BATCH_PEOPLE) {
+			throw new IllegalArgumentException("At most " + MAX_BATCH_PEOPLE + " people may be created at once: " 
+				+ personDtos.size());
+		}
+		long startTime = System.nanoTime();
+		
+		// People whose dto's can't even be mapped are rejected before reaching the service:
+		String[] errors = new String[personDtos.size()];
+		Person[] peopleByIndex = new Person[personDtos.size()];
+		List<Person> people = new ArrayList<>(personDtos.size());
+		for (int i = 0; i < personDtos.size(); i++) {
+			try {
+				peopleByIndex[i] = personDtoToPerson(personDtos.get(i));
+				people.add(peopleByIndex[i]);
+			} catch (IllegalArgumentException e) {
+				errors[i] = e.getMessage();
+			}
+		}
+		
+		List<String> createErrors = personService.createAll(people);
+		
+		List<PersonBatchResultDto.ItemResult> results = new ArrayList<>(personDtos.size());
+		int created = 0;
+		int peopleIndex = 0;
+		for (int i = 0; i < personDtos.size(); i++) {
+			Long id = null;
+			if (null!=peopleByIndex[i]) {
+				errors[i] = createErrors.get(peopleIndex++);
+				if (null==errors[i]) {
+					id = peopleByIndex[i].getId();
+					created++;
+				}
+			}
+			results.add(new PersonBatchResultDto.ItemResult(i, id, errors[i]));
+		}
+		
+		long elapsedNanos = Math.max(1, System.nanoTime() - startTime);
+		return new PersonBatchResultDto(created, personDtos.size() - created, 
+			TimeUnit.NANOSECONDS.toMillis(elapsedNanos), created * TimeUnit.SECONDS.toNanos(1) / elapsedNanos, results);
+	}
+	
+	/**
+	 * Imports people from the CSV request body as it arrives; see PersonCsvImporter for the
+	 * format.  The response reports the totals, the throughput and the first maxErrors rejected
+	 * lines.
+	 */
+	@BulkEndpoint
+	@PostMapping(value = "/import", consumes = { TEXT_CSV_VALUE, MediaType.TEXT_PLAIN_VALUE })
+	public PersonImportResultDto importPeople(HttpServletRequest request,
+			@RequestParam(defaultValue = "1000") int maxErrors) throws IOException {
+		if (maxErrors < 0) {
+			throw new IllegalArgumentException("maxErrors must not be negative: " + maxErrors);
+		}
+		return personCsvImporter.importCsv(Channels.newChannel(request.getInputStream()), maxErrors, null);
 	}
 	
+	/**
+	 * Exports every person to a new CSV or NDJSON file, gzipped if asked, in the server's
+	 * person.export.directory; see PersonExporter.  The response names the file and reports the
+	 * rows written and the throughput.
+	 */
+	@BulkEndpoint
+	@PostMapping("/export")
+	public PersonExportResultDto exportPeople(@RequestParam(defaultValue = "csv") String format,
+			@RequestParam(defaultValue = "false") boolean gzip) throws IOException {
+		PersonExporter.Format exportFormat;
+		try {
+			exportFormat = PersonExporter.Format.valueOf(format.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("format must be csv or ndjson: " + format);
+		}
+		return personExporter.export(exportFormat, gzip);
+	}
+	
+	/**
+	 * Replaces a person.  With an If-Match header holding the person's ETag, the person is only
+	 * updated if it has not been changed since that ETag was issued; otherwise the response is
+	 * 412 (Precondition Failed).  The header may list several ETags, any of which may match.
+	 * The response carries the new ETag.
+	 */
 	@RequestMapping(method = RequestMethod.PUT, value = "/{id}")
-	public ResponseEntity<Person> updatePerson(@PathVariable Long id, @RequestBody PersonDto personDto) {
+	public ResponseEntity<Person> updatePerson(@PathVariable Long id, @RequestBody PersonDto personDto,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 		Person person = personDtoToPerson(personDto);
 		person.setId(id);
-		Person updatedPerson=personService.update(person);
+		
+		Long expectedVersion = null;
+		if (null!=ifMatch && !"*".equals(ifMatch.trim())) {
+			expectedVersion = expectedVersion(id, ifMatch);
+			if (null==expectedVersion) {
+				// Not an ETag this server issued, so it can't match:
+				return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+			}
+		}
+		
+		Person updatedPerson;
+		try {
+			updatedPerson=personService.update(person, expectedVersion);
+		} catch (OptimisticLockingFailureException e) {
+			return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+		}
 		if (null==updatedPerson) {
-			return ResponseEntity.notFound().build();
+			// Any If-Match condition fails when there is no person at all:
+			return null==ifMatch ? ResponseEntity.notFound().build() 
+				: ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
 		}		
 		
-		return ResponseEntity.ok().body(person);
+		return withETag(ResponseEntity.ok(), person.getVersion()).body(person);
+	}
+	
+	/**
+	 * Changes just the fields present in the json object body, such as {"emailAddress": "..."},
+	 * with an UPDATE of only their columns.  Only those fields are validated, and the email
+	 * address is only checked for duplicates if it is one of them.  If-Match is handled as for
+	 * PUT.  The response is the person as updated, with its new ETag.
+	 */
+	@PatchMapping("/{id}")
+	public ResponseEntity<Person> patchPerson(@PathVariable Long id, @RequestBody Map<String, Object> changes,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		Set<PersonField> fields = EnumSet.noneOf(PersonField.class);
+		Person person = personPatchToPerson(id, changes, fields);
+		
+		Long expectedVersion = null;
+		if (null!=ifMatch && !"*".equals(ifMatch.trim())) {
+			expectedVersion = expectedVersion(id, ifMatch);
+			if (null==expectedVersion) {
+				return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+			}
+		}
+		
+		Person updatedPerson;
+		try {
+			updatedPerson = personService.patch(id, person, fields, expectedVersion);
+		} catch (OptimisticLockingFailureException e) {
+			return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+		}
+		if (null==updatedPerson) {
+			return null==ifMatch ? ResponseEntity.notFound().build() 
+				: ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+		}
+		
+		return withETag(ResponseEntity.ok(), updatedPerson.getVersion()).body(updatedPerson);
 	}
 	
 	@RequestMapping(method = RequestMethod.DELETE, value = "/{id}")
 	public ResponseEntity<Person> deletePerson(@PathVariable Long id) {
-		if (personRepository.findById(id).isPresent()) {
-			personRepository.deleteById(id);
+		if (personService.delete(id)) {
 			return ResponseEntity.noContent().build();	
 		} 
+		return ResponseEntity.notFound().build();
+	}
+	
+	/**
+	 * Deletes many people by id at once: DELETE /people?ids=1,2,3.  See deletePeople.
+	 */
+	@BulkEndpoint
+	@DeleteMapping(params = "ids")
+	public PersonDeleteResultDto deletePeopleByIds(@RequestParam List<Long> ids) {
+		return deletePeople(ids);
+	}
+	
+	/**
+	 * Deletes many people by id at once, for sets of ids too large for a query string.  The body
+	 * is a json array of ids.  The ids not found are listed rather than failing the request.
+	 */
+	@BulkEndpoint
+	@PostMapping("/delete")
+	public PersonDeleteResultDto deletePeople(@RequestBody List<Long> ids) {
+		if (ids.contains(null)) {
+			throw new IllegalArgumentException("ids must not contain null");
+		}
+		if (ids.size() > MAX_DELETE_IDS) {
+			throw new IllegalArgumentException("At most " + MAX_DELETE_IDS + " ids may be deleted at once: " + ids.size());
+		}
 		
-		// Consider returning "404 Not Found" in this case:
-		return ResponseEntity.noContent().build();
+		Set<Long> deletedIds = personService.deleteByIds(ids);
+		List<Long> missingIds = new ArrayList<>();
+		for (Long id : new LinkedHashSet<>(ids)) {
+			if (!deletedIds.contains(id)) {
+				missingIds.add(id);
+			}
+		}
+		return new PersonDeleteResultDto(deletedIds.size(), missingIds);
+	}
+
+	// Writes every person, or just the given fields of each if there are any.
+	private void writeAllPeople(HttpServletResponse response, JsonFactory jsonFactory, boolean asArray,
+			PersonField[] fields) throws IOException {
+		// Every change up to this one was committed, or applied to the read model, before the people are read:
+		response.setHeader(PersonChangeController.CHANGE_SEQ_HEADER, Long.toString(
+			null==personReadModel ? personChangeLog.getLastSeq() : personReadModel.getLastSeq()));
+		
+		try (JsonGenerator generator = jsonFactory.createGenerator(response.getOutputStream(), JsonEncoding.UTF8)) {
+			if (asArray) {
+				generator.writeStartArray();
+			} else {
+				generator.setRootValueSeparator(null);
+			}
+			// Commit the response now so the client sees the first byte before the first row is read:
+			generator.flush();
+			
+			// Each person is written straight from the entity, record or column values, with no PersonDto in between:
+			PersonJsonWriter writer = new PersonJsonWriter(generator);
+			if (null==personReadModel) {
+				if (null==fields) {
+					personService.forEachPerson(eachValue(generator, asArray, writer::write));
+				} else {
+					personService.forEachPerson(fields, eachValue(generator, asArray, values -> writer.write(fields, values)));
+				}
+			} else {
+				if (null==fields) {
+					personReadModel.forEachPerson(eachValue(generator, asArray, writer::write));
+				} else {
+					personReadModel.forEachPerson(eachValue(generator, asArray, record -> writer.write(fields, record)));
+				}
+			}
+			
+			if (asArray) {
+				generator.writeEndArray();
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+	
+	private interface ValueWriter<T> {
+		void write(T value) throws IOException;
+	}
+	
+	// Writes each value as an array element or, for NDJSON, on a line of its own.
+	private static <T> Consumer<T> eachValue(JsonGenerator generator, boolean asArray, ValueWriter<T> valueWriter) {
+		return value -> {
+			try {
+				valueWriter.write(value);
+				if (!asArray) {
+					generator.writeRaw('\n');
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		};
+	}
+
+	/**
+	 * Keyset pagination over the people collection, in id order.  "after" may be either the
+	 * nextCursor returned with the previous page or a plain person id; omit it to start at the
+	 * beginning.  Every page is one indexed range scan, however deep into the table it is.
+	 */
+	@BulkEndpoint
+	@GetMapping(params = "limit")
+	public PersonPageDto getPeoplePage(@RequestParam(required = false) String after, @RequestParam int limit) {
+		if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+			throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_LIMIT + ": " + limit);
+		}
+		
+		// Read one row more than asked for to know whether another page follows:
+		List<Person> people = personRepository.findByIdGreaterThanOrderByIdAsc(
+			null==after ? Long.MIN_VALUE : decodeCursor(after), PageRequest.of(0, limit + 1));
+		
+		String nextCursor = null;
+		if (people.size() > limit) {
+			people = people.subList(0, limit);
+			nextCursor = encodeCursor(people.get(limit - 1).getId());
+		}
+		
+		return new PersonPageDto(people.stream()
+			.map(person-> personToPersonDto(person))
+			.collect(Collectors.toList()), nextCursor);
+	}
+	
+	@BulkEndpoint
+	@GetMapping(params = {"after", "!limit"})
+	public PersonPageDto getPeoplePage(@RequestParam String after) {
+		return getPeoplePage(after, DEFAULT_PAGE_LIMIT);
+	}
+	
+	// Parses an optional date request parameter; null if it was not given.
+	private static LocalDate parseDate(String parameterName, String value) {
+		if (null==value || value.isEmpty()) {
+			return null;
+		}
+		try {
+			return DateOfBirthFormat.parse(value);
+		} catch (DateTimeParseException e) {
+			throw new IllegalArgumentException(parameterName + " not in YYYY-MM-DD format: '" + value + "'");
+		}
+	}
+	
+	// Strong ETags are the person's version in quotes.
+	private static <B extends ResponseEntity.HeadersBuilder<B>> B withETag(B builder, Long version) {
+		return null==version ? builder : builder.eTag("\"" + version + "\"");
+	}
+	
+	// Returns the version an update must find for the If-Match header to hold, or null if none
+	// can.  Of a list of ETags, only the current version's can match, so that is the one to
+	// expect, and the update still fails if the person changes before it is made.
+	private Long expectedVersion(Long id, String ifMatch) {
+		List<Long> versions = new ArrayList<>();
+		for (String eTag : ifMatch.split(",")) {
+			Long version = parseETag(eTag);
+			if (null!=version) {
+				versions.add(version);
+			}
+		}
+		if (versions.size() < 2) {
+			return versions.isEmpty() ? null : versions.get(0);
+		}
+		Long currentVersion = personRepository.findVersionById(id);
+		return versions.contains(currentVersion) ? currentVersion : null;
+	}
+	
+	// Returns the version in a strong ETag issued by withETag, or null if it isn't one.
+	static Long parseETag(String eTag) {
+		String trimmed = eTag.trim();
+		if (trimmed.length() < 3 || '"'!=trimmed.charAt(0) || '"'!=trimmed.charAt(trimmed.length() - 1)) {
+			return null;
+		}
+		try {
+			return Long.valueOf(trimmed.substring(1, trimmed.length() - 1));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+	
+	static String encodeCursor(Long id) {
+		return Base64.getUrlEncoder().withoutPadding()
+			.encodeToString((CURSOR_PREFIX + id).getBytes(StandardCharsets.US_ASCII));
+	}
+	
+	static Long decodeCursor(String cursor) {
+		try {
+			if (cursor.chars().allMatch(Character::isDigit)) {
+				return Long.valueOf(cursor);
+			}
+			String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+			if (decoded.startsWith(CURSOR_PREFIX)) {
+				return Long.valueOf(decoded.substring(CURSOR_PREFIX.length()));
+			}
+		} catch (IllegalArgumentException e) {
+			// NumberFormatException is an IllegalArgumentException too; fall through to the common message.
+		}
+		throw new IllegalArgumentException("Invalid page cursor: '" + cursor + "'");
 	}
 
 	// For more complex dto's, Dozer might be a better way to perform such mapping
-	private static PersonDto personToPersonDto(Person person) {
+	static PersonDto personToPersonDto(Person person) {
 		PersonDto personDto = new PersonDto();	
 		personDto.setId(person.getId());
 		personDto.setName(person.getName());
 		personDto.setAge(person.getAge());
 		personDto.setEmailAddress(person.getEmailAddress());
-		personDto.setDateOfBirth( person.getDateOfBirth().format(DATE_OF_BIRTH_FORMATTER));   
+		personDto.setDateOfBirth(DateOfBirthFormat.format(person.getDateOfBirth()));   
+		personDto.setVersion(person.getVersion());
+		
+		return personDto;
+	}
+	
+	// The values of the record's fields, in the order given.
+	static Object[] personRecordValues(PersonField[] fields, PersonRecord record) {
+		Object[] values = new Object[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			switch (fields[i]) {
+			case ID:
+				values[i] = record.getId();
+				break;
+			case NAME:
+				values[i] = record.getName();
+				break;
+			case AGE:
+				values[i] = record.getAge();
+				break;
+			case DATE_OF_BIRTH:
+				values[i] = record.getDateOfBirth();
+				break;
+			case EMAIL_ADDRESS:
+				values[i] = record.getEmailAddress();
+				break;
+			}
+		}
+		return values;
+	}
+	
+	static PersonDto personRecordToPersonDto(PersonRecord record) {
+		PersonDto personDto = new PersonDto();	
+		personDto.setId(record.getId());
+		personDto.setName(record.getName());
+		personDto.setAge(record.getAge());
+		personDto.setEmailAddress(record.getEmailAddress());
+		personDto.setDateOfBirth(DateOfBirthFormat.format(record.getDateOfBirth()));   
+		personDto.setVersion(record.getVersion());
 		
 		return personDto;
 	}
 	
-	private static Person personDtoToPerson(PersonDto personDto) {
+	// Maps the fields of a PATCH body onto a Person, adding each to fields.  The body may only
+	// repeat the id, not change it, and no field may be set to null, as none of the columns are
+	// nullable.
+	static Person personPatchToPerson(Long id, Map<String, Object> changes, Set<PersonField> fields) {
+		Person person = new Person();
+		for (Map.Entry<String, Object> change : changes.entrySet()) {
+			PersonField field = PersonField.ofPropertyName(change.getKey());
+			Object value = change.getValue();
+			if (null==value) {
+				throw new IllegalArgumentException(change.getKey() + " must not be null");
+			}
+			switch (field) {
+			case ID:
+				if (!isIntegral(value) || ((Number) value).longValue()!=id) {
+					throw new IllegalArgumentException("id cannot be changed: " + value);
+				}
+				continue;
+			case NAME:
+				person.setName(patchValue(change, String.class));
+				break;
+			case AGE:
+				person.setAge(patchValue(change, Integer.class));
+				break;
+			case DATE_OF_BIRTH:
+				String dateOfBirth = patchValue(change, String.class);
+				try {
+					person.setDateOfBirth(DateOfBirthFormat.parse(dateOfBirth));
+				} catch (DateTimeParseException e) {
+					throw new IllegalArgumentException("dateOfBirth not in YYYY-MM-DD format: '" + dateOfBirth + "'");
+				}
+				break;
+			case EMAIL_ADDRESS:
+				person.setEmailAddress(patchValue(change, String.class));
+				break;
+			}
+			fields.add(field);
+		}
+		if (fields.isEmpty()) {
+			throw new IllegalArgumentException("No fields to change");
+		}
+		return person;
+	}
+	
+	/**
+	 * Whether the value is a whole number within the range of a long, so that it can be compared
+	 * by its longValue() without truncating a fraction, as of 1.5, or overflowing.
+	 */
+	private static boolean isIntegral(Object value) {
+		return value instanceof Integer || value instanceof Long
+			|| value instanceof BigDecimal && ((BigDecimal) value).scale()==0
+				&& ((BigDecimal) value).unscaledValue().bitLength() < 64;
+	}
+	
+	private static <T> T patchValue(Map.Entry<String, Object> change, Class<T> type) {
+		if (!type.isInstance(change.getValue())) {
+			throw new IllegalArgumentException("Invalid " + change.getKey() + ": " + change.getValue());
+		}
+		return type.cast(change.getValue());
+	}
+	
+	static Person personDtoToPerson(PersonDto personDto) {
 		Person person = new Person();
 		person.setId(personDto.getId());
 		person.setName(personDto.getName());
 		person.setAge(personDto.getAge());
 		person.setEmailAddress(personDto.getEmailAddress());
 		try {
-			person.setDateOfBirth(LocalDate.parse(personDto.getDateOfBirth(),DATE_OF_BIRTH_FORMATTER));
+			person.setDateOfBirth(DateOfBirthFormat.parse(personDto.getDateOfBirth()));
 		} catch (DateTimeParseException e) {
 			throw new IllegalArgumentException("dateOfBirth not in YYYY-MM-DD format: '" + personDto.getDateOfBirth() + "'");
 		}
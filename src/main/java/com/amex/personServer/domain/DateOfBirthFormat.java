@@ -0,0 +1,114 @@
+package com.amex.personServer.domain;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * The yyyy-MM-dd form in which dates of birth are exchanged with clients.  Dates of the usual
+ * fixed ten character layout are formatted and parsed digit by digit, without going through a
+ * DateTimeFormatter; anything else falls back to FORMATTER, so the results are always the same
+ * as FORMATTER's.
+ */
+public final class DateOfBirthFormat {
+
+	public static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+	// Characters in a yyyy-MM-dd date with a four digit year:
+	public static final int LENGTH = 10;
+
+	// Days from 0000-03-01 to 1970-01-01:
+	private static final long DAYS_0000_TO_1970 = 719468;
+	private static final long DAYS_PER_400_YEARS = 146097;
+
+	private DateOfBirthFormat() {
+	}
+
+	/**
+	 * @return the date as LocalDate.format(FORMATTER) would return it.
+	 */
+	public static String format(LocalDate date) {
+		char[] chars = new char[32];
+		return new String(chars, 0, format(date, chars));
+	}
+
+	/**
+	 * Writes the date into chars from index 0.
+	 *
+	 * @return the number of chars written: LENGTH, unless the year does not have four digits.
+	 */
+	public static int format(LocalDate date, char[] chars) {
+		return format(date.getYear(), date.getMonthValue(), date.getDayOfMonth(), chars);
+	}
+
+	/**
+	 * As format(LocalDate.ofEpochDay(epochDay), chars), without creating the LocalDate.
+	 */
+	public static int formatEpochDay(long epochDay, char[] chars) {
+		// The proleptic Gregorian calendar in 400 year eras of years that start on March 1st, so
+		// that the leap day comes last:
+		long days = epochDay + DAYS_0000_TO_1970;
+		long era = (days >= 0 ? days : days - DAYS_PER_400_YEARS + 1) / DAYS_PER_400_YEARS;
+		long dayOfEra = days - era * DAYS_PER_400_YEARS;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long monthFromMarch = (5 * dayOfYear + 2) / 153;
+		int day = (int) (dayOfYear - (153 * monthFromMarch + 2) / 5 + 1);
+		int month = (int) (monthFromMarch < 10 ? monthFromMarch + 3 : monthFromMarch - 9);
+		long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+		if (year < 1 || year > 9999) {
+			return format(LocalDate.ofEpochDay(epochDay), chars);
+		}
+		return format((int) year, month, day, chars);
+	}
+
+	private static int format(int year, int month, int day, char[] chars) {
+		if (year < 1 || year > 9999) {
+			String formatted = LocalDate.of(year, month, day).format(FORMATTER);
+			formatted.getChars(0, formatted.length(), chars, 0);
+			return formatted.length();
+		}
+		putDigits(year / 100, chars, 0);
+		putDigits(year % 100, chars, 2);
+		chars[4] = '-';
+		putDigits(month, chars, 5);
+		chars[7] = '-';
+		putDigits(day, chars, 8);
+		return LENGTH;
+	}
+
+	private static void putDigits(int twoDigits, char[] chars, int index) {
+		chars[index] = (char) ('0' + twoDigits / 10);
+		chars[index + 1] = (char) ('0' + twoDigits % 10);
+	}
+
+	/**
+	 * @return the date, as LocalDate.parse(value, FORMATTER) would return it.
+	 * @throws java.time.format.DateTimeParseException if the value is not a yyyy-MM-dd date.
+	 */
+	public static LocalDate parse(CharSequence value) {
+		if (value.length()==LENGTH && value.charAt(4)=='-' && value.charAt(7)=='-') {
+			int century = digits(value, 0);
+			int yearOfCentury = digits(value, 2);
+			int month = digits(value, 5);
+			int day = digits(value, 8);
+			if (century >= 0 && yearOfCentury >= 0 && century + yearOfCentury > 0
+					&& month >= 1 && month <= 12 && day >= 1 && day <= 31) {
+				int year = century * 100 + yearOfCentury;
+				// The formatter's SMART resolution moves days past the end of the month back to its last day:
+				return LocalDate.of(year, month, day <= 28 ? day : Math.min(day, YearMonth.of(year, month).lengthOfMonth()));
+			}
+		}
+		return LocalDate.parse(value, FORMATTER);
+	}
+
+	// The two digits at index as a number, or -1 if either is not a digit.
+	private static int digits(CharSequence value, int index) {
+		int tens = value.charAt(index) - '0';
+		int units = value.charAt(index + 1) - '0';
+		if (tens < 0 || tens > 9 || units < 0 || units > 9) {
+			return -1;
+		}
+		return tens * 10 + units;
+	}
+}
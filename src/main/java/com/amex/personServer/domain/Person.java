@@ -1,23 +1,44 @@
 package com.amex.personServer.domain;
 
 import java.time.LocalDate;
+import java.util.Locale;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
  
 @Entity
-@Table(name = "Person")
+@Table(name = "Person", 
+	uniqueConstraints = @UniqueConstraint(name = Person.UNIQUE_EMAIL_CONSTRAINT, columnNames = "normalizedEmailAddress"),
+	// Support the PersonSpecifications used by the search endpoint:
+	indexes = {
+		@Index(name = "IDX_PERSON_AGE", columnList = "age"),
+		@Index(name = "IDX_PERSON_DATE_OF_BIRTH", columnList = "dateOfBirth"),
+		@Index(name = "IDX_PERSON_NAME", columnList = "name"),
+		@Index(name = "IDX_PERSON_EMAIL_DOMAIN", columnList = "emailDomain") })
 public class Person {
+	
+	// Name of the unique index enforcing case-insensitive uniqueness of email addresses:
+	public static final String UNIQUE_EMAIL_CONSTRAINT = "UK_PERSON_NORMALIZED_EMAIL";
+	
+	// Number of ids reserved per sequence call.  Matches hibernate.jdbc.batch_size so that a full
+	// batch of inserts needs at most one trip to the sequence.
+	public static final int ID_ALLOCATION_SIZE = 50;
  
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "personIdGenerator")
+    @SequenceGenerator(name = "personIdGenerator", sequenceName = "person_id_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
  
     @Column (name="name")
@@ -35,6 +56,24 @@ public class Person {
     @NotNull
     @Column (name="emailAddress")
     private String emailAddress;
+    
+    // Lower-cased copy of emailAddress, maintained by setEmailAddress.  Case-insensitive
+    // lookups compare against this column so that they can use its unique index.
+    @JsonIgnore
+    @Column (name="normalizedEmailAddress")
+    private String normalizedEmailAddress;
+    
+    // Lower-cased part of emailAddress after the last '@', maintained by setEmailAddress.  A
+    // search by domain compares against this column, as a suffix match on the address can't use an index.
+    @JsonIgnore
+    @Column (name="emailDomain")
+    private String emailDomain;
+    
+    // Incremented on every update; served to clients as the Person's ETag.
+    @JsonIgnore
+    @Version
+    @Column (name="version")
+    private Long version;
 	
     public Long getId() {
 		return id;
@@ -65,6 +104,37 @@ public class Person {
 	}
 	public void setEmailAddress(String emailAddress) {
 		this.emailAddress = emailAddress;
+		this.normalizedEmailAddress = normalizeEmailAddress(emailAddress);
+		this.emailDomain = emailDomainOf(emailAddress);
+	}
+	public String getNormalizedEmailAddress() {
+		return normalizedEmailAddress;
+	}
+	public String getEmailDomain() {
+		return emailDomain;
+	}
+	public Long getVersion() {
+		return version;
+	}
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+	
+	/**
+	 * @return the form of an email address used for case-insensitive comparisons, or null if
+	 *  the address is null.
+	 */
+	public static String normalizeEmailAddress(String emailAddress) {
+		return null==emailAddress ? null : emailAddress.toLowerCase(Locale.ROOT);
+	}
+	
+	/**
+	 * @return the normalized domain of an email address: the part after the last '@', or null
+	 *  if the address is null or has no '@'.
+	 */
+	public static String emailDomainOf(String emailAddress) {
+		int at = null==emailAddress ? -1 : emailAddress.lastIndexOf('@');
+		return at < 0 ? null : emailAddress.substring(at + 1).toLowerCase(Locale.ROOT);
 	}
 	@Override
 	public String toString() {
@@ -0,0 +1,60 @@
+package com.amex.personServer.domain;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The fields of a Person that clients see, in the order they are sent.  A client may ask for
+ * some of them only with a fields request parameter.
+ */
+public enum PersonField {
+	ID("id"), NAME("name"), AGE("age"), DATE_OF_BIRTH("dateOfBirth"), EMAIL_ADDRESS("emailAddress");
+
+	private final String propertyName;
+
+	PersonField(String propertyName) {
+		this.propertyName = propertyName;
+	}
+
+	/**
+	 * @return the name of the field in json and of the Person property.
+	 */
+	public String getPropertyName() {
+		return propertyName;
+	}
+
+	/**
+	 * Parses a comma-separated list of property names, such as "id,emailAddress".
+	 *
+	 * @return the named fields, each once, in the order they are sent.
+	 * @throws IllegalArgumentException if a name is not that of a field, or there are none.
+	 */
+	public static PersonField[] parse(String propertyNames) {
+		Set<PersonField> fields = EnumSet.noneOf(PersonField.class);
+		for (String propertyName : propertyNames.split(",")) {
+			String trimmed = propertyName.trim();
+			if (trimmed.isEmpty()) {
+				continue;
+			}
+			fields.add(ofPropertyName(trimmed));
+		}
+		if (fields.isEmpty()) {
+			throw new IllegalArgumentException("fields must name at least one field");
+		}
+		return fields.toArray(new PersonField[fields.size()]);
+	}
+
+	/**
+	 * @return the field with the property name given.
+	 * @throws IllegalArgumentException if the name is not that of a field.
+	 */
+	public static PersonField ofPropertyName(String propertyName) {
+		return Arrays.stream(values())
+			.filter(field -> field.propertyName.equals(propertyName))
+			.findFirst()
+			.orElseThrow(() -> new IllegalArgumentException("Unknown field '" + propertyName + "'; fields may be "
+				+ Arrays.stream(values()).map(PersonField::getPropertyName).collect(Collectors.joining(","))));
+	}
+}
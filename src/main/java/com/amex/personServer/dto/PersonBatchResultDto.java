@@ -0,0 +1,77 @@
+package com.amex.personServer.dto;
+
+import java.util.List;
+
+public class PersonBatchResultDto {
+	/**
+	 * Result of a batch create.  Holds one ItemResult per submitted person, in submission order,
+	 * plus totals and the rate at which the people were created.
+	 */
+	public static class ItemResult {
+		private int index;
+		private Long id;
+		private String error;
+		
+		public ItemResult(int index, Long id, String error) {
+			this.index = index;
+			this.id = id;
+			this.error = error;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		// Id of the new person; null if it was rejected.
+		public Long getId() {
+			return id;
+		}
+
+		// Reason the person was rejected; null if it was created.
+		public String getError() {
+			return error;
+		}
+	}
+	
+	private int created;
+	private int rejected;
+	private long elapsedMillis;
+	private long rowsPerSecond;
+	private List<ItemResult> results;
+	
+	public PersonBatchResultDto(int created, int rejected, long elapsedMillis, long rowsPerSecond,
+			List<ItemResult> results) {
+		this.created = created;
+		this.rejected = rejected;
+		this.elapsedMillis = elapsedMillis;
+		this.rowsPerSecond = rowsPerSecond;
+		this.results = results;
+	}
+
+	public int getCreated() {
+		return created;
+	}
+
+	public int getRejected() {
+		return rejected;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public long getRowsPerSecond() {
+		return rowsPerSecond;
+	}
+
+	public List<ItemResult> getResults() {
+		return results;
+	}
+
+	@Override
+	public String toString() {
+		return "PersonBatchResultDto [created=" + created + ", rejected=" + rejected + ", elapsedMillis="
+				+ elapsedMillis + ", rowsPerSecond=" + rowsPerSecond + "]";
+	}
+
+}
@@ -0,0 +1,41 @@
+package com.amex.personServer.dto;
+
+public class PersonChangeDto {
+	/**
+	 * One change to the people collection.  type is CREATED, UPDATED or DELETED; person holds
+	 * the person's values after the change, and is null for DELETED.
+	 */
+	private long seq;
+	private String type;
+	private Long id;
+	private PersonDto person;
+	
+	public PersonChangeDto(long seq, String type, Long id, PersonDto person) {
+		this.seq = seq;
+		this.type = type;
+		this.id = id;
+		this.person = person;
+	}
+
+	public long getSeq() {
+		return seq;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public PersonDto getPerson() {
+		return person;
+	}
+
+	@Override
+	public String toString() {
+		return "PersonChangeDto [seq=" + seq + ", type=" + type + ", id=" + id + ", person=" + person + "]";
+	}
+
+}
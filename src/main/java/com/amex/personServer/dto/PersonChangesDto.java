@@ -0,0 +1,31 @@
+package com.amex.personServer.dto;
+
+import java.util.List;
+
+public class PersonChangesDto {
+	/**
+	 * Changes to the people collection after a sequence number, oldest first.  lastSeq is the
+	 * sequence number to pass as "since" to read the changes that follow.
+	 */
+	private List<PersonChangeDto> changes;
+	private long lastSeq;
+	
+	public PersonChangesDto(List<PersonChangeDto> changes, long lastSeq) {
+		this.changes = changes;
+		this.lastSeq = lastSeq;
+	}
+
+	public List<PersonChangeDto> getChanges() {
+		return changes;
+	}
+
+	public long getLastSeq() {
+		return lastSeq;
+	}
+
+	@Override
+	public String toString() {
+		return "PersonChangesDto [changes=" + changes + ", lastSeq=" + lastSeq + "]";
+	}
+
+}
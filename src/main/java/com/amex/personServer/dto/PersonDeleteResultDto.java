@@ -0,0 +1,31 @@
+package com.amex.personServer.dto;
+
+import java.util.List;
+
+public class PersonDeleteResultDto {
+	/**
+	 * Result of a bulk delete.  deleted is the number of people deleted; missingIds holds the
+	 * requested ids for which there was no person, and is empty when deleting by filter.
+	 */
+	private long deleted;
+	private List<Long> missingIds;
+	
+	public PersonDeleteResultDto(long deleted, List<Long> missingIds) {
+		this.deleted = deleted;
+		this.missingIds = missingIds;
+	}
+
+	public long getDeleted() {
+		return deleted;
+	}
+
+	public List<Long> getMissingIds() {
+		return missingIds;
+	}
+
+	@Override
+	public String toString() {
+		return "PersonDeleteResultDto [deleted=" + deleted + ", missingIds=" + missingIds + "]";
+	}
+
+}
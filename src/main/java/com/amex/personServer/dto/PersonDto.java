@@ -1,5 +1,7 @@
 package com.amex.personServer.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class PersonDto {
 	/**
 	 * DTO for Person entities.  Date field is string-formatted as expected by consumer of service.
@@ -10,6 +12,10 @@ public class PersonDto {
 	private String dateOfBirth;
 	private String emailAddress;
 	
+	// Not part of the json; sent to clients as the ETag header instead.
+	@JsonIgnore
+	private Long version;
+	
 	public Long getId() {
 		return id;
 	}
@@ -47,6 +53,12 @@ public class PersonDto {
 	public void setEmailAddress(String emailAddress) {
 		this.emailAddress = emailAddress;
 	}
+	public Long getVersion() {
+		return version;
+	}
+	public void setVersion(Long version) {
+		this.version = version;
+	}
 	@Override
 	public String toString() {
 		return "PersonDto [id=" + id + ", name=" + name + ", age=" + age + ", dateOfBirth=" + dateOfBirth
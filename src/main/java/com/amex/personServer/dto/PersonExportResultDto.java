@@ -0,0 +1,56 @@
+package com.amex.personServer.dto;
+
+public class PersonExportResultDto {
+	/**
+	 * Result of an export of the Person table to a file.
+	 */
+	private String file;
+	private long rows;
+	private long bytes;
+	private long elapsedMillis;
+	private long rowsPerSecond;
+	private long lastSeq;
+
+	public PersonExportResultDto(String file, long rows, long bytes, long elapsedMillis, long rowsPerSecond,
+			long lastSeq) {
+		this.file = file;
+		this.rows = rows;
+		this.bytes = bytes;
+		this.elapsedMillis = elapsedMillis;
+		this.rowsPerSecond = rowsPerSecond;
+		this.lastSeq = lastSeq;
+	}
+
+	public String getFile() {
+		return file;
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	// Size of the file, after any compression.
+	public long getBytes() {
+		return bytes;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public long getRowsPerSecond() {
+		return rowsPerSecond;
+	}
+
+	// Sequence number of the last change reflected in the file, from which to follow the change feed.
+	public long getLastSeq() {
+		return lastSeq;
+	}
+
+	@Override
+	public String toString() {
+		return "PersonExportResultDto [file=" + file + ", rows=" + rows + ", bytes=" + bytes + ", elapsedMillis="
+				+ elapsedMillis + ", rowsPerSecond=" + rowsPerSecond + ", lastSeq=" + lastSeq + "]";
+	}
+
+}
@@ -0,0 +1,41 @@
+package com.amex.personServer.dto;
+
+import java.util.Arrays;
+
+import com.amex.personServer.domain.PersonField;
+
+public class PersonFieldsDto {
+	/**
+	 * Some of a person's fields, as asked for with a fields request parameter, and written as a
+	 * json object of just those fields.  values holds the value of each field, in the same order.
+	 */
+	private final PersonField[] fields;
+	private final Object[] values;
+	
+	// Not part of the json; sent to clients as the ETag header instead.
+	private final Long version;
+	
+	public PersonFieldsDto(PersonField[] fields, Object[] values, Long version) {
+		this.fields = fields;
+		this.values = values;
+		this.version = version;
+	}
+
+	public PersonField[] getFields() {
+		return fields;
+	}
+
+	public Object[] getValues() {
+		return values;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	@Override
+	public String toString() {
+		return "PersonFieldsDto [fields=" + Arrays.toString(fields) + ", values=" + Arrays.toString(values) + "]";
+	}
+
+}
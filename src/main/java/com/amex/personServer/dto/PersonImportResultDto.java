@@ -0,0 +1,78 @@
+package com.amex.personServer.dto;
+
+import java.util.List;
+
+public class PersonImportResultDto {
+	/**
+	 * Result of a CSV import.  Holds the totals, the rate at which people were created, and the
+	 * first of the rejected lines, in file order, with the reason each was rejected.
+	 */
+	public static class LineError {
+		private long line;
+		private String error;
+
+		public LineError(long line, String error) {
+			this.line = line;
+			this.error = error;
+		}
+
+		// Line of the file, from 1, that the rejected record starts on.
+		public long getLine() {
+			return line;
+		}
+
+		public String getError() {
+			return error;
+		}
+	}
+
+	private long records;
+	private long created;
+	private long rejected;
+	private long elapsedMillis;
+	private long rowsPerSecond;
+	private List<LineError> errors;
+
+	public PersonImportResultDto(long records, long created, long rejected, long elapsedMillis, long rowsPerSecond,
+			List<LineError> errors) {
+		this.records = records;
+		this.created = created;
+		this.rejected = rejected;
+		this.elapsedMillis = elapsedMillis;
+		this.rowsPerSecond = rowsPerSecond;
+		this.errors = errors;
+	}
+
+	// Records read, not counting the header.
+	public long getRecords() {
+		return records;
+	}
+
+	public long getCreated() {
+		return created;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public long getRowsPerSecond() {
+		return rowsPerSecond;
+	}
+
+	// At most the requested number of errors; there are more if rejected is larger.
+	public List<LineError> getErrors() {
+		return errors;
+	}
+
+	@Override
+	public String toString() {
+		return "PersonImportResultDto [records=" + records + ", created=" + created + ", rejected=" + rejected
+				+ ", elapsedMillis=" + elapsedMillis + ", rowsPerSecond=" + rowsPerSecond + "]";
+	}
+
+}
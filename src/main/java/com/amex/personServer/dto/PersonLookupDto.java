@@ -0,0 +1,31 @@
+package com.amex.personServer.dto;
+
+import java.util.List;
+
+public class PersonLookupDto {
+	/**
+	 * Result of looking up many people by id.  people holds those found, in the order their ids
+	 * were requested; missingIds holds the requested ids for which there is no person.
+	 */
+	private List<PersonDto> people;
+	private List<Long> missingIds;
+	
+	public PersonLookupDto(List<PersonDto> people, List<Long> missingIds) {
+		this.people = people;
+		this.missingIds = missingIds;
+	}
+
+	public List<PersonDto> getPeople() {
+		return people;
+	}
+
+	public List<Long> getMissingIds() {
+		return missingIds;
+	}
+
+	@Override
+	public String toString() {
+		return "PersonLookupDto [people=" + people + ", missingIds=" + missingIds + "]";
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.amex.personServer.dto;
+
+import java.util.List;
+
+public class PersonPageDto {
+	/**
+	 * One page of a keyset-paginated walk over the people collection.  nextCursor is an opaque
+	 * token to be passed back as the "after" parameter to fetch the following page; it is null
+	 * when there are no more pages.
+	 */
+	private List<PersonDto> people;
+	private String nextCursor;
+	
+	public PersonPageDto(List<PersonDto> people, String nextCursor) {
+		this.people = people;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<PersonDto> getPeople() {
+		return people;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	@Override
+	public String toString() {
+		return "PersonPageDto [people=" + people + ", nextCursor=" + nextCursor + "]";
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.amex.personServer.dto;
+
+import java.util.Map;
+
+public class PersonStatsDto {
+	/**
+	 * Aggregate statistics of the people collection.  ageCounts and birthYearCounts are in
+	 * ascending order of age and year; emailDomainCounts holds the most common domains only,
+	 * most common first, and emailDomainCount is the number of distinct domains.  lastSeq is the
+	 * sequence number of the last change in the change log that the statistics reflect.
+	 */
+	private long count;
+	private Map<Integer, Long> ageCounts;
+	private Map<Integer, Long> birthYearCounts;
+	private Map<String, Long> emailDomainCounts;
+	private int emailDomainCount;
+	private long lastSeq;
+	
+	public PersonStatsDto(long count, Map<Integer, Long> ageCounts, Map<Integer, Long> birthYearCounts,
+			Map<String, Long> emailDomainCounts, int emailDomainCount, long lastSeq) {
+		this.count = count;
+		this.ageCounts = ageCounts;
+		this.birthYearCounts = birthYearCounts;
+		this.emailDomainCounts = emailDomainCounts;
+		this.emailDomainCount = emailDomainCount;
+		this.lastSeq = lastSeq;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public Map<Integer, Long> getAgeCounts() {
+		return ageCounts;
+	}
+
+	public Map<Integer, Long> getBirthYearCounts() {
+		return birthYearCounts;
+	}
+
+	public Map<String, Long> getEmailDomainCounts() {
+		return emailDomainCounts;
+	}
+
+	public int getEmailDomainCount() {
+		return emailDomainCount;
+	}
+
+	public long getLastSeq() {
+		return lastSeq;
+	}
+
+	@Override
+	public String toString() {
+		return "PersonStatsDto [count=" + count + ", ageCounts=" + ageCounts + ", birthYearCounts=" + birthYearCounts
+			+ ", emailDomainCounts=" + emailDomainCounts + ", emailDomainCount=" + emailDomainCount 
+			+ ", lastSeq=" + lastSeq + "]";
+	}
+
+}
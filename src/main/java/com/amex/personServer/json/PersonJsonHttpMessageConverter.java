@@ -0,0 +1,107 @@
+package com.amex.personServer.json;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import com.amex.personServer.domain.Person;
+import com.amex.personServer.dto.PersonDto;
+import com.amex.personServer.dto.PersonFieldsDto;
+import com.amex.personServer.readmodel.PersonRecord;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Reads PersonDto and List&lt;PersonDto&gt; request bodies with the PersonJsonReader, and writes
+ * Person, PersonRecord, PersonDto and PersonFieldsDto response bodies with the PersonJsonWriter, in place of
+ * Jackson's data binding.  Spring Boot puts converter beans ahead of its default ones, so this
+ * one is used for those types; everything else is still written by Jackson.  The json is read
+ * and written with the given JsonFactory, which may be for a binary form of json such as Smile.
+ */
+public class PersonJsonHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+	private final JsonFactory jsonFactory;
+
+	public PersonJsonHttpMessageConverter(JsonFactory jsonFactory, MediaType... supportedMediaTypes) {
+		super(supportedMediaTypes);
+		this.jsonFactory = jsonFactory;
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return PersonDto.class==clazz || Person.class==clazz || PersonRecord.class==clazz || PersonFieldsDto.class==clazz;
+	}
+
+	@Override
+	public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+		return (PersonDto.class==type || isListOfPersonDtos(type)) && canRead(mediaType);
+	}
+
+	@Override
+	public boolean canRead(Class<?> clazz, MediaType mediaType) {
+		return PersonDto.class==clazz && canRead(mediaType);
+	}
+
+	@Override
+	public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+		return canWrite(clazz, mediaType);
+	}
+
+	@Override
+	public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+		return supports(clazz) && canWrite(mediaType);
+	}
+
+	@Override
+	public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+		return read(type, inputMessage);
+	}
+
+	@Override
+	protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+		return read(clazz, inputMessage);
+	}
+
+	private Object read(Type type, HttpInputMessage inputMessage) throws IOException {
+		try (JsonParser parser = jsonFactory.createParser(inputMessage.getBody())) {
+			return PersonDto.class==type ? PersonJsonReader.readPersonDto(parser) : PersonJsonReader.readPersonDtos(parser);
+		} catch (JsonProcessingException e) {
+			throw new HttpMessageNotReadableException("JSON parse error: " + e.getOriginalMessage(), e);
+		}
+	}
+
+	@Override
+	protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+		// Flushed rather than closed, which would close the response's stream:
+		JsonGenerator generator = jsonFactory.createGenerator(outputMessage.getBody(), JsonEncoding.UTF8);
+		PersonJsonWriter writer = new PersonJsonWriter(generator);
+		if (value instanceof Person) {
+			writer.write((Person) value);
+		} else if (value instanceof PersonRecord) {
+			writer.write((PersonRecord) value);
+		} else if (value instanceof PersonFieldsDto) {
+			writer.write(((PersonFieldsDto) value).getFields(), ((PersonFieldsDto) value).getValues());
+		} else {
+			writer.write((PersonDto) value);
+		}
+		generator.flush();
+	}
+
+	private static boolean isListOfPersonDtos(Type type) {
+		if (!(type instanceof ParameterizedType)) {
+			return false;
+		}
+		ParameterizedType parameterizedType = (ParameterizedType) type;
+		return List.class==parameterizedType.getRawType() && PersonDto.class==parameterizedType.getActualTypeArguments()[0];
+	}
+}
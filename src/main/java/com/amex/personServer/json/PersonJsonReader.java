@@ -0,0 +1,122 @@
+package com.amex.personServer.json;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.amex.personServer.dto.PersonDto;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads PersonDto json objects from a JsonParser field by field, without bean introspection.
+ * It accepts what the server's ObjectMapper accepts for a PersonDto: unknown fields are skipped,
+ * numbers may be given as strings (an empty one being null) and strings as numbers or booleans.
+ */
+public final class PersonJsonReader {
+
+	private PersonJsonReader() {
+	}
+
+	/**
+	 * Reads the PersonDto starting at the parser's next token.
+	 *
+	 * @return the PersonDto, or null if the json is null.
+	 */
+	public static PersonDto readPersonDto(JsonParser parser) throws IOException {
+		return readPersonDto(parser, parser.nextToken());
+	}
+
+	/**
+	 * Reads the array of PersonDto's starting at the parser's next token.
+	 *
+	 * @return the PersonDto's, or null if the json is null.
+	 */
+	public static List<PersonDto> readPersonDtos(JsonParser parser) throws IOException {
+		JsonToken token = parser.nextToken();
+		if (JsonToken.VALUE_NULL==token) {
+			return null;
+		}
+		if (JsonToken.START_ARRAY!=token) {
+			throw new JsonParseException(parser, "Expected an array of people, not " + token);
+		}
+		List<PersonDto> personDtos = new ArrayList<>();
+		while (JsonToken.END_ARRAY!=(token = parser.nextToken())) {
+			personDtos.add(readPersonDto(parser, token));
+		}
+		return personDtos;
+	}
+
+	private static PersonDto readPersonDto(JsonParser parser, JsonToken token) throws IOException {
+		if (JsonToken.VALUE_NULL==token) {
+			return null;
+		}
+		if (JsonToken.START_OBJECT!=token) {
+			throw new JsonParseException(parser, "Expected a person object, not " + token);
+		}
+		PersonDto personDto = new PersonDto();
+		String fieldName;
+		while (null!=(fieldName = parser.nextFieldName())) {
+			token = parser.nextToken();
+			switch (fieldName) {
+			case "id":
+				personDto.setId(readLong(parser, token));
+				break;
+			case "name":
+				personDto.setName(readString(parser, token));
+				break;
+			case "age":
+				Long age = readLong(parser, token);
+				if (null!=age && (age < Integer.MIN_VALUE || age > Integer.MAX_VALUE)) {
+					throw new JsonParseException(parser, "age is out of range: " + age);
+				}
+				personDto.setAge(null==age ? null : age.intValue());
+				break;
+			case "dateOfBirth":
+				personDto.setDateOfBirth(readString(parser, token));
+				break;
+			case "emailAddress":
+				personDto.setEmailAddress(readString(parser, token));
+				break;
+			default:
+				// Unknown fields, and the version, which clients send as an If-Match header instead:
+				parser.skipChildren();
+			}
+		}
+		if (JsonToken.END_OBJECT!=parser.getCurrentToken()) {
+			throw new JsonParseException(parser, "Unexpected end of person object");
+		}
+		return personDto;
+	}
+
+	private static Long readLong(JsonParser parser, JsonToken token) throws IOException {
+		switch (token) {
+		case VALUE_NULL:
+			return null;
+		case VALUE_NUMBER_INT:
+		case VALUE_NUMBER_FLOAT:
+			return parser.getLongValue();
+		case VALUE_STRING:
+			String text = parser.getText().trim();
+			if (text.isEmpty()) {
+				return null;
+			}
+			try {
+				return Long.valueOf(text);
+			} catch (NumberFormatException e) {
+				throw new JsonParseException(parser, "Not a number: \"" + text + "\"", e);
+			}
+		default:
+			throw new JsonParseException(parser, "Expected a number, not " + token);
+		}
+	}
+
+	private static String readString(JsonParser parser, JsonToken token) throws IOException {
+		if (token.isScalarValue()) {
+			// Null for VALUE_NULL:
+			return parser.getValueAsString();
+		}
+		throw new JsonParseException(parser, "Expected a string, not " + token);
+	}
+}
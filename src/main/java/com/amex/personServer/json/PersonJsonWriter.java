@@ -0,0 +1,165 @@
+package com.amex.personServer.json;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+import com.amex.personServer.domain.DateOfBirthFormat;
+import com.amex.personServer.domain.Person;
+import com.amex.personServer.domain.PersonField;
+import com.amex.personServer.dto.PersonDto;
+import com.amex.personServer.readmodel.PersonRecord;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * Writes people as PersonDto json objects straight to a JsonGenerator, field by field: there's
+ * no bean introspection, no PersonDto is created for a Person or PersonRecord, and dates of
+ * birth are written as yyyy-MM-dd from a reused char buffer rather than through a formatter.
+ * The objects are the same as Jackson writes for the PersonDto.  Not thread-safe.
+ */
+public final class PersonJsonWriter {
+
+	// Field names, encoded once:
+	static final SerializableString ID = new SerializedString("id");
+	static final SerializableString NAME = new SerializedString("name");
+	static final SerializableString AGE = new SerializedString("age");
+	static final SerializableString DATE_OF_BIRTH = new SerializedString("dateOfBirth");
+	static final SerializableString EMAIL_ADDRESS = new SerializedString("emailAddress");
+
+	private final JsonGenerator generator;
+	private final char[] dateChars = new char[32];
+
+	public PersonJsonWriter(JsonGenerator generator) {
+		this.generator = generator;
+	}
+
+	public void write(Person person) throws IOException {
+		generator.writeStartObject();
+		writeId(person.getId());
+		writeName(person.getName());
+		writeAge(person.getAge());
+		writeDateOfBirth(person.getDateOfBirth());
+		writeEmailAddress(person.getEmailAddress());
+		generator.writeEndObject();
+	}
+
+	public void write(PersonRecord record) throws IOException {
+		generator.writeStartObject();
+		generator.writeFieldName(ID);
+		generator.writeNumber(record.getId());
+		writeName(record.getName());
+		generator.writeFieldName(AGE);
+		generator.writeNumber(record.getAge());
+		generator.writeFieldName(DATE_OF_BIRTH);
+		generator.writeString(dateChars, 0, DateOfBirthFormat.formatEpochDay(record.getDateOfBirthEpochDay(), dateChars));
+		writeEmailAddress(record.getEmailAddress());
+		generator.writeEndObject();
+	}
+
+	public void write(PersonDto personDto) throws IOException {
+		generator.writeStartObject();
+		writeId(personDto.getId());
+		writeName(personDto.getName());
+		writeAge(personDto.getAge());
+		generator.writeFieldName(DATE_OF_BIRTH);
+		generator.writeString(personDto.getDateOfBirth());
+		writeEmailAddress(personDto.getEmailAddress());
+		generator.writeEndObject();
+	}
+
+	/**
+	 * Writes an object of just the given fields, whose values are in the same order: as read by
+	 * PersonRepository.streamFields.
+	 */
+	public void write(PersonField[] fields, Object[] values) throws IOException {
+		generator.writeStartObject();
+		for (int i = 0; i < fields.length; i++) {
+			switch (fields[i]) {
+			case ID:
+				writeId((Long) values[i]);
+				break;
+			case NAME:
+				writeName((String) values[i]);
+				break;
+			case AGE:
+				writeAge((Integer) values[i]);
+				break;
+			case DATE_OF_BIRTH:
+				writeDateOfBirth((LocalDate) values[i]);
+				break;
+			case EMAIL_ADDRESS:
+				writeEmailAddress((String) values[i]);
+				break;
+			}
+		}
+		generator.writeEndObject();
+	}
+
+	/**
+	 * Writes an object of just the given fields of the record.
+	 */
+	public void write(PersonField[] fields, PersonRecord record) throws IOException {
+		generator.writeStartObject();
+		for (PersonField field : fields) {
+			switch (field) {
+			case ID:
+				generator.writeFieldName(ID);
+				generator.writeNumber(record.getId());
+				break;
+			case NAME:
+				writeName(record.getName());
+				break;
+			case AGE:
+				generator.writeFieldName(AGE);
+				generator.writeNumber(record.getAge());
+				break;
+			case DATE_OF_BIRTH:
+				generator.writeFieldName(DATE_OF_BIRTH);
+				generator.writeString(dateChars, 0, DateOfBirthFormat.formatEpochDay(record.getDateOfBirthEpochDay(), dateChars));
+				break;
+			case EMAIL_ADDRESS:
+				writeEmailAddress(record.getEmailAddress());
+				break;
+			}
+		}
+		generator.writeEndObject();
+	}
+
+	private void writeId(Long id) throws IOException {
+		generator.writeFieldName(ID);
+		if (null==id) {
+			generator.writeNull();
+		} else {
+			generator.writeNumber(id);
+		}
+	}
+
+	private void writeName(String name) throws IOException {
+		generator.writeFieldName(NAME);
+		generator.writeString(name);
+	}
+
+	private void writeAge(Integer age) throws IOException {
+		generator.writeFieldName(AGE);
+		if (null==age) {
+			generator.writeNull();
+		} else {
+			generator.writeNumber(age);
+		}
+	}
+
+	private void writeDateOfBirth(LocalDate dateOfBirth) throws IOException {
+		generator.writeFieldName(DATE_OF_BIRTH);
+		if (null==dateOfBirth) {
+			generator.writeNull();
+		} else {
+			generator.writeString(dateChars, 0, DateOfBirthFormat.format(dateOfBirth, dateChars));
+		}
+	}
+
+	private void writeEmailAddress(String emailAddress) throws IOException {
+		generator.writeFieldName(EMAIL_ADDRESS);
+		generator.writeString(emailAddress);
+	}
+}
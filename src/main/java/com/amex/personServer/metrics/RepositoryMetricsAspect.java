@@ -0,0 +1,52 @@
+package com.amex.personServer.metrics;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times every call to a PersonRepository method, recording it in the "person.repository" timer
+ * tagged with the method's name.  Timers are looked up once per method and then reused, so the
+ * cost per call is a map lookup and two clock reads.
+ * 
+ * Methods returning a Stream are timed only until the Stream is returned, not while it is read.
+ */
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+	
+	public static final String TIMER_NAME = "person.repository";
+	
+	@Autowired
+	MeterRegistry meterRegistry;
+	
+	private final ConcurrentMap<Method, Timer> timers = new ConcurrentHashMap<>();
+	
+	@Around("target(com.amex.personServer.repository.PersonRepository)")
+	public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+		Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+		Timer timer = timers.computeIfAbsent(method, key -> Timer.builder(TIMER_NAME)
+			.description("Time spent in PersonRepository methods")
+			.tag("method", key.getName())
+			.register(meterRegistry));
+		
+		long startTime = System.nanoTime();
+		try {
+			return joinPoint.proceed();
+		} finally {
+			timer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+		}
+	}
+
+}
@@ -0,0 +1,138 @@
+package com.amex.personServer.readmodel;
+
+import com.amex.personServer.domain.Person;
+
+/**
+ * Hash index from normalized email address to PersonRecord.  Each slot holds a record and the
+ * hash of its normalized email address, in two arrays; the address itself is not stored again,
+ * but is checked against the record on a hash match.  Holding the records themselves rather than
+ * their ids saves a lookup in the id map, and its cache misses, on every match.  Linear probing
+ * with backward-shift deletion, as in LongObjectHashMap, and the same rules for thread safety.
+ */
+final class EmailIndex {
+	
+	private static final int MIN_CAPACITY = 16;
+	private static final double MAX_LOAD = 0.7;
+	
+	private static final class Table {
+		final int[] hashes;
+		final PersonRecord[] records;
+		
+		Table(int capacity) {
+			hashes = new int[capacity];
+			records = new PersonRecord[capacity];
+		}
+	}
+	
+	private Table table;
+	private int size;
+	private int resizeThreshold;
+	
+	EmailIndex(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity * MAX_LOAD < expectedSize) {
+			capacity <<= 1;
+		}
+		setTable(new Table(capacity));
+	}
+	
+	boolean contains(String normalizedEmailAddress) {
+		int hash = normalizedEmailAddress.hashCode();
+		Table t = table;
+		int mask = t.records.length - 1;
+		int i = slot(hash, mask);
+		for (int probes = 0; probes <= mask; probes++) {
+			PersonRecord record = t.records[i];
+			if (null==record) {
+				return false;
+			}
+			// equalsIgnoreCase first, as it allocates nothing and rules out nearly every mismatch:
+			if (t.hashes[i] == hash && record.getEmailAddress().equalsIgnoreCase(normalizedEmailAddress)
+					&& normalizedEmailAddress.equals(Person.normalizeEmailAddress(record.getEmailAddress()))) {
+				return true;
+			}
+			i = (i + 1) & mask;
+		}
+		return false;
+	}
+	
+	void add(PersonRecord record) {
+		int hash = Person.normalizeEmailAddress(record.getEmailAddress()).hashCode();
+		int mask = table.records.length - 1;
+		int i = slot(hash, mask);
+		while (null!=table.records[i]) {
+			i = (i + 1) & mask;
+		}
+		table.hashes[i] = hash;
+		table.records[i] = record;
+		if (++size > resizeThreshold) {
+			resize();
+		}
+	}
+	
+	/**
+	 * Removes the record, which must be the same instance that was added.
+	 */
+	void remove(PersonRecord record) {
+		int hash = Person.normalizeEmailAddress(record.getEmailAddress()).hashCode();
+		int[] hashes = table.hashes;
+		PersonRecord[] records = table.records;
+		int mask = records.length - 1;
+		int i = slot(hash, mask);
+		while (records[i] != record) {
+			if (null==records[i]) {
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (null==records[j]) {
+				break;
+			}
+			int home = slot(hashes[j], mask);
+			boolean reachableWithoutI = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+			if (!reachableWithoutI) {
+				hashes[i] = hashes[j];
+				records[i] = records[j];
+				i = j;
+			}
+		}
+		records[i] = null;
+		hashes[i] = 0;
+		size--;
+	}
+	
+	int size() {
+		return size;
+	}
+	
+	private void resize() {
+		Table old = table;
+		Table resized = new Table(old.records.length << 1);
+		int mask = resized.records.length - 1;
+		for (int k = 0; k < old.records.length; k++) {
+			if (null!=old.records[k]) {
+				int i = slot(old.hashes[k], mask);
+				while (null!=resized.records[i]) {
+					i = (i + 1) & mask;
+				}
+				resized.hashes[i] = old.hashes[k];
+				resized.records[i] = old.records[k];
+			}
+		}
+		setTable(resized);
+	}
+	
+	private void setTable(Table table) {
+		this.table = table;
+		resizeThreshold = (int) (table.records.length * MAX_LOAD);
+	}
+	
+	private static int slot(int hash, int mask) {
+		return (int) ((hash * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+	}
+
+}
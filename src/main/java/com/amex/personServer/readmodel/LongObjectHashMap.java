@@ -0,0 +1,175 @@
+package com.amex.personServer.readmodel;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive long keys to objects, with linear probing and
+ * backward-shift deletion, so that neither keys nor entries are boxed.  Key 0 is reserved to
+ * mark free slots and cannot be stored.
+ * 
+ * Not thread safe.  get may be called during an optimistic read of a StampedLock that guards
+ * the writers, provided its result is only used if the stamp then validates: it neither loops
+ * forever nor throws when it races a writer.
+ */
+final class LongObjectHashMap<V> {
+	
+	private static final long FREE = 0;
+	private static final int MIN_CAPACITY = 16;
+	
+	// Resize once more than this fraction of the slots is used:
+	private static final double MAX_LOAD = 0.7;
+	
+	// The keys and values are swapped together on resize, so an optimistic reader always sees a
+	// matching pair of arrays.
+	private static final class Table {
+		final long[] keys;
+		final Object[] values;
+		
+		Table(int capacity) {
+			keys = new long[capacity];
+			values = new Object[capacity];
+		}
+	}
+	
+	private Table table;
+	private int size;
+	private int resizeThreshold;
+	
+	LongObjectHashMap(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity * MAX_LOAD < expectedSize) {
+			capacity <<= 1;
+		}
+		setTable(new Table(capacity));
+	}
+	
+	@SuppressWarnings("unchecked")
+	V get(long key) {
+		Table t = table;
+		int mask = t.keys.length - 1;
+		int i = slot(key, mask);
+		for (int probes = 0; probes <= mask; probes++) {
+			long k = t.keys[i];
+			if (k == key) {
+				return (V) t.values[i];
+			}
+			if (k == FREE) {
+				return null;
+			}
+			i = (i + 1) & mask;
+		}
+		return null;
+	}
+	
+	/**
+	 * @return the value previously stored for the key, or null.
+	 */
+	@SuppressWarnings("unchecked")
+	V put(long key, V value) {
+		if (key == FREE) {
+			throw new IllegalArgumentException("Key " + FREE + " is reserved");
+		}
+		int mask = table.keys.length - 1;
+		int i = slot(key, mask);
+		while (table.keys[i] != FREE) {
+			if (table.keys[i] == key) {
+				V previous = (V) table.values[i];
+				table.values[i] = value;
+				return previous;
+			}
+			i = (i + 1) & mask;
+		}
+		// Write the value before the key, so that a reader finding the key finds its value:
+		table.values[i] = value;
+		table.keys[i] = key;
+		if (++size > resizeThreshold) {
+			resize();
+		}
+		return null;
+	}
+	
+	/**
+	 * @return the value removed, or null if there was none.
+	 */
+	@SuppressWarnings("unchecked")
+	V remove(long key) {
+		long[] keys = table.keys;
+		Object[] values = table.values;
+		int mask = keys.length - 1;
+		int i = slot(key, mask);
+		while (keys[i] != key) {
+			if (keys[i] == FREE) {
+				return null;
+			}
+			i = (i + 1) & mask;
+		}
+		V removed = (V) values[i];
+		
+		// Move back any later entry of the probe sequence that could no longer be reached:
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (keys[j] == FREE) {
+				break;
+			}
+			int home = slot(keys[j], mask);
+			boolean reachableWithoutI = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+			if (!reachableWithoutI) {
+				keys[i] = keys[j];
+				values[i] = values[j];
+				i = j;
+			}
+		}
+		keys[i] = FREE;
+		values[i] = null;
+		size--;
+		return removed;
+	}
+	
+	int size() {
+		return size;
+	}
+	
+	/**
+	 * @return the keys, in ascending order.
+	 */
+	long[] sortedKeys() {
+		long[] sortedKeys = new long[size];
+		int n = 0;
+		for (long key : table.keys) {
+			if (key != FREE) {
+				sortedKeys[n++] = key;
+			}
+		}
+		Arrays.sort(sortedKeys);
+		return sortedKeys;
+	}
+	
+	private void resize() {
+		Table old = table;
+		Table resized = new Table(old.keys.length << 1);
+		int mask = resized.keys.length - 1;
+		for (int k = 0; k < old.keys.length; k++) {
+			if (old.keys[k] != FREE) {
+				int i = slot(old.keys[k], mask);
+				while (resized.keys[i] != FREE) {
+					i = (i + 1) & mask;
+				}
+				resized.keys[i] = old.keys[k];
+				resized.values[i] = old.values[k];
+			}
+		}
+		setTable(resized);
+	}
+	
+	private void setTable(Table table) {
+		this.table = table;
+		resizeThreshold = (int) (table.keys.length * MAX_LOAD);
+	}
+	
+	// Ids are sequential, so spread their bits over the table:
+	private static int slot(long key, int mask) {
+		return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+	}
+
+}
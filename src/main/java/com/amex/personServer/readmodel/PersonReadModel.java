@@ -0,0 +1,225 @@
+package com.amex.personServer.readmodel;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.amex.personServer.changes.PersonChange;
+import com.amex.personServer.changes.PersonChangeListener;
+import com.amex.personServer.changes.PersonChangeLog;
+import com.amex.personServer.domain.Person;
+import com.amex.personServer.repository.PersonRepository;
+
+/**
+ * In-memory copy of the Person table, from which the PersonController serves reads and the
+ * PersonService checks for duplicate emails without going to the DB.  Enabled by setting
+ * person.read-model.enabled=true.
+ * 
+ * People are held as PersonRecords in a LongObjectHashMap keyed by id, with an EmailIndex on
+ * their normalized email addresses, so lookups box nothing and each person costs a record, its
+ * two strings and a few slots rather than a managed entity.  A StampedLock guards both: writers take the
+ * write lock, and lookups read optimistically, only falling back to the read lock when a write
+ * raced them.
+ * 
+ * The model is loaded from the table when the application context has started, before the web
+ * server accepts requests, and is then kept up to date as a PersonChangeListener, so it
+ * reflects each change made through the PersonService in the order they were committed.
+ * Changes made to the table by other means are not seen.
+ */
+@Component
+@ConditionalOnProperty(name = "person.read-model.enabled", havingValue = "true")
+public class PersonReadModel implements PersonChangeListener {
+	
+	private static final Logger logger = LoggerFactory.getLogger(PersonReadModel.class);
+	
+	@Autowired
+	PersonRepository personRepository;
+	
+	@Autowired
+	PersonChangeLog personChangeLog;
+	
+	@Autowired
+	PlatformTransactionManager transactionManager;
+	
+	@PersistenceContext
+	EntityManager entityManager;
+	
+	private final StampedLock lock = new StampedLock();
+	
+	// Guarded by lock:
+	private final LongObjectHashMap<PersonRecord> records = new LongObjectHashMap<>(1024);
+	private final EmailIndex emailIndex = new EmailIndex(1024);
+	private long lastSeq;
+	
+	// Ids changed while the table is being loaded; the rows loaded for them are out of date.
+	// Guarded by lock; null once loaded.
+	private LongObjectHashMap<Boolean> changedWhileLoading = new LongObjectHashMap<>(16);
+	
+	@EventListener(ContextRefreshedEvent.class)
+	public void load() {
+		synchronized (this) {
+			if (null==changedWhileLoading) {
+				return;
+			}
+			
+			long startTime = System.currentTimeMillis();
+			long loadedFromSeq = personChangeLog.addListener(this);
+			long stamp = lock.writeLock();
+			try {
+				lastSeq = Math.max(lastSeq, loadedFromSeq);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+			
+			TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+			transactionTemplate.setReadOnly(true);
+			transactionTemplate.execute(status -> {
+				try (Stream<Person> people = personRepository.streamAll()) {
+					people.forEach(person -> {
+						loadPerson(person);
+						entityManager.detach(person);
+					});
+				}
+				return null;
+			});
+			
+			stamp = lock.writeLock();
+			try {
+				changedWhileLoading = null;
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+			logger.info("Loaded " + size() + " people in " + (System.currentTimeMillis() - startTime) + "ms");
+		}
+	}
+	
+	@Override
+	public void onChange(PersonChange change) {
+		long stamp = lock.writeLock();
+		try {
+			PersonRecord record = null==change.getPerson() ? null : PersonRecord.of(change.getPerson());
+			PersonRecord previous = null==record
+				? records.remove(change.getPersonId())
+				: records.put(change.getPersonId(), record);
+			if (null!=previous) {
+				emailIndex.remove(previous);
+			}
+			if (null!=record) {
+				emailIndex.add(record);
+			}
+			if (null!=changedWhileLoading) {
+				changedWhileLoading.put(change.getPersonId(), Boolean.TRUE);
+			}
+			lastSeq = change.getSeq();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	/**
+	 * @return the person, or null if there is no person with the id.
+	 */
+	public PersonRecord get(long id) {
+		long stamp = lock.tryOptimisticRead();
+		PersonRecord record = records.get(id);
+		if (lock.validate(stamp)) {
+			return record;
+		}
+		stamp = lock.readLock();
+		try {
+			return records.get(id);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	/**
+	 * @return whether a person has the email address, ignoring case.
+	 */
+	public boolean containsEmailAddress(String emailAddress) {
+		String normalizedEmailAddress = Person.normalizeEmailAddress(emailAddress);
+		long stamp = lock.tryOptimisticRead();
+		boolean contains = emailIndex.contains(normalizedEmailAddress);
+		if (lock.validate(stamp)) {
+			return contains;
+		}
+		stamp = lock.readLock();
+		try {
+			return emailIndex.contains(normalizedEmailAddress);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	/**
+	 * Passes every person to the consumer, in id order.  The people are those present when the
+	 * call starts, less any deleted before the consumer reaches them, and each is as it is when
+	 * the consumer reaches it.
+	 */
+	public void forEachPerson(Consumer<PersonRecord> consumer) {
+		long[] ids;
+		long stamp = lock.readLock();
+		try {
+			ids = records.sortedKeys();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+		for (long id : ids) {
+			PersonRecord record = get(id);
+			if (null!=record) {
+				consumer.accept(record);
+			}
+		}
+	}
+	
+	/**
+	 * @return the sequence number in the PersonChangeLog of the last change applied to the model.
+	 */
+	public long getLastSeq() {
+		long stamp = lock.readLock();
+		try {
+			return lastSeq;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	public int size() {
+		long stamp = lock.readLock();
+		try {
+			return records.size();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	private void loadPerson(Person person) {
+		long stamp = lock.writeLock();
+		try {
+			if (null==changedWhileLoading.get(person.getId())) {
+				PersonRecord record = PersonRecord.of(person);
+				PersonRecord previous = records.put(person.getId(), record);
+				if (null!=previous) {
+					emailIndex.remove(previous);
+				}
+				emailIndex.add(record);
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+}
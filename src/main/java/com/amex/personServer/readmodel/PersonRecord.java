@@ -0,0 +1,64 @@
+package com.amex.personServer.readmodel;
+
+import java.time.LocalDate;
+
+import com.amex.personServer.domain.Person;
+
+/**
+ * Compact, immutable copy of a Person held by the PersonReadModel: primitive fields in place
+ * of the entity's boxed ones, and only the columns that are served.
+ */
+public final class PersonRecord {
+	
+	private final long id;
+	private final String name;
+	private final int age;
+	private final int dateOfBirthEpochDay;
+	private final String emailAddress;
+	private final long version;
+	
+	private PersonRecord(Person person) {
+		this.id = person.getId();
+		this.name = person.getName();
+		this.age = person.getAge();
+		this.dateOfBirthEpochDay = (int) person.getDateOfBirth().toEpochDay();
+		this.emailAddress = person.getEmailAddress();
+		this.version = person.getVersion();
+	}
+	
+	static PersonRecord of(Person person) {
+		return new PersonRecord(person);
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getAge() {
+		return age;
+	}
+
+	public LocalDate getDateOfBirth() {
+		return LocalDate.ofEpochDay(dateOfBirthEpochDay);
+	}
+
+	/**
+	 * @return getDateOfBirth().toEpochDay(), without creating the LocalDate.
+	 */
+	public int getDateOfBirthEpochDay() {
+		return dateOfBirthEpochDay;
+	}
+
+	public String getEmailAddress() {
+		return emailAddress;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+}
@@ -0,0 +1,25 @@
+package com.amex.personServer.repository;
+
+import java.util.Set;
+
+import com.amex.personServer.domain.Person;
+import com.amex.personServer.domain.PersonField;
+
+/**
+ * Updates of just some of a Person's fields, as a single UPDATE of their columns alone.
+ */
+public interface PersonFieldUpdatesRepository {
+
+	/**
+	 * Sets the fields given to their values in the Person passed, without reading the row first,
+	 * and increments the person's version.  The email address's normalized copy and domain are
+	 * set along with it.
+	 *
+	 * @param values holds the new values of the fields; its other fields are ignored.
+	 * @param fields the fields to set; not ID, and not empty.
+	 * @param expectedVersion the version the person must have to be updated, or null to update it
+	 *  whatever its version.
+	 * @return the number of rows updated: 0 if there is no Person with the id (and version).
+	 */
+	int updateFields(Long id, Person values, Set<PersonField> fields, Long expectedVersion);
+}
@@ -0,0 +1,70 @@
+package com.amex.personServer.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+
+import com.amex.personServer.domain.Person;
+import com.amex.personServer.domain.PersonField;
+
+/**
+ * Spring Data picks this up as the implementation of PersonRepository's
+ * PersonFieldUpdatesRepository methods.  The UPDATE is JPQL setting the fields' columns, built
+ * per call since any combination of fields may be set.  The values are bound as parameters, so
+ * the statement is the same for every person with the same fields changed.
+ */
+public class PersonFieldUpdatesRepositoryImpl implements PersonFieldUpdatesRepository {
+
+	@PersistenceContext
+	EntityManager entityManager;
+
+	@Override
+	public int updateFields(Long id, Person values, Set<PersonField> fields, Long expectedVersion) {
+		if (fields.isEmpty() || fields.contains(PersonField.ID)) {
+			throw new IllegalArgumentException("Can only update fields other than id, and at least one: " + fields);
+		}
+		StringBuilder jpql = new StringBuilder("update Person p set ");
+		List<Object> parameters = new ArrayList<>();
+		for (PersonField field : fields) {
+			switch (field) {
+			case NAME:
+				set(jpql, parameters, "name", values.getName());
+				break;
+			case AGE:
+				set(jpql, parameters, "age", values.getAge());
+				break;
+			case DATE_OF_BIRTH:
+				set(jpql, parameters, "dateOfBirth", values.getDateOfBirth());
+				break;
+			case EMAIL_ADDRESS:
+				set(jpql, parameters, "emailAddress", values.getEmailAddress());
+				set(jpql, parameters, "normalizedEmailAddress", values.getNormalizedEmailAddress());
+				set(jpql, parameters, "emailDomain", values.getEmailDomain());
+				break;
+			case ID:
+				break;
+			}
+		}
+		jpql.append("p.version = p.version + 1 where p.id = ?").append(parameters.size() + 1);
+		parameters.add(id);
+		if (null!=expectedVersion) {
+			jpql.append(" and p.version = ?").append(parameters.size() + 1);
+			parameters.add(expectedVersion);
+		}
+
+		Query query = entityManager.createQuery(jpql.toString());
+		for (int i = 0; i < parameters.size(); i++) {
+			query.setParameter(i + 1, parameters.get(i));
+		}
+		return query.executeUpdate();
+	}
+
+	private static void set(StringBuilder jpql, List<Object> parameters, String propertyName, Object value) {
+		parameters.add(value);
+		jpql.append("p.").append(propertyName).append(" = ?").append(parameters.size()).append(", ");
+	}
+}
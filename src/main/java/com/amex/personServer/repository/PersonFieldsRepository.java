@@ -0,0 +1,25 @@
+package com.amex.personServer.repository;
+
+import java.util.stream.Stream;
+
+import com.amex.personServer.domain.PersonField;
+
+/**
+ * Projections of Person onto just the fields a client asked for: the queries select only
+ * those columns, and return them as plain values rather than entities.
+ */
+public interface PersonFieldsRepository {
+
+	/**
+	 * @return the values of the person's fields, in the order given, followed by the person's
+	 *  version; or null if there is no person with the id.
+	 */
+	Object[] findFieldsById(Long id, PersonField[] fields);
+
+	/**
+	 * Reads the values of the fields, in the order given, of every Person in id order through
+	 * a forward-only cursor.  The Stream must be consumed and closed within the caller's
+	 * transaction.
+	 */
+	Stream<Object[]> streamFields(PersonField[] fields);
+}
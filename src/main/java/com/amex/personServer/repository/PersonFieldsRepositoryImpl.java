@@ -0,0 +1,49 @@
+package com.amex.personServer.repository;
+
+import static org.hibernate.annotations.QueryHints.FETCH_SIZE;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+
+import com.amex.personServer.domain.PersonField;
+
+/**
+ * Spring Data picks this up as the implementation of PersonRepository's PersonFieldsRepository
+ * methods.  The queries are JPQL selecting the fields' columns, built per call since any
+ * combination of fields may be asked for.
+ */
+public class PersonFieldsRepositoryImpl implements PersonFieldsRepository {
+
+	@PersistenceContext
+	EntityManager entityManager;
+
+	@Override
+	public Object[] findFieldsById(Long id, PersonField[] fields) {
+		List<?> rows = entityManager.createQuery("select " + columns(fields) + ", p.version from Person p where p.id = ?1")
+			.setParameter(1, id)
+			.getResultList();
+		return rows.isEmpty() ? null : (Object[]) rows.get(0);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Stream<Object[]> streamFields(PersonField[] fields) {
+		Query query = entityManager.createQuery("select " + columns(fields) + " from Person p order by p.id")
+			.setHint(FETCH_SIZE, PersonRepository.STREAM_FETCH_SIZE);
+		Stream<?> rows = query.unwrap(org.hibernate.query.Query.class).stream();
+		// A query selecting one column returns its values alone:
+		return 1==fields.length ? rows.map(value -> new Object[] {value}) : (Stream<Object[]>) rows;
+	}
+
+	private static String columns(PersonField[] fields) {
+		return Arrays.stream(fields)
+			.map(field -> "p." + field.getPropertyName())
+			.collect(Collectors.joining(", "));
+	}
+}
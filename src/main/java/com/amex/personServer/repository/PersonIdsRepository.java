@@ -0,0 +1,22 @@
+package com.amex.personServer.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.amex.personServer.domain.Person;
+
+/**
+ * Ids of the people matching a Specification, read without loading the people.
+ */
+public interface PersonIdsRepository {
+
+	/**
+	 * Keyset pagination over the ids of the people matching the specification, locking their
+	 * rows until the end of the caller's transaction, so that they can be changed knowing that
+	 * they still exist and still match.
+	 *
+	 * @return at most limit ids greater than afterId (if it is not null), in order.
+	 */
+	List<Long> findIdsForUpdate(Specification<Person> specification, Long afterId, int limit);
+}
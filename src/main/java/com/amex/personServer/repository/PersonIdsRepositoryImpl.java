@@ -0,0 +1,41 @@
+package com.amex.personServer.repository;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.amex.personServer.domain.Person;
+
+/**
+ * Spring Data picks this up as the implementation of PersonRepository's PersonIdsRepository
+ * methods.
+ */
+public class PersonIdsRepositoryImpl implements PersonIdsRepository {
+
+	@PersistenceContext
+	EntityManager entityManager;
+
+	@Override
+	public List<Long> findIdsForUpdate(Specification<Person> specification, Long afterId, int limit) {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Long> query = builder.createQuery(Long.class);
+		Root<Person> root = query.from(Person.class);
+		query.select(root.get("id"))
+			.where(Specification.where(specification)
+				.and((person, personQuery, personBuilder) -> null==afterId ? null 
+					: personBuilder.greaterThan(person.get("id"), afterId))
+				.toPredicate(root, query, builder))
+			.orderBy(builder.asc(root.get("id")));
+		return entityManager.createQuery(query)
+			.setLockMode(LockModeType.PESSIMISTIC_WRITE)
+			.setMaxResults(limit)
+			.getResultList();
+	}
+}
@@ -1,9 +1,24 @@
 package com.amex.personServer.repository;
 	 
-import org.springframework.data.domain.Page;
-import org.springframework.data.repository.PagingAndSortingRepository;
+import static org.hibernate.annotations.QueryHints.FETCH_SIZE;
+import static org.hibernate.annotations.QueryHints.READ_ONLY;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
@@ -13,8 +28,123 @@ import com.amex.personServer.domain.Person;
 @Repository
 @RepositoryRestResource(exported=false)
 @Transactional
-public interface PersonRepository extends PagingAndSortingRepository<Person, Long>{	
+public interface PersonRepository extends JpaRepository<Person, Long>, JpaSpecificationExecutor<Person>,
+		PersonFieldsRepository, PersonIdsRepository, PersonFieldUpdatesRepository {	
+		
+		// Number of rows the JDBC driver fetches per round trip when streaming:
+		int STREAM_FETCH_SIZE = 1000;
+		
 		Optional<Person> findById(Long id);
 		Optional<Person> findByEmailAddressIgnoreCase(String emailAddress);
+		
+		/**
+		 * Indexed, case-insensitive email lookup.
+		 * @param normalizedEmailAddress an address already normalized with Person.normalizeEmailAddress
+		 */
+		boolean existsByNormalizedEmailAddress(String normalizedEmailAddress);
+		
+		/**
+		 * Set-based form of existsByNormalizedEmailAddress.
+		 * @return those of the given normalized addresses that already belong to a Person.
+		 */
+		@Query("select p.normalizedEmailAddress from Person p where p.normalizedEmailAddress in ?1")
+		List<String> findExistingNormalizedEmailAddresses(Collection<String> normalizedEmailAddresses);
+		
+		List<Person> findByIdIn(Collection<Long> ids);
+		
+		/**
+		 * Keyset pagination: returns the people with ids greater than the given id, in id order.
+		 * Only the page size of the Pageable is meaningful (pass page 0), so each call is a
+		 * single range scan of the primary key index however deep into the table it starts.
+		 */
+		List<Person> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+		
+		/**
+		 * Overwrites all of a Person's fields in a single UPDATE, without reading the row first,
+		 * and increments its version.
+		 * @return the number of rows updated: 0 if there is no Person with the id.
+		 */
+		@Modifying
+		@Query("update Person p set p.name = ?2, p.age = ?3, p.dateOfBirth = ?4, p.emailAddress = ?5, "
+			+ "p.normalizedEmailAddress = ?6, p.emailDomain = ?7, p.version = p.version + 1 where p.id = ?1")
+		int update(Long id, String name, Integer age, LocalDate dateOfBirth, String emailAddress,
+			String normalizedEmailAddress, String emailDomain);
+		
+		/**
+		 * As update, but only updates the Person if its version is still the expected one.
+		 * @return the number of rows updated: 0 if there is no Person with the id and version.
+		 */
+		@Modifying
+		@Query("update Person p set p.name = ?2, p.age = ?3, p.dateOfBirth = ?4, p.emailAddress = ?5, "
+			+ "p.normalizedEmailAddress = ?6, p.emailDomain = ?7, p.version = p.version + 1 "
+			+ "where p.id = ?1 and p.version = ?8")
+		int updateIfVersionMatches(Long id, String name, Integer age, LocalDate dateOfBirth, String emailAddress,
+			String normalizedEmailAddress, String emailDomain, Long expectedVersion);
+		
+		/**
+		 * @return the Person's version, or null if there is no Person with the id.
+		 */
+		@Query("select p.version from Person p where p.id = ?1")
+		Long findVersionById(Long id);
+		
+		/**
+		 * Deletes a Person in a single DELETE, without reading the row first.
+		 * @return the number of rows deleted: 0 if there is no Person with the id.
+		 */
+		@Modifying
+		@Query("delete from Person p where p.id = ?1")
+		int deleteRow(Long id);
+		
+		/**
+		 * Deletes the people with the ids in a single DELETE, without reading the rows first.
+		 * @return the number of rows deleted.
+		 */
+		@Modifying
+		@Query("delete from Person p where p.id in ?1")
+		int deleteRows(Collection<Long> ids);
+		
+		/**
+		 * @return those of the ids that belong to a Person, whose rows are then locked until the
+		 *  end of the caller's transaction.
+		 */
+		@Lock(LockModeType.PESSIMISTIC_WRITE)
+		@Query("select p.id from Person p where p.id in ?1")
+		List<Long> lockExistingIds(Collection<Long> ids);
+		
+		/**
+		 * Reads every Person in id order through a forward-only cursor.  The Stream must be
+		 * consumed and closed within the caller's transaction.  Entities are loaded read-only,
+		 * so callers should detach them once used to keep the persistence context from growing.
+		 */
+		@Query("select p from Person p order by p.id")
+		@QueryHints({
+			@QueryHint(name = FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+			@QueryHint(name = READ_ONLY, value = "true") })
+		Stream<Person> streamAll();
+		
+		@Query("select min(p.id) from Person p")
+		Long findMinId();
+		
+		@Query("select max(p.id) from Person p")
+		Long findMaxId();
+		
+		/**
+		 * Reads just the columns that PersonStats counts by (id, age, dateOfBirth, emailDomain) for
+		 * the people with ids in a range, through a forward-only cursor, without creating entities.
+		 * The Stream must be consumed and closed within the caller's transaction.
+		 */
+		@Query("select p.id, p.age, p.dateOfBirth, p.emailDomain from Person p where p.id between ?1 and ?2")
+		@QueryHints(@QueryHint(name = FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+		Stream<Object[]> streamStatsColumns(Long fromId, Long toId);
+		
+		/**
+		 * Reads the columns of a PersonDto (id, name, age, dateOfBirth, emailAddress) for the people
+		 * with ids in a range, in id order, through a forward-only cursor, without creating entities.
+		 * The Stream must be consumed and closed within the caller's transaction.
+		 */
+		@Query("select p.id, p.name, p.age, p.dateOfBirth, p.emailAddress from Person p "
+			+ "where p.id between ?1 and ?2 order by p.id")
+		@QueryHints(@QueryHint(name = FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+		Stream<Object[]> streamDtoColumns(Long fromId, Long toId);
 	 
 	}
\ No newline at end of file
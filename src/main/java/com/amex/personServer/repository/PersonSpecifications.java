@@ -0,0 +1,84 @@
+package com.amex.personServer.repository;
+
+import java.time.LocalDate;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.amex.personServer.domain.Person;
+
+/**
+ * Search criteria for PersonRepository.findAll(Specification, ...).  Each criterion compares a
+ * single indexed column of the Person table, so that combinations of them can be served from
+ * the indexes declared on Person.  A null bound or value means "no restriction", allowing
+ * callers to combine criteria without checking which were supplied.
+ */
+public final class PersonSpecifications {
+	
+	private static final char LIKE_ESCAPE = '\\';
+	
+	private PersonSpecifications() {
+	}
+	
+	/**
+	 * @return people whose age is between the bounds, inclusive.
+	 */
+	public static Specification<Person> ageBetween(Integer minAge, Integer maxAge) {
+		return (root, query, builder) -> {
+			if (null!=minAge && null!=maxAge) {
+				return builder.between(root.get("age"), minAge, maxAge);
+			} else if (null!=minAge) {
+				return builder.greaterThanOrEqualTo(root.get("age"), minAge);
+			} else if (null!=maxAge) {
+				return builder.lessThanOrEqualTo(root.get("age"), maxAge);
+			}
+			return null;
+		};
+	}
+	
+	/**
+	 * @return people born between the dates, inclusive.
+	 */
+	public static Specification<Person> bornBetween(LocalDate from, LocalDate to) {
+		return (root, query, builder) -> {
+			if (null!=from && null!=to) {
+				return builder.between(root.get("dateOfBirth"), from, to);
+			} else if (null!=from) {
+				return builder.greaterThanOrEqualTo(root.get("dateOfBirth"), from);
+			} else if (null!=to) {
+				return builder.lessThanOrEqualTo(root.get("dateOfBirth"), to);
+			}
+			return null;
+		};
+	}
+	
+	/**
+	 * @return people whose name starts with the prefix.  The comparison is case-sensitive, which
+	 *  lets it be served by a range scan of the name index.
+	 */
+	public static Specification<Person> nameStartsWith(String prefix) {
+		return (root, query, builder) -> null==prefix || prefix.isEmpty() ? null
+			: builder.like(root.get("name"), escapeLike(prefix) + "%", LIKE_ESCAPE);
+	}
+	
+	/**
+	 * @return people whose email address is in the domain, ignoring case.
+	 */
+	public static Specification<Person> emailDomainIs(String domain) {
+		return (root, query, builder) -> null==domain || domain.isEmpty() ? null
+			: builder.equal(root.get("emailDomain"), Person.emailDomainOf("@" + domain));
+	}
+	
+	// Escapes the LIKE wildcards in a literal string.
+	private static String escapeLike(String literal) {
+		StringBuilder escaped = new StringBuilder(literal.length() + 8);
+		for (int i = 0; i < literal.length(); i++) {
+			char c = literal.charAt(i);
+			if ('%'==c || '_'==c || LIKE_ESCAPE==c) {
+				escaped.append(LIKE_ESCAPE);
+			}
+			escaped.append(c);
+		}
+		return escaped.toString();
+	}
+
+}
@@ -0,0 +1,233 @@
+package com.amex.personServer.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.amex.personServer.domain.Person;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Creates people in groups, each in one transaction, so that a burst of concurrent creates pays
+ * for one commit per group rather than one per person.  Enabled by setting
+ * person.group-commit.enabled=true, in which case the PersonController creates people through
+ * it.
+ *
+ * Callers are validated on their own threads and then queue their person on a bounded queue,
+ * blocking while it is full, and wait.  A single writer thread takes the queue in groups of up
+ * to person.group-commit.max-size people, waiting at most person.group-commit.max-delay-ms after
+ * the first for the rest to arrive, and creates each group with PersonService.createAllValidated:
+ * duplicate emails are checked for the whole group with set-based queries and the people are
+ * inserted in JDBC batches.  Each caller returns once its group has committed, with the outcome
+ * PersonService.create would have given it: the created person, or an IllegalArgumentException
+ * if its email is a duplicate, including of another person earlier in the same group.  Should a
+ * group fail as a whole, as when a concurrent writer inserts one of its emails, its people are
+ * created one at a time instead.
+ *
+ * As a MeterBinder, publishes the counts of groups committed (person.group-commit.groups), of
+ * the creates they covered (person.group-commit.creates) and of groups that failed and were
+ * created one at a time (person.group-commit.fallbacks).
+ */
+@Component
+@ConditionalOnProperty(name = "person.group-commit.enabled", havingValue = "true")
+public class PersonGroupCommitter implements MeterBinder {
+
+	private static final Logger logger = LoggerFactory.getLogger(PersonGroupCommitter.class);
+
+	@Autowired
+	PersonService personService;
+
+	@Value("${person.group-commit.max-size:50}")
+	int maxSize;
+
+	@Value("${person.group-commit.max-delay-ms:5}")
+	long maxDelayMillis;
+
+	@Value("${person.group-commit.queue-capacity:10000}")
+	int queueCapacity;
+
+	private BlockingQueue<PendingCreate> queue;
+
+	private Thread writer;
+
+	private final LongAdder groupCount = new LongAdder();
+	private final LongAdder createCount = new LongAdder();
+	private final LongAdder fallbackCount = new LongAdder();
+
+	@PostConstruct
+	public void start() {
+		queue = new ArrayBlockingQueue<>(queueCapacity);
+		writer = new Thread(this::write, "person-group-commit");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		writer.interrupt();
+		writer.join();
+		List<PendingCreate> abandoned = new ArrayList<>();
+		queue.drainTo(abandoned);
+		fail(abandoned, new IllegalStateException("Shutting down; the person was not created"));
+	}
+
+	/**
+	 * Creates a person as PersonService.create does, returning once the group it is created in
+	 * has committed.
+	 *
+	 * @return the same Person object reference passed in as a parameter, with its id and version set.
+	 * @throws IllegalArgumentException if the person is invalid or its email address is a duplicate.
+	 */
+	public Person create(Person person) {
+		PersonService.validatePerson(person);
+		PendingCreate pending = new PendingCreate(person);
+		try {
+			queue.put(pending);
+			return pending.result.get();
+		} catch (InterruptedException e) {
+			// The person may yet be created; the caller is no longer waiting to hear:
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted waiting for the person to be created");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	// Runs on the writer thread until it is interrupted.
+	private void write() {
+		List<PendingCreate> group = new ArrayList<>(maxSize);
+		try {
+			while (true) {
+				group.add(queue.take());
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+				while (group.size() < maxSize) {
+					if (queue.drainTo(group, maxSize - group.size()) > 0) {
+						continue;
+					}
+					PendingCreate next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+					if (null==next) {
+						break;
+					}
+					group.add(next);
+				}
+				commit(group);
+				group.clear();
+			}
+		} catch (InterruptedException e) {
+			fail(group, new IllegalStateException("Shutting down; the person was not created"));
+		}
+	}
+
+	// Creates the group's people in one transaction, or failing that one at a time, and tells each
+	// caller the outcome.
+	private void commit(List<PendingCreate> group) {
+		List<Person> people = new ArrayList<>(group.size());
+		for (PendingCreate pending : group) {
+			people.add(pending.person);
+		}
+		try {
+			List<String> errors;
+			try {
+				errors = personService.createAllValidated(people);
+			} catch (RuntimeException e) {
+				logger.debug("Group of {} people failed; creating them one at a time", group.size(), e);
+				fallbackCount.increment();
+				createOneAtATime(group);
+				return;
+			}
+			groupCount.increment();
+			createCount.add(group.size());
+			for (int i = 0; i < group.size(); i++) {
+				PendingCreate pending = group.get(i);
+				if (null==errors.get(i)) {
+					pending.result.complete(pending.person);
+				} else {
+					// The people were validated by their callers, so only their emails can be rejected:
+					pending.result.completeExceptionally(new IllegalArgumentException(
+						"Duplicate email address: " + pending.person.getEmailAddress()));
+				}
+			}
+		} catch (Throwable t) {
+			logger.error("Group commit failed", t);
+			fail(group, t);
+		}
+	}
+
+	private void createOneAtATime(List<PendingCreate> group) {
+		for (PendingCreate pending : group) {
+			// Forget the id and version given in the rolled back transaction:
+			pending.person.setId(null);
+			pending.person.setVersion(null);
+			try {
+				pending.result.complete(personService.create(pending.person));
+			} catch (RuntimeException e) {
+				pending.result.completeExceptionally(e);
+			}
+		}
+	}
+
+	public long getGroupCount() {
+		return groupCount.sum();
+	}
+
+	public long getCreateCount() {
+		return createCount.sum();
+	}
+
+	public long getFallbackCount() {
+		return fallbackCount.sum();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("person.group-commit.groups", this, PersonGroupCommitter::getGroupCount)
+			.description("Groups of creates committed in one transaction")
+			.register(registry);
+		FunctionCounter.builder("person.group-commit.creates", this, PersonGroupCommitter::getCreateCount)
+			.description("Creates covered by the groups committed")
+			.register(registry);
+		FunctionCounter.builder("person.group-commit.fallbacks", this, PersonGroupCommitter::getFallbackCount)
+			.description("Groups that failed as a whole and were created one at a time")
+			.register(registry);
+	}
+
+	private static void fail(List<PendingCreate> pendingCreates, Throwable cause) {
+		for (PendingCreate pending : pendingCreates) {
+			pending.result.completeExceptionally(cause);
+		}
+	}
+
+	private static final class PendingCreate {
+		final Person person;
+		final CompletableFuture<Person> result = new CompletableFuture<>();
+
+		PendingCreate(Person person) {
+			this.person = person;
+		}
+	}
+}
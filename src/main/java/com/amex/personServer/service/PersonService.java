@@ -1,13 +1,43 @@
 package com.amex.personServer.service;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.amex.personServer.cache.PersonDtoCache;
+import com.amex.personServer.cache.SingleFlight;
+import com.amex.personServer.changes.PersonChange;
+import com.amex.personServer.changes.PersonChangeLog;
 import com.amex.personServer.domain.Person;
+import com.amex.personServer.domain.PersonField;
+import com.amex.personServer.readmodel.PersonReadModel;
 import com.amex.personServer.repository.PersonRepository;
 
 @Service
@@ -15,7 +45,8 @@ import com.amex.personServer.repository.PersonRepository;
 /**
  * 
  * Service providing transactional business logic for modifying the Person table.  Any unchecked
- * repository exceptions will be passed back to the caller.
+ * repository exceptions will be passed back to the caller.  Every change is recorded in the
+ * PersonChangeLog.
  *
  * @author David Kalfus
  *
@@ -25,6 +56,28 @@ public class PersonService {
 	@Autowired
 	PersonRepository personRepository;
 	
+	@Autowired
+	PersonDtoCache personDtoCache;
+	
+	@Autowired
+	SingleFlight<String, Boolean> emailAddressChecks;
+	
+	@Autowired
+	PersonChangeLog personChangeLog;
+	
+	// Present when person.read-model.enabled:
+	@Autowired(required = false)
+	PersonReadModel personReadModel;
+	
+	@Autowired
+	PlatformTransactionManager transactionManager;
+	
+	@PersistenceContext
+	EntityManager entityManager;
+	
+	// Largest number of values bound into a single "in (...)" list:
+	static final int MAX_IN_LIST_SIZE = 1000;
+	
 	/**
 	 * 
 	 * @param person the new person to be created.  Its values  is validated and it will
@@ -37,45 +90,398 @@ public class PersonService {
 		// Check that the email address does not duplicate an existing Person's:
 		checkEmailIsNotDuplicate(person.getEmailAddress());;	
 
-		personRepository.save(person);
+		saveAndFlush(person);
+		personChangeLog.record(PersonChange.Type.CREATED, person.getId(), person);
 		return person;
 	}
 	
 	/**
-	 *  Updates a Person.  Attempts to locate a Person in the Person table with the same id as that of 
-	 *  the parameter passed in.  If successful, it validates the new values and saves them into
-	 *  the new Person object.  Null is returned if the Person could not be found.
+	 * Creates many people in a single transaction.  Every person is validated, duplicate emails
+	 * are checked within the list and against the Person table with set-based queries, and the
+	 * accepted people are inserted with JDBC batching.  People that fail validation or the
+	 * duplicate check are skipped; the others are created.  Any supplied ids are ignored.
+	 * 
+	 * @param people the new people to be created.  Those that are created have their new ids set.
+	 * @return one entry per person, in the same order: null if the person was created, otherwise
+	 *  the reason it was rejected.
+	 * @throws IllegalArgumentException if a concurrent writer inserts one of the emails while the
+	 *  batch is being written.  Nothing in the batch is created in that case.
+	 */
+	public List<String> createAll(List<Person> people) {
+		String[] errors = new String[people.size()];
+		for (int i = 0; i < people.size(); i++) {
+			try {
+				validatePerson(people.get(i));
+			} catch (IllegalArgumentException e) {
+				errors[i] = e.getMessage();
+			}
+		}
+		return createValidated(people, errors);
+	}
+	
+	/**
+	 * As createAll, for people that have all already passed validatePerson, so that callers that
+	 * validate in parallel don't pay for it again here.
+	 */
+	public List<String> createAllValidated(List<Person> people) {
+		return createValidated(people, new String[people.size()]);
+	}
+	
+	// Creates the people that have no error yet, filling in errors for those rejected as duplicates.
+	private List<String> createValidated(List<Person> people, String[] errors) {
+		// Find duplicates within the list itself:
+		Map<String, Integer> indexByEmail = new HashMap<>(people.size() * 2);
+		for (int i = 0; i < people.size(); i++) {
+			if (null!=errors[i]) {
+				continue;
+			}
+			Person person = people.get(i);
+			Integer firstIndex = indexByEmail.putIfAbsent(person.getNormalizedEmailAddress(), i);
+			if (null!=firstIndex) {
+				errors[i] = "Duplicate email address: " + person.getEmailAddress() + " (same as item " + firstIndex + ")";
+			}
+		}
+		
+		// Find duplicates against the table:
+		List<String> candidateEmails = new ArrayList<>(indexByEmail.keySet());
+		for (int from = 0; from < candidateEmails.size(); from += MAX_IN_LIST_SIZE) {
+			List<String> chunk = candidateEmails.subList(from, Math.min(from + MAX_IN_LIST_SIZE, candidateEmails.size()));
+			for (String existingEmail : personRepository.findExistingNormalizedEmailAddresses(chunk)) {
+				int i = indexByEmail.get(existingEmail);
+				errors[i] = "Duplicate email address: " + people.get(i).getEmailAddress();
+			}
+		}
+		
+		// Insert the rest, clearing the persistence context after each JDBC batch so it doesn't grow:
+		int pending = 0;
+		try {
+			for (int i = 0; i < people.size(); i++) {
+				if (null!=errors[i]) {
+					continue;
+				}
+				Person person = people.get(i);
+				// Forget any id and version given in an earlier attempt that was rolled back; with a
+				// version left set, save would merge rather than persist:
+				person.setId(null);
+				person.setVersion(null);
+				personRepository.save(person);
+				personChangeLog.record(PersonChange.Type.CREATED, person.getId(), person);
+				if (++pending == Person.ID_ALLOCATION_SIZE) {
+					personRepository.flush();
+					entityManager.clear();
+					pending = 0;
+				}
+			}
+			personRepository.flush();
+		} catch (DataIntegrityViolationException e) {
+			if (isDuplicateEmailViolation(e)) {
+				throw new IllegalArgumentException("Duplicate email address inserted concurrently; no people were created");
+			}
+			throw e;
+		}
+		
+		return Arrays.asList(errors);
+	}
+	
+	/**
+	 *  Updates a Person.  Validates the new values and overwrites those of the Person in the 
+	 *  Person table with the same id as that of the parameter passed in, using a single UPDATE
+	 *  statement.  Null is returned if the Person could not be found.
 	 * 
 	 * @param person the Person to be updated
 	 * @return If the person was found and updated, the same Person reference passed in as a parameter; null if
 	 *   the Person could not be found.
 	 */
 	public Person update(Person person) {
+		return update(person, null);
+	}
+	
+	/**
+	 *  Conditionally updates a Person.  As update(Person), except that if an expected version is
+	 *  given the Person is only updated if its version still matches it.  Either way the update is
+	 *  a single UPDATE statement; the row is not read first.  Without an expected version the new
+	 *  version is then read back, while the UPDATE still holds the row's lock, so that the caller
+	 *  and the change log have it.
+	 * 
+	 * @param person the Person to be updated
+	 * @param expectedVersion the version the Person must have to be updated, or null to update it
+	 *   whatever its version.
+	 * @return If the person was found and updated, the same Person reference passed in as a parameter,
+	 *   with its version set to the new version; null if the Person could not be found.
+	 * @throws OptimisticLockingFailureException if the Person exists but its version does not match
+	 *   the expected version.
+	 */
+	public Person update(Person person, Long expectedVersion) {
 		validatePerson(person);
 		
-		Person existingPerson = personRepository.findById(person.getId()).orElse(null);
-		if (null==existingPerson) {
+		// A change to an email address that belongs to someone else is caught by the unique index:
+		int updatedRows;
+		try {
+			updatedRows = null==expectedVersion
+				? personRepository.update(person.getId(), person.getName(), person.getAge(), 
+					person.getDateOfBirth(), person.getEmailAddress(), person.getNormalizedEmailAddress(),
+					person.getEmailDomain())
+				: personRepository.updateIfVersionMatches(person.getId(), person.getName(), person.getAge(), 
+					person.getDateOfBirth(), person.getEmailAddress(), person.getNormalizedEmailAddress(),
+					person.getEmailDomain(), expectedVersion);
+		} catch (DataIntegrityViolationException e) {
+			if (isDuplicateEmailViolation(e)) {
+				throw new IllegalArgumentException("Duplicate email address: " + person.getEmailAddress());
+			}
+			throw e;
+		}
+		
+		if (0==updatedRows) {
+			// Only now is it worth a query to tell a missing Person from a stale version:
+			if (null!=expectedVersion && personRepository.existsById(person.getId())) {
+				throw new OptimisticLockingFailureException("Person: id=" + person.getId() 
+					+ " does not have version " + expectedVersion);
+			}
 			return null;
 		}
-
-		if (!existingPerson.getEmailAddress().toUpperCase().equals( person.getEmailAddress().toUpperCase())) {
-			// This update involves changing an email address.  Make sure the new
-			// address does not already exist in the DB:
-			checkEmailIsNotDuplicate(person.getEmailAddress());
+		
+		person.setVersion(null==expectedVersion ? personRepository.findVersionById(person.getId()) : expectedVersion + 1);
+		invalidateCacheAfterCompletion(person.getId());
+		personChangeLog.record(PersonChange.Type.UPDATED, person.getId(), person);
+		return person;
+	}
+	
+	/**
+	 *  Partially updates a Person: validates only the fields given and sets only their columns,
+	 *  in a single UPDATE statement that reads nothing first.  As with update, an email address
+	 *  that belongs to someone else is caught by the unique index, so fields other than the email
+	 *  address are changed without any check against other people.  The Person's values after the
+	 *  update are then read back, while the UPDATE still holds the row's lock, for the change log.
+	 * 
+	 * @param changes holds the new values of the fields given; its other fields are ignored.
+	 * @param fields the fields to change; at least one, and not ID.
+	 * @param expectedVersion the version the Person must have to be updated, or null to update it
+	 *   whatever its version.
+	 * @return the Person as updated, with its new version; null if the Person could not be found.
+	 * @throws OptimisticLockingFailureException if the Person exists but its version does not match
+	 *   the expected version.
+	 */
+	public Person patch(Long id, Person changes, Set<PersonField> fields, Long expectedVersion) {
+		validatePerson(changes, fields);
+		
+		int updatedRows;
+		try {
+			updatedRows = personRepository.updateFields(id, changes, fields, expectedVersion);
+		} catch (DataIntegrityViolationException e) {
+			if (isDuplicateEmailViolation(e)) {
+				throw new IllegalArgumentException("Duplicate email address: " + changes.getEmailAddress());
+			}
+			throw e;
 		}
 		
-		personRepository.save(person);
+		if (0==updatedRows) {
+			if (null!=expectedVersion && personRepository.existsById(id)) {
+				throw new OptimisticLockingFailureException("Person: id=" + id 
+					+ " does not have version " + expectedVersion);
+			}
+			return null;
+		}
+		
+		// A projection, so that any stale copy of the entity in the persistence context is bypassed:
+		Object[] values = personRepository.findFieldsById(id, PersonField.values());
+		Person person = new Person();
+		person.setId((Long) values[0]);
+		person.setName((String) values[1]);
+		person.setAge((Integer) values[2]);
+		person.setDateOfBirth((LocalDate) values[3]);
+		person.setEmailAddress((String) values[4]);
+		person.setVersion((Long) values[5]);
+		
+		invalidateCacheAfterCompletion(id);
+		personChangeLog.record(PersonChange.Type.UPDATED, id, person);
 		return person;
 	}
 	
+	/**
+	 * Deletes a Person with a single DELETE statement; the row is not read first.
+	 * 
+	 * @param id id of the Person to be deleted
+	 * @return true if the Person was found and deleted, false if it could not be found.
+	 */
+	public boolean delete(Long id) {
+		// The DELETE runs now rather than at commit, so the change log numbers the change while
+		// the row is locked:
+		if (0==personRepository.deleteRow(id)) {
+			return false;
+		}
+		invalidateCacheAfterCompletion(id);
+		personChangeLog.record(PersonChange.Type.DELETED, id, null);
+		return true;
+	}
+	
+	/**
+	 * Deletes many people by id, MAX_IN_LIST_SIZE ids at a time, each chunk in a transaction of
+	 * its own with one query to lock the rows that exist and one DELETE.  No entities are loaded.
+	 * 
+	 * @param ids ids of the people to be deleted; need not be distinct.
+	 * @return the ids of the people deleted.  Ids with no Person are left out.
+	 */
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public Set<Long> deleteByIds(Collection<Long> ids) {
+		List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+		Set<Long> deletedIds = new HashSet<>(distinctIds.size() * 2);
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		for (int from = 0; from < distinctIds.size(); from += MAX_IN_LIST_SIZE) {
+			List<Long> chunk = distinctIds.subList(from, Math.min(from + MAX_IN_LIST_SIZE, distinctIds.size()));
+			deletedIds.addAll(transactionTemplate.execute(status -> deleteLocked(personRepository.lockExistingIds(chunk))));
+		}
+		return deletedIds;
+	}
+	
+	/**
+	 * Deletes every Person matching the specification, MAX_IN_LIST_SIZE at a time in id order,
+	 * each chunk in a transaction of its own with one query to lock the matching rows' ids and
+	 * one DELETE.  No entities are loaded.  People that come to match while the deletion is
+	 * running are deleted if they come after the chunks already deleted.
+	 * 
+	 * @return the number of people deleted.
+	 */
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public long deleteMatching(Specification<Person> specification) {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		long deleted = 0;
+		Long afterId = null;
+		while (true) {
+			Long fromId = afterId;
+			List<Long> chunk = transactionTemplate.execute(status -> 
+				deleteLocked(personRepository.findIdsForUpdate(specification, fromId, MAX_IN_LIST_SIZE)));
+			deleted += chunk.size();
+			if (chunk.size() < MAX_IN_LIST_SIZE) {
+				return deleted;
+			}
+			afterId = chunk.get(chunk.size() - 1);
+		}
+	}
+	
+	// Deletes people whose rows the current transaction has locked, so all of them are deleted.
+	private List<Long> deleteLocked(List<Long> lockedIds) {
+		if (lockedIds.isEmpty()) {
+			return lockedIds;
+		}
+		personRepository.deleteRows(lockedIds);
+		invalidateCacheAfterCompletion(lockedIds);
+		for (Long id : lockedIds) {
+			personChangeLog.record(PersonChange.Type.DELETED, id, null);
+		}
+		return lockedIds;
+	}
+	
+	/**
+	 * Looks up many people by id, with one query per MAX_IN_LIST_SIZE ids.
+	 * 
+	 * @param ids ids of the people wanted; need not be distinct.
+	 * @return the people found, keyed by id.  Ids with no Person have no entry.
+	 */
+	@Transactional(readOnly = true)
+	public Map<Long, Person> findByIds(Collection<Long> ids) {
+		List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+		Map<Long, Person> peopleById = new HashMap<>(distinctIds.size() * 2);
+		for (int from = 0; from < distinctIds.size(); from += MAX_IN_LIST_SIZE) {
+			List<Long> chunk = distinctIds.subList(from, Math.min(from + MAX_IN_LIST_SIZE, distinctIds.size()));
+			for (Person person : personRepository.findByIdIn(chunk)) {
+				peopleById.put(person.getId(), person);
+			}
+		}
+		return peopleById;
+	}
+	
+	/**
+	 * Passes every Person in the table, in id order, to the consumer one at a time.  Rows are
+	 * read through a forward-only cursor and each entity is detached after the consumer
+	 * returns, so heap use does not grow with the size of the table.
+	 * 
+	 * @param consumer receives each Person; it must not retain the reference beyond the call.
+	 */
+	@Transactional(readOnly = true)
+	public void forEachPerson(Consumer<Person> consumer) {
+		try (Stream<Person> people = personRepository.streamAll()) {
+			people.forEach(person -> {
+				consumer.accept(person);
+				entityManager.detach(person);
+			});
+		}
+	}
+	
+	/**
+	 * As forEachPerson, but reads only the given fields, passing their values to the consumer
+	 * in the order given.  No entities are created.
+	 * 
+	 * @param consumer receives each person's values; it must not retain the array beyond the call.
+	 */
+	@Transactional(readOnly = true)
+	public void forEachPerson(PersonField[] fields, Consumer<Object[]> consumer) {
+		try (Stream<Object[]> people = personRepository.streamFields(fields)) {
+			people.forEach(consumer);
+		}
+	}
+	
 	// Throws an IllegalArgumentException if the specified email address already exists
-	// on the DB in a Person entry.
+	// on the DB in a Person entry.  This is an indexed lookup that gives a clear message in the
+	// common case; the unique index on the email column is what guarantees uniqueness when
+	// concurrent writers race past this check (see saveAndFlush).  With the read model the check
+	// needs no query, as the unique index still catches a person created too recently to be in it.
+	// Without it, concurrent checks of the same address share one query; one that shares a query
+	// started just before a commit may miss that commit's person, which the unique index catches too.
 	private void checkEmailIsNotDuplicate(String emailAddress) {
-		if (personRepository.findByEmailAddressIgnoreCase(emailAddress).isPresent()) {
+		boolean duplicate = null==personReadModel
+			? emailAddressChecks.execute(Person.normalizeEmailAddress(emailAddress), personRepository::existsByNormalizedEmailAddress)
+			: personReadModel.containsEmailAddress(emailAddress);
+		if (duplicate) {
 			throw new IllegalArgumentException("Duplicate email address: " + emailAddress);
 		}
 	}
 	
+	// Removes the person from the PersonDtoCache once the current transaction has committed (or
+	// rolled back), before control returns to the caller.  Invalidating any earlier would let a
+	// concurrent reader re-cache the row as it was before the commit.  New people need no
+	// invalidation, as the cache never holds entries for ids that were not found.
+	private void invalidateCacheAfterCompletion(Long id) {
+		invalidateCacheAfterCompletion(Collections.singletonList(id));
+	}
+	
+	private void invalidateCacheAfterCompletion(Collection<Long> ids) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			ids.forEach(personDtoCache::invalidate);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCompletion(int status) {
+				ids.forEach(personDtoCache::invalidate);
+			}
+		});
+	}
+	
+	// Saves and flushes the person so that a unique email violation is raised here, where it
+	// can be reported as a duplicate email, rather than at commit time.
+	private void saveAndFlush(Person person) {
+		try {
+			personRepository.saveAndFlush(person);
+		} catch (DataIntegrityViolationException e) {
+			if (isDuplicateEmailViolation(e)) {
+				throw new IllegalArgumentException("Duplicate email address: " + person.getEmailAddress());
+			}
+			throw e;
+		}
+	}
+	
+	static boolean isDuplicateEmailViolation(DataIntegrityViolationException e) {
+		if (!(e.getCause() instanceof ConstraintViolationException)) {
+			return false;
+		}
+		String constraintName = ((ConstraintViolationException) e.getCause()).getConstraintName();
+		
+		// Databases quote and decorate the name of the index backing the constraint
+		// (e.g. H2 reports "UK_..._INDEX_8 ON PUBLIC.PERSON(...)"), so don't match it exactly:
+		return null!=constraintName 
+			&& constraintName.toUpperCase().contains(Person.UNIQUE_EMAIL_CONSTRAINT);
+	}
+	
 	/**
 	 * Validates all non-id fields in a Person object.  If contents are structurally invalid,
 	 * creates a message summarize all errors and throws an IllegalArgumentException
@@ -86,25 +492,36 @@ public class PersonService {
 	 * invalid.
 	 */
 	public static void validatePerson(Person person) {	
+		validatePerson(person, EnumSet.allOf(PersonField.class));
+	}
+	
+	/**
+	 * As validatePerson(Person), but only validates the fields given, for a partial update.
+	 */
+	public static void validatePerson(Person person, Set<PersonField> fields) {
 		List<String> errorMessages = new ArrayList<String>(8);
 		
 		// Age
-		if (null==person.getAge()) {
-			errorMessages.add("Missing age");
-		} else if (person.getAge() < 0) {
-			errorMessages.add("Age is negative: " + person.getAge());
+		if (fields.contains(PersonField.AGE)) {
+			if (null==person.getAge()) {
+				errorMessages.add("Missing age");
+			} else if (person.getAge() < 0) {
+				errorMessages.add("Age is negative: " + person.getAge());
+			}
 		}
 		
 		// Email
-		if (null==person.getEmailAddress() || person.getEmailAddress().isEmpty()) {
-			errorMessages.add("Email Address is missing or blank");
-		} else if (!person.getEmailAddress().contains("@")) {
-				// Todo: Add more robust email format validations:
-			errorMessages.add("Badly formatted email address");
+		if (fields.contains(PersonField.EMAIL_ADDRESS)) {
+			if (null==person.getEmailAddress() || person.getEmailAddress().isEmpty()) {
+				errorMessages.add("Email Address is missing or blank");
+			} else if (!person.getEmailAddress().contains("@")) {
+					// Todo: Add more robust email format validations:
+				errorMessages.add("Badly formatted email address");
+			}
 		}
 		
 		// Name
-		if (null==person.getName() || person.getName().isEmpty()) {
+		if (fields.contains(PersonField.NAME) && (null==person.getName() || person.getName().isEmpty())) {
 			errorMessages.add("Name is missing or blank");
 		}
 
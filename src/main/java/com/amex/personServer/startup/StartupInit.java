@@ -5,13 +5,15 @@ import java.time.LocalDate;
 import javax.annotation.PostConstruct;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import com.amex.personServer.domain.Person;
 import com.amex.personServer.repository.PersonRepository;
 
 /**
- * For demo purposes only-- adds a few recs to the DB at startup
+ * For demo purposes only-- adds a few recs to the DB at startup, followed by
+ * person.synthetic.count SyntheticPeople generated with person.synthetic.seed.
  * 
  * @author David
  *
@@ -22,8 +24,17 @@ public class StartupInit {
 	@Autowired
 	PersonRepository personRepository;
 	
+	@Autowired
+	SyntheticPeopleLoader syntheticPeopleLoader;
+	
+	@Value("${person.synthetic.count:0}")
+	long syntheticCount;
+	
+	@Value("${person.synthetic.seed:1}")
+	long syntheticSeed;
+	
 	@PostConstruct
-	public void initializeDB (){
+	public void initializeDB () throws InterruptedException {
 
 		Person person = new Person();
 		
@@ -46,7 +57,10 @@ public class StartupInit {
 		person.setDateOfBirth(LocalDate.parse("1982-05-12"));
 		person.setEmailAddress("Mark.Miller@yahoo.com");
 		personRepository.save(person);
-
+		
+		if (syntheticCount > 0) {
+			syntheticPeopleLoader.load(syntheticCount, syntheticSeed);
+		}
 	}
 	
 }
\ No newline at end of file
@@ -0,0 +1,151 @@
+package com.amex.personServer.startup;
+
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+import com.amex.personServer.domain.Person;
+
+/**
+ * Deterministic synthetic people for testing at scale.  Person n is the same for a given seed
+ * on every run and however many people are generated, so datasets of any size agree on the
+ * people they share, and a person can be regenerated from n alone.
+ *
+ * Names are drawn from lists of common first and last names, favouring the most common.  Ages
+ * follow a population pyramid as of REFERENCE_DATE, and each date of birth agrees with its age.
+ * Email addresses combine the name with n in one of several styles, so they are unique, at a
+ * few large providers for most people and a long tail of smaller domains for the rest.
+ */
+public final class SyntheticPeople {
+
+	// Ages are as of this date:
+	public static final LocalDate REFERENCE_DATE = LocalDate.of(2018, 1, 1);
+
+	// Most common first:
+	private static final String[] FIRST_NAMES = {
+		"James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael", "Linda", "William", "Elizabeth",
+		"David", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah", "Charles", "Karen",
+		"Christopher", "Nancy", "Daniel", "Lisa", "Matthew", "Margaret", "Anthony", "Betty", "Mark", "Sandra",
+		"Donald", "Ashley", "Steven", "Dorothy", "Paul", "Kimberly", "Andrew", "Emily", "Joshua", "Donna",
+		"Kenneth", "Michelle", "Kevin", "Carol", "Brian", "Amanda", "George", "Melissa", "Edward", "Deborah",
+		"Ronald", "Stephanie", "Timothy", "Rebecca", "Jason", "Laura", "Jeffrey", "Sharon", "Ryan", "Cynthia",
+		"Jacob", "Kathleen", "Gary", "Amy", "Nicholas", "Shirley", "Eric", "Angela", "Jonathan", "Helen",
+		"Stephen", "Anna", "Larry", "Brenda", "Justin", "Pamela", "Scott", "Nicole", "Brandon", "Emma",
+		"José", "María", "Wei", "Mohammed", "Aisha", "Hiroshi", "Priya", "Olga", "Søren", "Zoë" };
+
+	private static final String[] LAST_NAMES = {
+		"Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez", "Martinez",
+		"Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Martin",
+		"Lee", "Perez", "Thompson", "White", "Harris", "Sanchez", "Clark", "Ramirez", "Lewis", "Robinson",
+		"Walker", "Young", "Allen", "King", "Wright", "Scott", "Torres", "Nguyen", "Hill", "Flores",
+		"Green", "Adams", "Nelson", "Baker", "Hall", "Rivera", "Campbell", "Mitchell", "Carter", "Roberts",
+		"Gomez", "Phillips", "Evans", "Turner", "Diaz", "Parker", "Cruz", "Edwards", "Collins", "Reyes",
+		"Stewart", "Morris", "Morales", "Murphy", "Cook", "Rogers", "Gutierrez", "Ortiz", "Morgan", "Cooper",
+		"O'Brien", "Müller", "Kowalski", "Wang", "Kim", "Patel", "Tanaka", "Ivanova", "Andersen", "Dubois" };
+
+	// The names as they appear in email addresses:
+	private static final String[] FIRST_NAME_LETTERS = asciiLetters(FIRST_NAMES);
+	private static final String[] LAST_NAME_LETTERS = asciiLetters(LAST_NAMES);
+
+	// Large providers with their share of people in percent; the rest get a long-tail domain:
+	private static final String[] PROVIDER_DOMAINS = {
+		"gmail.com", "yahoo.com", "hotmail.com", "outlook.com", "aol.com", "icloud.com", "comcast.net", "msn.com" };
+	private static final int[] PROVIDER_PERCENTS = { 30, 14, 9, 6, 3, 3, 2, 1 };
+	private static final int LONG_TAIL_DOMAINS = 20000;
+
+	// Percent of people in each decade of age, 0-9 first:
+	private static final int[] AGE_DECADE_PERCENTS = { 12, 13, 14, 14, 13, 13, 11, 7, 3 };
+
+	private final long seed;
+
+	public SyntheticPeople(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * @param n the person's number, from 1.
+	 * @return a new Person, without an id.
+	 */
+	public Person person(long n) {
+		SplittableRandom random = new SplittableRandom(seed ^ n * 0xBF58476D1CE4E5B9L);
+		int firstName = skewedIndex(random, FIRST_NAMES.length);
+		int lastName = skewedIndex(random, LAST_NAMES.length);
+
+		int age = 10 * pick(random, AGE_DECADE_PERCENTS) + random.nextInt(10);
+		// Born within the year before the age's birthday, so the age holds on REFERENCE_DATE:
+		LocalDate dateOfBirth = REFERENCE_DATE.minusYears(age).minusDays(1 + random.nextInt(364));
+
+		Person person = new Person();
+		person.setName(FIRST_NAMES[firstName] + " " + LAST_NAMES[lastName]);
+		person.setAge(age);
+		person.setDateOfBirth(dateOfBirth);
+		person.setEmailAddress(localPart(random, FIRST_NAME_LETTERS[firstName], LAST_NAME_LETTERS[lastName], n)
+			+ "@" + domain(random));
+		return person;
+	}
+
+	private static String localPart(SplittableRandom random, String first, String last, long n) {
+		String localPart;
+		switch (random.nextInt(4)) {
+		case 0:
+			localPart = first + "." + last + n;
+			break;
+		case 1:
+			localPart = first + last + n;
+			break;
+		case 2:
+			localPart = first.charAt(0) + "." + last + n;
+			break;
+		default:
+			localPart = first + "_" + last + "_" + n;
+		}
+		// Most people type their address in lower case:
+		return random.nextInt(5)==0 ? localPart : localPart.toLowerCase();
+	}
+
+	private static String domain(SplittableRandom random) {
+		int percent = random.nextInt(100);
+		for (int i = 0; i < PROVIDER_DOMAINS.length; i++) {
+			percent -= PROVIDER_PERCENTS[i];
+			if (percent < 0) {
+				return PROVIDER_DOMAINS[i];
+			}
+		}
+		return "company" + skewedIndex(random, LONG_TAIL_DOMAINS) + ".com";
+	}
+
+	// An index into a list ordered most common first; index 0 is picked most often.
+	private static int skewedIndex(SplittableRandom random, int size) {
+		double u = random.nextDouble();
+		return (int) (size * u * u * u);
+	}
+
+	// An index picked with the given percent chances, which add up to 100.
+	private static int pick(SplittableRandom random, int[] percents) {
+		int percent = random.nextInt(100);
+		for (int i = 0; i < percents.length - 1; i++) {
+			percent -= percents[i];
+			if (percent < 0) {
+				return i;
+			}
+		}
+		return percents.length - 1;
+	}
+
+	// Drops accents and anything else that is not an ASCII letter, for use in an email address.
+	private static String[] asciiLetters(String[] names) {
+		String[] asciiNames = new String[names.length];
+		for (int i = 0; i < names.length; i++) {
+			String decomposed = Normalizer.normalize(names[i], Normalizer.Form.NFD);
+			StringBuilder letters = new StringBuilder(decomposed.length());
+			for (int j = 0; j < decomposed.length(); j++) {
+				char c = decomposed.charAt(j);
+				if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+					letters.append(c);
+				}
+			}
+			asciiNames[i] = letters.toString();
+		}
+		return asciiNames;
+	}
+}
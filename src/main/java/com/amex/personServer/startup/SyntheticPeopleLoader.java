@@ -0,0 +1,107 @@
+package com.amex.personServer.startup;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.amex.personServer.domain.Person;
+
+/**
+ * Loads SyntheticPeople into the Person table with JDBC batch inserts, in parallel ranges (one
+ * per processor), committing each batch.  The people are given consecutive ids, taken from the
+ * Person id sequence, which is then moved past them.
+ *
+ * The rows are inserted directly, bypassing the PersonService, so this is for use at startup,
+ * before anything reads the table: the change log, cache, read model and stats don't see them.
+ */
+@Component
+public class SyntheticPeopleLoader {
+
+	private static final Logger logger = LoggerFactory.getLogger(SyntheticPeopleLoader.class);
+
+	private static final int BATCH_SIZE = 1000;
+
+	private static final String INSERT_SQL = "insert into person (id, name, age, date_of_birth, email_address, "
+		+ "normalized_email_address, email_domain, version) values (?, ?, ?, ?, ?, ?, ?, 0)";
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	/**
+	 * Inserts SyntheticPeople 1..count for the seed, person n with id firstId + n - 1.
+	 *
+	 * @return firstId
+	 */
+	public long load(long count, long seed) throws InterruptedException {
+		long startTime = System.currentTimeMillis();
+		// Above every id that Hibernate may already have allocated from the sequence:
+		long firstId = jdbcTemplate.queryForObject("select next value for person_id_seq", Long.class);
+		SyntheticPeople syntheticPeople = new SyntheticPeople(seed);
+
+		int threads = (int) Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), count / BATCH_SIZE));
+		long rangeSize = (count + threads - 1) / threads;
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("person-synthetic-"));
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (long from = 1; from <= count; from += rangeSize) {
+				long fromN = from;
+				long toN = Math.min(count, from + rangeSize - 1);
+				futures.add(executor.submit(() -> insert(syntheticPeople, fromN, toN, firstId - 1)));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Failed to load synthetic people", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// Leave a whole allocation between the people and the ids Hibernate allocates next:
+		jdbcTemplate.execute("alter sequence person_id_seq restart with " + (firstId + count + Person.ID_ALLOCATION_SIZE));
+		logger.info("Loaded " + count + " synthetic people, ids " + firstId + " to " + (firstId + count - 1)
+			+ ", in " + (System.currentTimeMillis() - startTime) + "ms");
+		return firstId;
+	}
+
+	// Inserts people fromN..toN, person n with id n + idOffset:
+	private void insert(SyntheticPeople syntheticPeople, long fromN, long toN, long idOffset) {
+		for (long batchFrom = fromN; batchFrom <= toN; batchFrom += BATCH_SIZE) {
+			long firstN = batchFrom;
+			int batchSize = (int) Math.min(BATCH_SIZE, toN - batchFrom + 1);
+			jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+				@Override
+				public void setValues(PreparedStatement statement, int i) throws SQLException {
+					long n = firstN + i;
+					Person person = syntheticPeople.person(n);
+					statement.setLong(1, n + idOffset);
+					statement.setString(2, person.getName());
+					statement.setInt(3, person.getAge());
+					statement.setDate(4, Date.valueOf(person.getDateOfBirth()));
+					statement.setString(5, person.getEmailAddress());
+					statement.setString(6, person.getNormalizedEmailAddress());
+					statement.setString(7, person.getEmailDomain());
+				}
+
+				@Override
+				public int getBatchSize() {
+					return batchSize;
+				}
+			});
+		}
+	}
+}
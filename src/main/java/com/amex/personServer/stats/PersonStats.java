@@ -0,0 +1,275 @@
+package com.amex.personServer.stats;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.amex.personServer.changes.PersonChange;
+import com.amex.personServer.changes.PersonChangeListener;
+import com.amex.personServer.changes.PersonChangeLog;
+import com.amex.personServer.domain.Person;
+import com.amex.personServer.dto.PersonStatsDto;
+import com.amex.personServer.repository.PersonRepository;
+
+/**
+ * Counts of the people in total, by age, by birth year and by email domain, kept up to date as
+ * people are changed so that reading them never scans the Person table.
+ * 
+ * The counts are built when the application context has started, before the web server accepts
+ * requests, by scanning ranges of ids in parallel (person.stats.scan-threads at most, and no
+ * more than there are processors), and are then maintained as a PersonChangeListener.  To
+ * uncount a person that is changed or deleted without reading the row as it was, the values
+ * each person is counted under are kept in a PersonStatsEntries table.
+ * Changes made to the table other than through the PersonService are not counted.
+ */
+@Component
+public class PersonStats implements PersonChangeListener {
+	
+	private static final Logger logger = LoggerFactory.getLogger(PersonStats.class);
+	
+	// Ranges of ids smaller than this aren't worth a thread of their own:
+	private static final long MIN_SCAN_RANGE = 100000;
+	
+	@Autowired
+	PersonRepository personRepository;
+	
+	@Autowired
+	PersonChangeLog personChangeLog;
+	
+	@Autowired
+	PlatformTransactionManager transactionManager;
+	
+	@Value("${person.stats.scan-threads:4}")
+	int scanThreads;
+	
+	// Email domains are counted by id.  Guarded by domainNames:
+	private final Map<String, Integer> domainIds = new HashMap<>();
+	private final List<String> domainNames = new ArrayList<>();
+	
+	// Guarded by this:
+	private final PersonStatsEntries entries = new PersonStatsEntries(1024);
+	private final Counts counts = new Counts();
+	private long lastSeq;
+	
+	// Ids changed while the table is being scanned; their scanned rows are out of date.
+	// Guarded by this; null once loaded.
+	private Set<Long> changedWhileLoading = new HashSet<>();
+	private boolean loadStarted;
+	
+	@EventListener(ContextRefreshedEvent.class)
+	public void load() throws InterruptedException {
+		synchronized (this) {
+			// Once, even if the context is refreshed again:
+			if (loadStarted) {
+				return;
+			}
+			loadStarted = true;
+			lastSeq = Math.max(lastSeq, personChangeLog.addListener(this));
+		}
+		
+		long startTime = System.currentTimeMillis();
+		Long minId = personRepository.findMinId();
+		Long maxId = personRepository.findMaxId();
+		List<ScannedRows> scans = new ArrayList<>();
+		if (null!=minId) {
+			int threads = Math.min(scanThreads, Runtime.getRuntime().availableProcessors());
+			long rangeCount = Math.max(1, Math.min(threads, (maxId - minId + 1) / MIN_SCAN_RANGE));
+			long rangeSize = (maxId - minId) / rangeCount + 1;
+			ExecutorService executor = Executors.newFixedThreadPool((int) rangeCount, new CustomizableThreadFactory("person-stats-scan-"));
+			try {
+				List<Future<ScannedRows>> futures = new ArrayList<>();
+				for (long fromId = minId; fromId <= maxId; fromId += rangeSize) {
+					long from = fromId;
+					long to = Math.min(maxId, fromId + rangeSize - 1);
+					futures.add(executor.submit(() -> scan(from, to)));
+				}
+				for (Future<ScannedRows> future : futures) {
+					scans.add(future.get());
+				}
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Failed to scan the Person table", e.getCause());
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+		
+		long count;
+		synchronized (this) {
+			for (ScannedRows scan : scans) {
+				counts.addAll(scan.counts);
+				for (int i = 0; i < scan.size; i++) {
+					if (changedWhileLoading.contains(scan.ids[i])) {
+						counts.add(scan.ages[i], scan.birthYears[i], scan.domainIds[i], -1);
+					} else {
+						entries.put(scan.ids[i], scan.ages[i], scan.birthYears[i], scan.domainIds[i]);
+					}
+				}
+			}
+			changedWhileLoading = null;
+			count = counts.count;
+		}
+		logger.info("Counted " + count + " people in " + (System.currentTimeMillis() - startTime) + "ms");
+	}
+	
+	@Override
+	public synchronized void onChange(PersonChange change) {
+		int slot = entries.find(change.getPersonId());
+		if (slot >= 0) {
+			counts.add(entries.age(slot), entries.birthYear(slot), entries.domainId(slot), -1);
+			entries.removeAt(slot);
+		}
+		Person person = change.getPerson();
+		if (null!=person) {
+			int birthYear = person.getDateOfBirth().getYear();
+			int domainId = domainId(person.getEmailDomain());
+			counts.add(person.getAge(), birthYear, domainId, 1);
+			entries.put(change.getPersonId(), person.getAge(), birthYear, domainId);
+		}
+		if (null!=changedWhileLoading) {
+			changedWhileLoading.add(change.getPersonId());
+		}
+		lastSeq = change.getSeq();
+	}
+	
+	/**
+	 * @param topEmailDomains most email domains to report, most common first.
+	 * @return the statistics.  Takes time in proportion to the number of distinct ages, birth years
+	 *  and email domains, not the number of people.
+	 */
+	public PersonStatsDto getStats(int topEmailDomains) {
+		Map<Integer, Long> ageCounts = new TreeMap<>();
+		Map<Integer, Long> birthYearCounts = new TreeMap<>();
+		// Pairs of domain id and count:
+		List<long[]> domainCounts = new ArrayList<>();
+		long count;
+		long seq;
+		synchronized (this) {
+			counts.byAge.forEach((age, n) -> ageCounts.put(age, n[0]));
+			counts.byBirthYear.forEach((year, n) -> birthYearCounts.put(year, n[0]));
+			counts.byDomainId.forEach((domainId, n) -> domainCounts.add(new long[] {domainId, n[0]}));
+			count = counts.count;
+			seq = lastSeq;
+		}
+		
+		domainCounts.sort(Comparator.comparingLong((long[] domainCount) -> -domainCount[1])
+			.thenComparing(domainCount -> domainName((int) domainCount[0])));
+		Map<String, Long> emailDomainCounts = new LinkedHashMap<>();
+		for (long[] domainCount : domainCounts.subList(0, Math.min(topEmailDomains, domainCounts.size()))) {
+			emailDomainCounts.put(domainName((int) domainCount[0]), domainCount[1]);
+		}
+		return new PersonStatsDto(count, ageCounts, birthYearCounts, emailDomainCounts, domainCounts.size(), seq);
+	}
+	
+	// Scans one range of ids in a transaction of its own.
+	private ScannedRows scan(long fromId, long toId) {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.setReadOnly(true);
+		return transactionTemplate.execute(status -> {
+			ScannedRows scan = new ScannedRows();
+			try (Stream<Object[]> rows = personRepository.streamStatsColumns(fromId, toId)) {
+				rows.forEach(row -> scan.add((Long) row[0], (Integer) row[1], ((LocalDate) row[2]).getYear(), 
+					domainId((String) row[3])));
+			}
+			return scan;
+		});
+	}
+	
+	private int domainId(String domain) {
+		String name = null==domain ? "" : domain;
+		synchronized (domainNames) {
+			Integer id = domainIds.get(name);
+			if (null==id) {
+				id = domainNames.size();
+				domainNames.add(name);
+				domainIds.put(name, id);
+			}
+			return id;
+		}
+	}
+	
+	private String domainName(int domainId) {
+		synchronized (domainNames) {
+			return domainNames.get(domainId);
+		}
+	}
+	
+	// Counts of people by each statistic, with long[1] counters to avoid boxing on every change.
+	private static final class Counts {
+		long count;
+		final Map<Integer, long[]> byAge = new HashMap<>();
+		final Map<Integer, long[]> byBirthYear = new HashMap<>();
+		final Map<Integer, long[]> byDomainId = new HashMap<>();
+		
+		void add(int age, int birthYear, int domainId, long delta) {
+			count += delta;
+			add(byAge, age, delta);
+			add(byBirthYear, birthYear, delta);
+			add(byDomainId, domainId, delta);
+		}
+		
+		void addAll(Counts other) {
+			count += other.count;
+			other.byAge.forEach((age, n) -> add(byAge, age, n[0]));
+			other.byBirthYear.forEach((year, n) -> add(byBirthYear, year, n[0]));
+			other.byDomainId.forEach((domainId, n) -> add(byDomainId, domainId, n[0]));
+		}
+		
+		private static void add(Map<Integer, long[]> counts, Integer key, long delta) {
+			long[] n = counts.computeIfAbsent(key, k -> new long[1]);
+			n[0] += delta;
+			if (0==n[0]) {
+				counts.remove(key);
+			}
+		}
+	}
+	
+	// The rows scanned from one range of ids, in primitive arrays, and their counts.
+	private static final class ScannedRows {
+		long[] ids = new long[1024];
+		int[] ages = new int[1024];
+		int[] birthYears = new int[1024];
+		int[] domainIds = new int[1024];
+		int size;
+		final Counts counts = new Counts();
+		
+		void add(long id, int age, int birthYear, int domainId) {
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+				ages = Arrays.copyOf(ages, size * 2);
+				birthYears = Arrays.copyOf(birthYears, size * 2);
+				domainIds = Arrays.copyOf(domainIds, size * 2);
+			}
+			ids[size] = id;
+			ages[size] = age;
+			birthYears[size] = birthYear;
+			domainIds[size] = domainId;
+			size++;
+			counts.add(age, birthYear, domainId, 1);
+		}
+	}
+
+}
@@ -0,0 +1,147 @@
+package com.amex.personServer.stats;
+
+/**
+ * Open-addressing hash table from person id to the values PersonStats counts that person under
+ * (age, birth year and email domain id), held in primitive arrays.  PersonStats looks a person
+ * up here to know what to uncount when the person is changed or deleted, so that it needs no
+ * read of the row as it was.  Linear probing with backward-shift deletion; id 0 marks a free
+ * slot.  Not thread safe.
+ */
+final class PersonStatsEntries {
+	
+	private static final long FREE = 0;
+	private static final int MIN_CAPACITY = 16;
+	private static final double MAX_LOAD = 0.7;
+	
+	private long[] ids;
+	private int[] ages;
+	private int[] birthYears;
+	private int[] domainIds;
+	private int size;
+	private int resizeThreshold;
+	
+	PersonStatsEntries(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity * MAX_LOAD < expectedSize) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+	
+	/**
+	 * @return the slot holding the id, or -1 if there is none.  Valid until the next put or remove.
+	 */
+	int find(long id) {
+		int mask = ids.length - 1;
+		int i = slot(id, mask);
+		while (ids[i] != id) {
+			if (ids[i] == FREE) {
+				return -1;
+			}
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+	
+	int age(int slot) {
+		return ages[slot];
+	}
+	
+	int birthYear(int slot) {
+		return birthYears[slot];
+	}
+	
+	int domainId(int slot) {
+		return domainIds[slot];
+	}
+	
+	/**
+	 * Adds or replaces the id's values.
+	 */
+	void put(long id, int age, int birthYear, int domainId) {
+		if (id == FREE) {
+			throw new IllegalArgumentException("Id " + FREE + " is reserved");
+		}
+		int mask = ids.length - 1;
+		int i = slot(id, mask);
+		while (ids[i] != FREE && ids[i] != id) {
+			i = (i + 1) & mask;
+		}
+		boolean added = ids[i] == FREE;
+		ids[i] = id;
+		ages[i] = age;
+		birthYears[i] = birthYear;
+		domainIds[i] = domainId;
+		if (added && ++size > resizeThreshold) {
+			resize();
+		}
+	}
+	
+	/**
+	 * Removes the entry in a slot returned by find.
+	 */
+	void removeAt(int i) {
+		int mask = ids.length - 1;
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (ids[j] == FREE) {
+				break;
+			}
+			int home = slot(ids[j], mask);
+			boolean reachableWithoutI = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+			if (!reachableWithoutI) {
+				moveSlot(j, i);
+				i = j;
+			}
+		}
+		ids[i] = FREE;
+		size--;
+	}
+	
+	int size() {
+		return size;
+	}
+	
+	private void moveSlot(int from, int to) {
+		ids[to] = ids[from];
+		ages[to] = ages[from];
+		birthYears[to] = birthYears[from];
+		domainIds[to] = domainIds[from];
+	}
+	
+	private void resize() {
+		long[] oldIds = ids;
+		int[] oldAges = ages;
+		int[] oldBirthYears = birthYears;
+		int[] oldDomainIds = domainIds;
+		allocate(oldIds.length << 1);
+		int mask = ids.length - 1;
+		for (int k = 0; k < oldIds.length; k++) {
+			if (oldIds[k] != FREE) {
+				int i = slot(oldIds[k], mask);
+				while (ids[i] != FREE) {
+					i = (i + 1) & mask;
+				}
+				ids[i] = oldIds[k];
+				ages[i] = oldAges[k];
+				birthYears[i] = oldBirthYears[k];
+				domainIds[i] = oldDomainIds[k];
+			}
+		}
+	}
+	
+	private void allocate(int capacity) {
+		ids = new long[capacity];
+		ages = new int[capacity];
+		birthYears = new int[capacity];
+		domainIds = new int[capacity];
+		resizeThreshold = (int) (capacity * MAX_LOAD);
+	}
+	
+	// Ids are sequential, so spread their bits over the table:
+	private static int slot(long id, int mask) {
+		return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+	}
+
+}
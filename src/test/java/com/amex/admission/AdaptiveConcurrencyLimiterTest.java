@@ -0,0 +1,88 @@
+package com.amex.admission;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.amex.personServer.admission.AdaptiveConcurrencyLimiter;
+
+public class AdaptiveConcurrencyLimiterTest {
+	
+	@Test
+	public void testTurnsAwayBeyondLimitAndQueue() throws Exception {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 2, 0, 0);
+		assertTrue(limiter.acquire());
+		assertTrue(limiter.acquire());
+		assertFalse(limiter.acquire());
+		assertEquals(1, limiter.getRejectedCount());
+		
+		limiter.release(-1);
+		assertTrue(limiter.acquire());
+		assertEquals(2, limiter.getInFlight());
+	}
+	
+	@Test
+	public void testQueuedRequestIsAdmittedOnRelease() throws Exception {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, TimeUnit.SECONDS.toMillis(10));
+		assertTrue(limiter.acquire());
+		
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Future<Boolean> queued = executor.submit(limiter::acquire);
+		while (0==limiter.getWaiting()) {
+			Thread.sleep(1);
+		}
+		// The queue is full:
+		assertFalse(limiter.acquire());
+		
+		limiter.release(-1);
+		assertTrue(queued.get(10, TimeUnit.SECONDS));
+		assertEquals(1, limiter.getInFlight());
+		executor.shutdown();
+	}
+	
+	@Test
+	public void testQueuedRequestIsTurnedAwayAfterMaxWait() throws Exception {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 20);
+		assertTrue(limiter.acquire());
+		long startTime = System.nanoTime();
+		assertFalse(limiter.acquire());
+		assertTrue(System.nanoTime() - startTime >= TimeUnit.MILLISECONDS.toNanos(20));
+		assertEquals(0, limiter.getWaiting());
+	}
+	
+	@Test
+	public void testLimitFollowsLatency() throws Exception {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 100, 0, 0);
+		
+		// Latency holds steady as the limit is used: it grows.
+		runAtLimit(limiter, 20, TimeUnit.MILLISECONDS.toNanos(1));
+		int grownLimit = limiter.getLimit();
+		assertTrue("" + grownLimit, grownLimit > 10);
+		
+		// Latency rises well past the usual: it shrinks, though never below 1.
+		runAtLimit(limiter, 3, TimeUnit.MILLISECONDS.toNanos(50));
+		int shrunkLimit = limiter.getLimit();
+		assertTrue(shrunkLimit + " < " + grownLimit, shrunkLimit < grownLimit);
+		assertTrue(shrunkLimit >= 1);
+	}
+	
+	// Fills the limit and releases every request with the given latency, the given number of times.
+	private static void runAtLimit(AdaptiveConcurrencyLimiter limiter, int rounds, long latencyNanos) throws Exception {
+		for (int round = 0; round < rounds; round++) {
+			int admitted = 0;
+			while (limiter.acquire()) {
+				admitted++;
+			}
+			for (int i = 0; i < admitted; i++) {
+				limiter.release(latencyNanos);
+			}
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package com.amex.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.amex.personServer.cache.SingleFlight;
+
+public class SingleFlightTest {
+	
+	private static final int CALLERS = 8;
+	
+	private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+	
+	@After
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+	
+	@Test
+	public void testConcurrentCallsAreCollapsed() throws Exception {
+		SingleFlight<Long, String> singleFlight = new SingleFlight<>("test");
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger calls = new AtomicInteger();
+		String result = "person 1";
+		Function<Long, String> call = id -> {
+			calls.incrementAndGet();
+			await(release);
+			return result;
+		};
+		
+		List<Future<String>> futures = startCallers(singleFlight, 1L, call);
+		release.countDown();
+		for (Future<String> future : futures) {
+			assertSame(result, future.get(10, TimeUnit.SECONDS));
+		}
+		assertEquals(1, calls.get());
+		assertEquals(1, singleFlight.getMadeCount());
+		assertEquals(CALLERS - 1, singleFlight.getCollapsedCount());
+		
+		// Once the call has returned, the next caller makes a new one:
+		singleFlight.execute(1L, call);
+		assertEquals(2, calls.get());
+	}
+	
+	@Test
+	public void testExceptionIsShared() throws Exception {
+		SingleFlight<Long, String> singleFlight = new SingleFlight<>("test");
+		CountDownLatch release = new CountDownLatch(1);
+		IllegalStateException failure = new IllegalStateException("DB down");
+		
+		List<Future<String>> futures = startCallers(singleFlight, 1L, id -> {
+			await(release);
+			throw failure;
+		});
+		release.countDown();
+		for (Future<String> future : futures) {
+			try {
+				future.get(10, TimeUnit.SECONDS);
+				fail("Expected the call's exception");
+			} catch (ExecutionException e) {
+				assertSame(failure, e.getCause());
+			}
+		}
+		assertEquals(1, singleFlight.getMadeCount());
+	}
+	
+	@Test
+	public void testForgottenCallIsNotShared() throws Exception {
+		SingleFlight<Long, String> singleFlight = new SingleFlight<>("test");
+		CountDownLatch release = new CountDownLatch(1);
+		Future<String> before = executor.submit(() -> singleFlight.execute(1L, id -> {
+			await(release);
+			return "before";
+		}));
+		while (0==singleFlight.getMadeCount()) {
+			Thread.sleep(1);
+		}
+		
+		singleFlight.forget(1L);
+		assertEquals("after", singleFlight.execute(1L, id -> "after"));
+		release.countDown();
+		assertEquals("before", before.get(10, TimeUnit.SECONDS));
+		assertEquals(2, singleFlight.getMadeCount());
+		assertEquals(0, singleFlight.getCollapsedCount());
+	}
+	
+	// Starts CALLERS concurrent calls for the key, returning once all but the one making the call
+	// are waiting for it.
+	private List<Future<String>> startCallers(SingleFlight<Long, String> singleFlight, Long key,
+			Function<Long, String> call) throws InterruptedException {
+		List<Future<String>> futures = new ArrayList<>();
+		for (int i = 0; i < CALLERS; i++) {
+			futures.add(executor.submit(() -> singleFlight.execute(key, call)));
+		}
+		while (singleFlight.getMadeCount() + singleFlight.getCollapsedCount() < CALLERS) {
+			Thread.sleep(1);
+		}
+		return futures;
+	}
+	
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+}
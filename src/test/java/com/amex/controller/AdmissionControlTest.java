@@ -0,0 +1,87 @@
+package com.amex.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.amex.personServer.PersonServerApplication;
+import com.amex.personServer.admission.AdaptiveConcurrencyLimiter;
+import com.amex.personServer.dto.PersonDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = PersonServerApplication.class, properties = {
+	"person.admission.enabled=true",
+	"person.admission.retry-after-seconds=3",
+	"person.admission.bulk.initial-limit=1",
+	"person.admission.bulk.max-limit=1",
+	"person.admission.bulk.queue-size=0",
+	"spring.datasource.url=jdbc:h2:mem:admissioncontroltest" })
+@AutoConfigureMockMvc
+
+/*
+ * Tests of the PersonController's requests admitted through the AdmissionControlConfiguration's pools.
+ */
+public class AdmissionControlTest {
+
+	private static final String SERVICE_ENTITY_NAME="/people/";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private AdaptiveConcurrencyLimiter bulkLimiter;
+
+	private static ObjectMapper objectMapper=new ObjectMapper();
+
+	@Test
+	public void testFullBulkPoolShedsOnlyBulkRequests() throws Exception {
+		PersonDto personDto=new PersonDto();
+		personDto.setAge(50);
+		personDto.setDateOfBirth("1968-05-06");
+		personDto.setEmailAddress("Admission.Control@gmail.com");
+		personDto.setName("Admission Control");
+		String location=this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+				.content(objectMapper.writeValueAsString(personDto))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isCreated())
+			.andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+
+		// The one bulk request allowed is in progress:
+		bulkLimiter.acquire();
+		try {
+			this.mockMvc.perform(get(SERVICE_ENTITY_NAME))
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(header().string(HttpHeaders.RETRY_AFTER, "3"))
+				.andExpect(jsonPath("$.message").value("Too many bulk requests in progress; try again later"));
+			this.mockMvc.perform(get(SERVICE_ENTITY_NAME + "search").param("emailDomain", "gmail.com"))
+				.andExpect(status().isServiceUnavailable());
+
+			// Point requests have a pool of their own:
+			this.mockMvc.perform(get(location))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.emailAddress").value(personDto.getEmailAddress()));
+		} finally {
+			bulkLimiter.release(-1);
+		}
+
+		this.mockMvc.perform(get(SERVICE_ENTITY_NAME))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$[?(@.emailAddress=='Admission.Control@gmail.com')]").exists());
+		// Every request has released its place:
+		this.mockMvc.perform(get(SERVICE_ENTITY_NAME))
+			.andExpect(status().isOk());
+	}
+}
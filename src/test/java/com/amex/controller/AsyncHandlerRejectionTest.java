@@ -0,0 +1,73 @@
+package com.amex.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.amex.personServer.PersonServerApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = PersonServerApplication.class, properties = {
+	"person.async-handlers.enabled=true",
+	"person.async-handlers.pool-size=1",
+	"person.async-handlers.queue-capacity=0",
+	"spring.datasource.url=jdbc:h2:mem:asynchandlerrejectiontest" })
+@AutoConfigureMockMvc
+
+/*
+ * Tests of requests turned away by a full AsyncHandlerConfiguration executor.
+ */
+public class AsyncHandlerRejectionTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	AsyncTaskExecutor personHandlerExecutor;
+
+	private static ObjectMapper objectMapper=new ObjectMapper();
+
+	@Test
+	public void testRejectedRequestGetsOne503() throws Exception {
+		// Keep the executor's only thread busy:
+		CountDownLatch started=new CountDownLatch(1);
+		CountDownLatch release=new CountDownLatch(1);
+		personHandlerExecutor.execute(() -> {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		started.await();
+
+		try {
+			// Rejected before asynchronous processing starts, so the error is written only once:
+			String body=this.mockMvc.perform(get("/people/stats"))
+				.andExpect(request().asyncNotStarted())
+				.andExpect(status().isServiceUnavailable())
+				.andReturn().getResponse().getContentAsString();
+			List<JsonNode> errors=objectMapper.readerFor(JsonNode.class).<JsonNode>readValues(body).readAll();
+			assertEquals(body, 1, errors.size());
+			assertEquals("Too many requests in progress; try again later", errors.get(0).get("message").asText());
+		} finally {
+			release.countDown();
+		}
+	}
+}
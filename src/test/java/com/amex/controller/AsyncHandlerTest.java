@@ -0,0 +1,96 @@
+package com.amex.controller;
+
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import com.amex.personServer.PersonServerApplication;
+import com.amex.personServer.dto.PersonDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = PersonServerApplication.class, properties = {
+	"person.async-handlers.enabled=true",
+	"person.async-handlers.pool-size=2",
+	"spring.datasource.url=jdbc:h2:mem:asynchandlertest" })
+@AutoConfigureMockMvc
+
+/*
+ * Tests of the PersonController with its handlers run on the AsyncHandlerConfiguration's executor.
+ */
+public class AsyncHandlerTest {
+
+	private static final String SERVICE_ENTITY_NAME="/people/";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	private static ObjectMapper objectMapper=new ObjectMapper();
+
+	@Test
+	public void testHandlersRunAsynchronously() throws Exception {
+		PersonDto personDto=new PersonDto();
+		personDto.setAge(40);
+		personDto.setDateOfBirth("1978-03-04");
+		personDto.setEmailAddress("Async.Handler@gmail.com");
+		personDto.setName("Async Handler");
+
+		// Built from the current request on the executor's thread:
+		String location=performAsync(post(SERVICE_ENTITY_NAME)
+				.content(objectMapper.writeValueAsString(personDto))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isCreated())
+			.andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+		assertTrue(location, location.startsWith("http://localhost/people/"));
+
+		String eTag=performAsync(get(location))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.emailAddress").value(personDto.getEmailAddress()))
+			.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		performAsync(get(location).header(HttpHeaders.IF_NONE_MATCH, eTag))
+			.andExpect(status().isNotModified());
+
+		// Handlers that write the response themselves:
+		performAsync(get(SERVICE_ENTITY_NAME))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$[?(@.emailAddress=='Async.Handler@gmail.com')]").exists());
+
+		// Exceptions are handled as usual:
+		performAsync(post(SERVICE_ENTITY_NAME)
+				.content(objectMapper.writeValueAsString(personDto))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isUnprocessableEntity())
+			.andExpect(jsonPath("$.message").value("Duplicate email address: " + personDto.getEmailAddress()));
+		performAsync(get(SERVICE_ENTITY_NAME + Long.MAX_VALUE))
+			.andExpect(status().isNotFound());
+	}
+
+	// Performs a request whose handler is run asynchronously, then the dispatch that writes its result.
+	private ResultActions performAsync(RequestBuilder requestBuilder) throws Exception {
+		MvcResult result=this.mockMvc.perform(requestBuilder)
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		result.getAsyncResult(TimeUnit.SECONDS.toMillis(10));
+		return this.mockMvc.perform(asyncDispatch(result));
+	}
+}
@@ -2,28 +2,63 @@ package com.amex.controller;
 
 
 import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.rule.OutputCapture;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
 import com.amex.personServer.PersonServerApplication;
+import com.amex.personServer.cache.PersonDtoCache;
+import com.amex.personServer.controller.PersonChangeController;
+import com.amex.personServer.controller.PersonController;
 import com.amex.personServer.dto.PersonDto;
+import com.amex.personServer.json.JsonConfiguration;
 import com.amex.personServer.repository.PersonRepository;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(classes = PersonServerApplication.class)
@@ -53,13 +88,21 @@ public class PersonControllerTest {
 	// Used to fabricate unique address values:
 	private static int emailAddrCounter=1;
 	    
+	@Rule
+	public OutputCapture outputCapture = new OutputCapture();
+	
 	@Autowired
 	private MockMvc mockMvc;
 	
 	@Autowired
 	PersonRepository personRepository;
+	
+	@Autowired
+	PersonDtoCache personDtoCache;
 
 	private static ObjectMapper objectMapper=new ObjectMapper();
+	
+	private static ObjectMapper smileMapper=new ObjectMapper(new SmileFactory());
     
 	@Test
 	public void testPostAndGet() throws Exception {
@@ -119,6 +162,476 @@ public class PersonControllerTest {
       		.andExpect(jsonPath("$.length()").value(NUM_PERSONS_TO_LOAD));	
 	}
 	
+	@Test
+	public void testGetAllAsNdjson() throws Exception {
+		// Warning: This test deletes all entries in the DB.
+		final int NUM_PERSONS_TO_LOAD=3;
+		
+		personRepository.deleteAll();
+		
+		for (int i=0; i<NUM_PERSONS_TO_LOAD; i++) {
+			this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+				.content( objectMapper.writeValueAsString(getPersonDto()))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isCreated());
+		}
+		
+		String body=this.mockMvc.perform(get(SERVICE_ENTITY_NAME).accept(PersonController.APPLICATION_NDJSON_VALUE))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(PersonController.APPLICATION_NDJSON_VALUE))
+			.andReturn().getResponse().getContentAsString();
+		
+		// Each line must be a complete PersonDto:
+		String[] lines=body.split("\n");
+		assertEquals(NUM_PERSONS_TO_LOAD, lines.length);
+		for (String line : lines) {
+			assertEquals(TEST_NAME, objectMapper.readValue(line, PersonDto.class).getName());
+		}
+	}
+	
+	
+	@Test
+	public void testKeysetPagination() throws Exception {
+		// Warning: This test deletes all entries in the DB.
+		final int NUM_PERSONS_TO_LOAD=5;
+		final int PAGE_LIMIT=2;
+		
+		personRepository.deleteAll();
+		
+		for (int i=0; i<NUM_PERSONS_TO_LOAD; i++) {
+			this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+				.content( objectMapper.writeValueAsString(getPersonDto()))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isCreated());
+		}
+		
+		// Walk the pages until there is no next cursor, checking ids only ever increase:
+		int pagesRead=0;
+		int peopleRead=0;
+		long lastId=Long.MIN_VALUE;
+		String cursor=null;
+		do {
+			MockHttpServletRequestBuilder request = get(SERVICE_ENTITY_NAME).param("limit", String.valueOf(PAGE_LIMIT));
+			if (null!=cursor) {
+				request.param("after", cursor);
+			}
+			JsonNode page = objectMapper.readTree(this.mockMvc.perform(request)
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString());
+			
+			for (JsonNode person : page.get("people")) {
+				assertTrue(person.get("id").asLong() > lastId);
+				lastId=person.get("id").asLong();
+				peopleRead++;
+			}
+			cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+			pagesRead++;
+		} while (null!=cursor);
+		
+		assertEquals(NUM_PERSONS_TO_LOAD, peopleRead);
+		assertEquals((NUM_PERSONS_TO_LOAD + PAGE_LIMIT - 1) / PAGE_LIMIT, pagesRead);
+		
+		// A garbled cursor is rejected as unprocessable:
+		this.mockMvc.perform(get(SERVICE_ENTITY_NAME).param("after", "not-a-cursor").param("limit", "2"))
+			.andExpect(status().isUnprocessableEntity());
+	}
+	
+	@Test
+	public void testJsonBodies() throws Exception {
+		// Unknown fields are ignored and numbers may be sent as strings, as with Jackson data binding:
+		String emailAddress = "Json.Body" + emailAddrCounter++ + "@gmail.com";
+		this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+			.content("{\"name\":\"Zoë \\\"Z\\\"\",\"age\":\"33\",\"nickname\":{\"a\":[1]},\"dateOfBirth\":\"1985-04-14\","
+				+ "\"emailAddress\":\"" + emailAddress + "\"}")
+			.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isCreated())
+			.andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(jsonPath("$.name").value("Zoë \"Z\""))
+			.andExpect(jsonPath("$.age").value(33))
+			.andExpect(jsonPath("$.dateOfBirth").value("1985-04-14"))
+			.andExpect(jsonPath("$.emailAddress").value(emailAddress))
+			.andExpect(jsonPath("$.version").doesNotExist());
+
+		for (String body : Arrays.asList("{\"name\":", "{\"age\":\"old\"}", "[]")) {
+			this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+				.content(body)
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isBadRequest());
+		}
+		this.mockMvc.perform(post(SERVICE_ENTITY_NAME + "batch")
+			.content("{}")
+			.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void testSmile() throws Exception {
+		PersonDto testPerson = getPersonDto();
+		MvcResult result = this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+			.content(smileMapper.writeValueAsBytes(testPerson))
+			.contentType(JsonConfiguration.APPLICATION_SMILE)
+			.accept(JsonConfiguration.APPLICATION_SMILE))
+			.andExpect(status().isCreated())
+			.andExpect(content().contentType(JsonConfiguration.APPLICATION_SMILE))
+			.andReturn();
+		PersonDto created = smileMapper.readValue(result.getResponse().getContentAsByteArray(), PersonDto.class);
+		assertEquals(testPerson.getEmailAddress(), created.getEmailAddress());
+		assertEquals(TEST_DATE_OF_BIRTH, created.getDateOfBirth());
+		String location = result.getResponse().getHeader("Location");
+
+		byte[] body = this.mockMvc.perform(get(location).accept(JsonConfiguration.APPLICATION_SMILE))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(JsonConfiguration.APPLICATION_SMILE))
+			.andReturn().getResponse().getContentAsByteArray();
+		assertEquals(created.toString(), smileMapper.readValue(body, PersonDto.class).toString());
+
+		// Json remains the default:
+		this.mockMvc.perform(get(location))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(jsonPath("$.id").value(created.getId()));
+
+		body = this.mockMvc.perform(get(SERVICE_ENTITY_NAME).accept(JsonConfiguration.APPLICATION_SMILE))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(JsonConfiguration.APPLICATION_SMILE))
+			.andReturn().getResponse().getContentAsByteArray();
+		List<PersonDto> people = Arrays.asList(smileMapper.readValue(body, PersonDto[].class));
+		assertTrue(people.stream().anyMatch(person -> person.getId().equals(created.getId())
+			&& person.getEmailAddress().equals(testPerson.getEmailAddress())));
+
+		// Bodies other than people are Smile too:
+		body = this.mockMvc.perform(post(SERVICE_ENTITY_NAME + "batch")
+			.content(smileMapper.writeValueAsBytes(Arrays.asList(getPersonDto(), testPerson)))
+			.contentType(JsonConfiguration.APPLICATION_SMILE)
+			.accept(JsonConfiguration.APPLICATION_SMILE))
+			.andExpect(status().isOk())
+			.andReturn().getResponse().getContentAsByteArray();
+		JsonNode batchResult = smileMapper.readTree(body);
+		assertEquals(1, batchResult.get("created").asInt());
+		assertTrue(batchResult.get("results").get(1).get("error").asText().contains(MSG_DUPLICATE_EMAIL));
+
+		body = this.mockMvc.perform(post(SERVICE_ENTITY_NAME + "lookup")
+			.content(smileMapper.writeValueAsBytes(Arrays.asList(created.getId())))
+			.contentType(JsonConfiguration.APPLICATION_SMILE)
+			.accept(JsonConfiguration.APPLICATION_SMILE))
+			.andExpect(status().isOk())
+			.andReturn().getResponse().getContentAsByteArray();
+		assertEquals(TEST_DATE_OF_BIRTH, smileMapper.readTree(body).get("people").get(0).get("dateOfBirth").asText());
+
+		// As are errors, written once without any failed attempt being logged:
+		outputCapture.reset();
+		body = this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+			.content(smileMapper.writeValueAsBytes(testPerson))
+			.contentType(JsonConfiguration.APPLICATION_SMILE)
+			.accept(JsonConfiguration.APPLICATION_SMILE))
+			.andExpect(status().isUnprocessableEntity())
+			.andReturn().getResponse().getContentAsByteArray();
+		assertTrue(smileMapper.readTree(body).toString().contains(MSG_DUPLICATE_EMAIL));
+		assertEquals("", outputCapture.toString());
+	}
+
+	@Test
+	public void testFields() throws Exception {
+		PersonDto testPerson = getPersonDto();
+		String location = this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+			.content(objectMapper.writeValueAsString(testPerson))
+			.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isCreated())
+			.andReturn().getResponse().getHeader("Location");
+		long id = Long.parseLong(location.substring(location.lastIndexOf('/') + 1));
+
+		String eTag = this.mockMvc.perform(get(location).param("fields", "emailAddress,id"))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(content().json("{\"id\":" + id + ",\"emailAddress\":\"" + testPerson.getEmailAddress() + "\"}", true))
+			.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		this.mockMvc.perform(get(location).param("fields", "dateOfBirth").header(HttpHeaders.IF_NONE_MATCH, eTag))
+			.andExpect(status().isNotModified());
+		this.mockMvc.perform(get(location).param("fields", "age"))
+			.andExpect(content().json("{\"age\":" + TEST_AGE + "}", true));
+
+		// Every person comes with just the fields asked for, as json, NDJSON and Smile:
+		JsonNode people = objectMapper.readTree(this.mockMvc.perform(get(SERVICE_ENTITY_NAME).param("fields", "id, dateOfBirth"))
+			.andExpect(status().isOk())
+			.andReturn().getResponse().getContentAsString());
+		assertTrue(people.size() > 0);
+		for (JsonNode person : people) {
+			assertEquals(2, person.size());
+			assertTrue(person.has("id") && person.has("dateOfBirth"));
+		}
+		String ndjson = this.mockMvc.perform(get(SERVICE_ENTITY_NAME).param("fields", "emailAddress")
+				.accept(PersonController.APPLICATION_NDJSON_VALUE))
+			.andExpect(status().isOk())
+			.andReturn().getResponse().getContentAsString();
+		assertTrue(ndjson.contains("{\"emailAddress\":\"" + testPerson.getEmailAddress() + "\"}\n"));
+		people = smileMapper.readTree(this.mockMvc.perform(get(SERVICE_ENTITY_NAME).param("fields", "name,id")
+				.accept(JsonConfiguration.APPLICATION_SMILE))
+			.andExpect(status().isOk())
+			.andReturn().getResponse().getContentAsByteArray());
+		assertEquals("[\"id\",\"name\"]", objectMapper.writeValueAsString(people.get(0).fieldNames()));
+
+		for (String fields : Arrays.asList("id,version", "normalizedEmailAddress", ",")) {
+			this.mockMvc.perform(get(SERVICE_ENTITY_NAME).param("fields", fields))
+				.andExpect(status().isUnprocessableEntity());
+			this.mockMvc.perform(get(location).param("fields", fields))
+				.andExpect(status().isUnprocessableEntity());
+		}
+		this.mockMvc.perform(get(SERVICE_ENTITY_NAME + Long.MAX_VALUE).param("fields", "id"))
+			.andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void testBatchCreate() throws Exception {
+		PersonDto existingPerson = getPersonDto();
+		this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+			.content( objectMapper.writeValueAsString(existingPerson))
+			.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isCreated());
+		
+		PersonDto invalidPerson = getPersonDto();
+		invalidPerson.setAge(-1);
+		PersonDto badDatePerson = getPersonDto();
+		badDatePerson.setDateOfBirth("XXXX");
+		PersonDto validPerson = getPersonDto();
+		PersonDto duplicateInBatch = getPersonDto();
+		duplicateInBatch.setEmailAddress(validPerson.getEmailAddress().toUpperCase());
+		
+		List<PersonDto> batch = Arrays.asList(getPersonDto(), invalidPerson, existingPerson, 
+			badDatePerson, validPerson, duplicateInBatch);
+		
+		String body=this.mockMvc.perform(post(SERVICE_ENTITY_NAME + "batch")
+			.content( objectMapper.writeValueAsString(batch))
+			.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.created").value(2))
+			.andExpect(jsonPath("$.rejected").value(4))
+			.andExpect(jsonPath("$.results.length()").value(batch.size()))
+			.andExpect(jsonPath("$.results[1].error").value(containsString("Age is negative")))
+			.andExpect(jsonPath("$.results[2].error").value(containsString(MSG_DUPLICATE_EMAIL)))
+			.andExpect(jsonPath("$.results[3].error").value(containsString("dateOfBirth")))
+			.andExpect(jsonPath("$.results[5].error").value(containsString(MSG_DUPLICATE_EMAIL)))
+			.andReturn().getResponse().getContentAsString();
+		
+		// The created people can be read back:
+		JsonNode results = objectMapper.readTree(body).get("results");
+		for (int i : new int[] {0, 4}) {
+			this.mockMvc.perform(get(SERVICE_ENTITY_NAME + results.get(i).get("id").asLong()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.emailAddress").value(batch.get(i).getEmailAddress()));
+		}
+		
+		// Null people and oversized batches are rejected as a whole:
+		this.mockMvc.perform(post(SERVICE_ENTITY_NAME + "batch")
+			.content("[" + objectMapper.writeValueAsString(getPersonDto()) + ", null]")
+			.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isUnprocessableEntity());
+		final int MAX_BATCH_PEOPLE=10000;
+		this.mockMvc.perform(post(SERVICE_ENTITY_NAME + "batch")
+			.content("[" + String.join(",", Collections.nCopies(MAX_BATCH_PEOPLE + 1, "{}")) + "]")
+			.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isUnprocessableEntity())
+			.andExpect(jsonPath("$.message").value(containsString("At most " + MAX_BATCH_PEOPLE)));
+	}
+	
+	@Test
+	public void testCsvImport() throws Exception {
+		PersonDto existingPerson = getPersonDto();
+		this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+			.content( objectMapper.writeValueAsString(existingPerson))
+			.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isCreated());
+		
+		// Columns in any order, extra columns ignored, quoted fields, CRLF line ends and a blank line:
+		String quotedEmail = getPersonDto().getEmailAddress();
+		String multiLineEmail = getPersonDto().getEmailAddress();
+		String csv = "id,emailAddress,name,dateOfBirth,age\r\n"
+			+ "1," + getPersonDto().getEmailAddress() + "," + TEST_NAME + "," + TEST_DATE_OF_BIRTH + "," + TEST_AGE + "\r\n"
+			+ "2," + quotedEmail + ",\"Smith, \"\"Jo\"\"\"," + TEST_DATE_OF_BIRTH + "," + TEST_AGE + "\r\n"
+			+ "3," + getPersonDto().getEmailAddress() + "," + TEST_NAME + "," + TEST_DATE_OF_BIRTH + ",-1\r\n"
+			+ "\r\n"
+			+ "4," + existingPerson.getEmailAddress() + "," + TEST_NAME + "," + TEST_DATE_OF_BIRTH + "," + TEST_AGE + "\r\n"
+			+ "5," + multiLineEmail + ",\"Jane\nSmith\"," + TEST_DATE_OF_BIRTH + "," + TEST_AGE + "\r\n"
+			+ "6," + getPersonDto().getEmailAddress() + "," + TEST_NAME + ",XXXX," + TEST_AGE + "\r\n"
+			+ "7," + quotedEmail.toUpperCase() + "," + TEST_NAME + "," + TEST_DATE_OF_BIRTH + "," + TEST_AGE + "\r\n"
+			+ "8," + TEST_NAME + "\r\n"
+			+ "9," + getPersonDto().getEmailAddress() + "," + TEST_NAME + "," + TEST_DATE_OF_BIRTH + "," + TEST_AGE;
+		
+		this.mockMvc.perform(post(SERVICE_ENTITY_NAME + "import")
+			.content(csv)
+			.contentType(PersonController.TEXT_CSV_VALUE))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.records").value(9))
+			.andExpect(jsonPath("$.created").value(4))
+			.andExpect(jsonPath("$.rejected").value(5))
+			.andExpect(jsonPath("$.errors.length()").value(5))
+			.andExpect(jsonPath("$.errors[0].line").value(4))
+			.andExpect(jsonPath("$.errors[0].error").value(containsString("Age is negative")))
+			.andExpect(jsonPath("$.errors[1].line").value(6))
+			.andExpect(jsonPath("$.errors[1].error").value(containsString(MSG_DUPLICATE_EMAIL)))
+			.andExpect(jsonPath("$.errors[2].line").value(9))
+			.andExpect(jsonPath("$.errors[2].error").value(containsString("Date of birth")))
+			.andExpect(jsonPath("$.errors[3].line").value(10))
+			.andExpect(jsonPath("$.errors[3].error").value(containsString(MSG_DUPLICATE_EMAIL)))
+			.andExpect(jsonPath("$.errors[4].line").value(11))
+			.andExpect(jsonPath("$.errors[4].error").value(containsString("fields")));
+		
+		assertEquals("Smith, \"Jo\"", personRepository.findByEmailAddressIgnoreCase(quotedEmail).get().getName());
+		assertEquals("Jane\nSmith", personRepository.findByEmailAddressIgnoreCase(multiLineEmail).get().getName());
+		
+		// Only the first maxErrors errors are listed:
+		this.mockMvc.perform(post(SERVICE_ENTITY_NAME + "import?maxErrors=1")
+			.content(csv)
+			.contentType(PersonController.TEXT_CSV_VALUE))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.created").value(0))
+			.andExpect(jsonPath("$.rejected").value(9))
+			.andExpect(jsonPath("$.errors.length()").value(1));
+		
+		this.mockMvc.perform(post(SERVICE_ENTITY_NAME + "import")
+			.content("name,age,emailAddress\n" + TEST_NAME + "," + TEST_AGE + "," + getPersonDto().getEmailAddress())
+			.contentType(PersonController.TEXT_CSV_VALUE))
+			.andExpect(status().isUnprocessableEntity());
+	}
+	
+	@Test
+	public void testExport() throws Exception {
+		PersonDto personDto = getPersonDto();
+		personDto.setName("Smith, \"Jo\" Ünal");
+		String location = this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+			.content( objectMapper.writeValueAsString(personDto))
+			.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isCreated())
+			.andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+		long id = Long.parseLong(location.substring(location.lastIndexOf('/') + 1));
+		
+		// CSV, gzipped: a header, then one line per person in id order, quoted where needed:
+		Path csvFile = exportFile("format=csv&gzip=true");
+		try {
+			List<String> lines = new ArrayList<>();
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+					new GZIPInputStream(Files.newInputStream(csvFile)), StandardCharsets.UTF_8))) {
+				reader.lines().forEach(lines::add);
+			}
+			assertEquals("id,name,age,dateOfBirth,emailAddress", lines.get(0));
+			assertEquals(personRepository.count() + 1, lines.size());
+			assertTrue(lines.contains(id + ",\"Smith, \"\"Jo\"\" Ünal\"," + TEST_AGE + "," + TEST_DATE_OF_BIRTH 
+				+ "," + personDto.getEmailAddress()));
+			long previousId = 0;
+			for (String line : lines.subList(1, lines.size())) {
+				long lineId = Long.parseLong(line.substring(0, line.indexOf(',')));
+				assertTrue(lineId > previousId);
+				previousId = lineId;
+			}
+			
+			// The file can be imported again, every person being rejected as a duplicate:
+			this.mockMvc.perform(post(SERVICE_ENTITY_NAME + "import")
+				.content(String.join("\n", lines).getBytes(StandardCharsets.UTF_8))
+				.contentType(PersonController.TEXT_CSV_VALUE))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.records").value(lines.size() - 1))
+				.andExpect(jsonPath("$.created").value(0));
+		} finally {
+			Files.delete(csvFile);
+		}
+		
+		// NDJSON: one PersonDto per line, as GET /people sends them:
+		Path ndjsonFile = exportFile("format=ndjson");
+		try {
+			JsonNode exported = null;
+			for (String line : Files.readAllLines(ndjsonFile, StandardCharsets.UTF_8)) {
+				JsonNode node = objectMapper.readTree(line);
+				if (node.get("id").asLong()==id) {
+					exported = node;
+				}
+			}
+			assertEquals(id, exported.get("id").asLong());
+			assertEquals(personDto.getName(), exported.get("name").asText());
+			assertEquals(TEST_AGE.intValue(), exported.get("age").asInt());
+			assertEquals(TEST_DATE_OF_BIRTH, exported.get("dateOfBirth").asText());
+			assertEquals(personDto.getEmailAddress(), exported.get("emailAddress").asText());
+		} finally {
+			Files.delete(ndjsonFile);
+		}
+		
+		this.mockMvc.perform(post(SERVICE_ENTITY_NAME + "export?format=xml"))
+			.andExpect(status().isUnprocessableEntity());
+	}
+	
+	@Test
+	public void testMultiGet() throws Exception {
+		long[] ids=new long[2];
+		for (int i=0; i<ids.length; i++) {
+			String location=this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+				.content( objectMapper.writeValueAsString(getPersonDto()))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isCreated())
+				.andReturn().getResponse().getHeader("Location");
+			ids[i]=Long.parseLong(location.substring(location.lastIndexOf('/')+1));
+		}
+		long missingId=Long.MAX_VALUE;
+		
+		// People come back in the order requested, each once, with missing ids listed separately:
+		this.mockMvc.perform(get(SERVICE_ENTITY_NAME).param("ids", ids[1] + "," + missingId + "," + ids[0] + "," + ids[1]))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.people.length()").value(2))
+			.andExpect(jsonPath("$.people[0].id").value(ids[1]))
+			.andExpect(jsonPath("$.people[1].id").value(ids[0]))
+			.andExpect(jsonPath("$.missingIds.length()").value(1))
+			.andExpect(jsonPath("$.missingIds[0]").value(missingId));
+		
+		this.mockMvc.perform(post(SERVICE_ENTITY_NAME + "lookup")
+				.content( objectMapper.writeValueAsString(Arrays.asList(ids[0], missingId, ids[1])))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.people[0].id").value(ids[0]))
+			.andExpect(jsonPath("$.people[1].id").value(ids[1]))
+			.andExpect(jsonPath("$.missingIds[0]").value(missingId));
+	}
+	
+	@Test
+	public void testSearch() throws Exception {
+		final String DOMAIN="search-test.org";
+		final int[] AGES={20, 30, 40};
+		for (int i=0; i<AGES.length; i++) {
+			PersonDto personDto=getPersonDto();
+			personDto.setName("Searchable_" + i);
+			personDto.setAge(AGES[i]);
+			personDto.setDateOfBirth((2000 - AGES[i]) + "-06-01");
+			personDto.setEmailAddress("searchable" + i + "@" + DOMAIN);
+			this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+				.content( objectMapper.writeValueAsString(personDto))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isCreated());
+		}
+		
+		// Criteria combine, and the domain matches without regard to case:
+		this.mockMvc.perform(get(SERVICE_ENTITY_NAME + "search")
+				.param("emailDomain", DOMAIN.toUpperCase())
+				.param("minAge", "25")
+				.param("sort", "age,desc"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.totalElements").value(2))
+			.andExpect(jsonPath("$.content[0].age").value(40))
+			.andExpect(jsonPath("$.content[1].age").value(30));
+		
+		this.mockMvc.perform(get(SERVICE_ENTITY_NAME + "search")
+				.param("namePrefix", "Searchable_")
+				.param("dateOfBirthFrom", "1965-01-01")
+				.param("dateOfBirthTo", "1975-12-31"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.totalElements").value(1))
+			.andExpect(jsonPath("$.content[0].name").value("Searchable_1"));
+		
+		// The underscore in the prefix is matched literally, not as a wildcard:
+		this.mockMvc.perform(get(SERVICE_ENTITY_NAME + "search").param("namePrefix", "Searchable__"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.totalElements").value(0));
+		
+		this.mockMvc.perform(get(SERVICE_ENTITY_NAME + "search").param("sort", "version"))
+			.andExpect(status().isUnprocessableEntity());
+		this.mockMvc.perform(get(SERVICE_ENTITY_NAME + "search").param("dateOfBirthFrom", "XXXX"))
+			.andExpect(status().isUnprocessableEntity());
+	}
 	
 	@Test
 	public void testPut() throws Exception {
@@ -136,20 +649,212 @@ public class PersonControllerTest {
 		Integer newAge=testPerson.getAge()+1;
 		testPerson.setAge(newAge);
    	
+		// Even without If-Match, the response carries the new ETag:
 		this.mockMvc.perform(put(personLocation)
     	    .content( objectMapper.writeValueAsString(testPerson))
     	    .contentType(MediaType.APPLICATION_JSON_UTF8))
     		.andExpect(status().isOk())
+    		.andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
     		.andDo(print());
    	
 		// Retrieve the person and check age reflects new value:  	
 		this.mockMvc.perform(get(personLocation))
 			.andExpect(status().isOk())
 			.andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
 			.andExpect(jsonPath("$.age").value(newAge));
 	}
 	
 	
+	@Test
+	public void testConditionalGetAndPut() throws Exception {
+		PersonDto testPerson=getPersonDto();
+		String personLocation=this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+				.content( objectMapper.writeValueAsString(testPerson))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isCreated())
+				.andReturn().getResponse().getHeader("Location");
+		
+		String eTag=this.mockMvc.perform(get(personLocation))
+			.andExpect(status().isOk())
+			.andExpect(header().exists(HttpHeaders.ETAG))
+			.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		
+		// Unchanged, so no body is sent:
+		this.mockMvc.perform(get(personLocation).header(HttpHeaders.IF_NONE_MATCH, eTag))
+			.andExpect(status().isNotModified())
+			.andExpect(content().string(""));
+		
+		// A put conditional on the current version succeeds and changes the ETag:
+		testPerson.setAge(testPerson.getAge()+1);
+		String newETag=this.mockMvc.perform(put(personLocation)
+				.header(HttpHeaders.IF_MATCH, eTag)
+				.content( objectMapper.writeValueAsString(testPerson))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertNotEquals(eTag, newETag);
+		
+		// A put conditional on the old version now fails, and changes nothing:
+		testPerson.setAge(testPerson.getAge()+1);
+		this.mockMvc.perform(put(personLocation)
+				.header(HttpHeaders.IF_MATCH, eTag)
+				.content( objectMapper.writeValueAsString(testPerson))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isPreconditionFailed());
+		
+		this.mockMvc.perform(get(personLocation).header(HttpHeaders.IF_NONE_MATCH, eTag))
+			.andExpect(status().isOk())
+			.andExpect(header().string(HttpHeaders.ETAG, newETag))
+			.andExpect(jsonPath("$.age").value(testPerson.getAge()-1));
+		
+		// Of a list of ETags, the current one matches; a weak one never does:
+		this.mockMvc.perform(put(personLocation)
+				.header(HttpHeaders.IF_MATCH, eTag + ", W/" + newETag)
+				.content( objectMapper.writeValueAsString(testPerson))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isPreconditionFailed());
+		newETag=this.mockMvc.perform(put(personLocation)
+				.header(HttpHeaders.IF_MATCH, eTag + ", " + newETag)
+				.content( objectMapper.writeValueAsString(testPerson))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.age").value(testPerson.getAge()))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		
+		// A conditional put of a person that doesn't exist fails its precondition:
+		this.mockMvc.perform(put(SERVICE_ENTITY_NAME + Long.MAX_VALUE)
+				.header(HttpHeaders.IF_MATCH, newETag)
+				.content( objectMapper.writeValueAsString(testPerson))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isPreconditionFailed());
+	}
+	
+	@Test
+	public void testPatch() throws Exception {
+		PersonDto testPerson=getPersonDto();
+		String personLocation=this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+				.content( objectMapper.writeValueAsString(testPerson))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isCreated())
+				.andReturn().getResponse().getHeader("Location");
+		String eTag=this.mockMvc.perform(get(personLocation))
+			.andExpect(status().isOk())
+			.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		
+		// Only the field sent changes; the response is the whole person with its new ETag:
+		String newEmailAddress="Patched." + testPerson.getEmailAddress();
+		String newETag=this.mockMvc.perform(patch(personLocation)
+				.header(HttpHeaders.IF_MATCH, eTag)
+				.content("{\"emailAddress\":\"" + newEmailAddress + "\"}")
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.emailAddress").value(newEmailAddress))
+				.andExpect(jsonPath("$.name").value(TEST_NAME))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertNotEquals(eTag, newETag);
+		this.mockMvc.perform(get(personLocation))
+			.andExpect(status().isOk())
+			.andExpect(header().string(HttpHeaders.ETAG, newETag))
+			.andExpect(jsonPath("$.emailAddress").value(newEmailAddress))
+			.andExpect(jsonPath("$.age").value(TEST_AGE))
+			.andExpect(jsonPath("$.dateOfBirth").value(TEST_DATE_OF_BIRTH));
+		
+		// A patch conditional on the old version fails:
+		this.mockMvc.perform(patch(personLocation)
+				.header(HttpHeaders.IF_MATCH, eTag)
+				.content("{\"age\":" + TEST_AGE2 + "}")
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isPreconditionFailed());
+		
+		// Of a list of ETags, the current one matches:
+		newETag=this.mockMvc.perform(patch(personLocation)
+				.header(HttpHeaders.IF_MATCH, eTag + ", " + newETag)
+				.content("{\"age\":" + TEST_AGE2 + "}")
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.age").value(TEST_AGE2))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		
+		// The id may be sent, but only as the person's own, in whole:
+		String id=personLocation.substring(personLocation.lastIndexOf('/') + 1);
+		this.mockMvc.perform(patch(personLocation)
+				.content("{\"id\":" + id + ",\"age\":" + TEST_AGE + "}")
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isOk());
+		newETag=this.mockMvc.perform(get(personLocation))
+			.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		
+		// Only the fields sent are validated, and each must be valid:
+		for (String invalidPatch : Arrays.asList("{}", "{\"id\":" + id + ".5,\"age\":" + TEST_AGE + "}",
+				"{\"id\":" + id + "e0,\"age\":" + TEST_AGE + "}", "{\"age\":-1}", "{\"age\":null}", "{\"age\":\"old\"}",
+				"{\"name\":\"\"}", "{\"dateOfBirth\":\"XXXX\"}", "{\"emailAddress\":\"nowhere\"}",
+				"{\"id\":" + Long.MAX_VALUE + "}", "{\"nickname\":\"Jack\"}")) {
+			this.mockMvc.perform(patch(personLocation)
+					.content(invalidPatch)
+					.contentType(MediaType.APPLICATION_JSON_UTF8))
+					.andExpect(status().isUnprocessableEntity());
+		}
+		
+		// A changed email address is still checked for duplicates:
+		PersonDto testPerson2=getPersonDto();
+		this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+				.content( objectMapper.writeValueAsString(testPerson2))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isCreated());
+		this.mockMvc.perform(patch(personLocation)
+				.content("{\"emailAddress\":\"" + testPerson2.getEmailAddress().toUpperCase() + "\"}")
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isUnprocessableEntity())
+				.andExpect(jsonPath("$.message").value(containsString(MSG_DUPLICATE_EMAIL)));
+		
+		this.mockMvc.perform(patch(SERVICE_ENTITY_NAME + Long.MAX_VALUE)
+				.content("{\"age\":" + TEST_AGE2 + "}")
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isNotFound());
+		this.mockMvc.perform(get(personLocation))
+			.andExpect(status().isOk())
+			.andExpect(header().string(HttpHeaders.ETAG, newETag));
+	}
+	
+	@Test
+	public void testCachedPersonIsInvalidatedByWrites() throws Exception {
+		PersonDto testPerson=getPersonDto();
+		String personLocation=this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+				.content( objectMapper.writeValueAsString(testPerson))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isCreated())
+				.andReturn().getResponse().getHeader("Location");
+		
+		// The second read is served from the cache:
+		this.mockMvc.perform(get(personLocation)).andExpect(status().isOk());
+		long hits=personDtoCache.getHitCount();
+		this.mockMvc.perform(get(personLocation))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.age").value(testPerson.getAge()));
+		assertEquals(hits + 1, personDtoCache.getHitCount());
+		
+		// An update is visible immediately:
+		testPerson.setAge(testPerson.getAge()+1);
+		this.mockMvc.perform(put(personLocation)
+			.content( objectMapper.writeValueAsString(testPerson))
+			.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isOk());
+		this.mockMvc.perform(get(personLocation))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.age").value(testPerson.getAge()));
+		
+		// And so is a delete:
+		this.mockMvc.perform(delete(personLocation)).andExpect(status().isNoContent());
+		this.mockMvc.perform(get(personLocation)).andExpect(status().isNotFound());
+		
+		this.mockMvc.perform(get("/actuator/personcache"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.hits").isNumber())
+			.andExpect(jsonPath("$.misses").isNumber())
+			.andExpect(jsonPath("$.evictions").isNumber());
+	}
+	
 	@Test
 	public void testDuplicateEmailCheck() throws Exception {
 	 	final PersonDto testPerson = getPersonDto();    
@@ -186,6 +891,56 @@ public class PersonControllerTest {
         	.andDo(print());
 	}
 	
+	@Test
+	public void testDuplicateEmailCheckIgnoresCase() throws Exception {
+		final PersonDto testPerson = getPersonDto();
+		
+		this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+			.content( objectMapper.writeValueAsString(testPerson))
+			.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isCreated());
+		
+		testPerson.setEmailAddress(testPerson.getEmailAddress().toUpperCase());
+		this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+			.content( objectMapper.writeValueAsString(testPerson))
+			.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isUnprocessableEntity())
+			.andExpect(jsonPath("$.message").value(containsString(MSG_DUPLICATE_EMAIL)));
+	}
+	
+	@Test
+	public void testConcurrentDuplicateEmailPosts() throws Exception {
+		// Several clients post the same email at once.  Whichever of them get past the duplicate
+		// check together, the unique index must let exactly one through and reject the rest with 422:
+		final int NUM_CLIENTS=8;
+		final String content=objectMapper.writeValueAsString(getPersonDto());
+		
+		ExecutorService clients=Executors.newFixedThreadPool(NUM_CLIENTS);
+		CountDownLatch start=new CountDownLatch(1);
+		List<Future<Integer>> statuses=new ArrayList<>();
+		for (int i=0; i<NUM_CLIENTS; i++) {
+			statuses.add(clients.submit(() -> {
+				start.await();
+				return this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+					.content(content)
+					.contentType(MediaType.APPLICATION_JSON_UTF8))
+					.andReturn().getResponse().getStatus();
+			}));
+		}
+		start.countDown();
+		
+		int created=0;
+		for (Future<Integer> status : statuses) {
+			if (HttpStatus.CREATED.value()==status.get()) {
+				created++;
+			} else {
+				assertEquals(HttpStatus.UNPROCESSABLE_ENTITY.value(), status.get().intValue());
+			}
+		}
+		clients.shutdown();
+		assertEquals(1, created);
+	}
+	
 	@Test
 	// This tests that validations are done; exhaustive validation tests should be done elsewhere
 	public void testValidationsArePerformedForPost() throws Exception {
@@ -241,15 +996,220 @@ public class PersonControllerTest {
 		this.mockMvc.perform(get(personLocation))
 			.andExpect(status().isNotFound());
  	
-		// Verify that delete of non-existent rec succeeds;
-	   	
+		// Verify that delete of non-existent rec is not found:
 	   	mockMvc.perform(delete(personLocation).contentType(MediaType.APPLICATION_JSON_UTF8))
-            .andExpect(status().isNoContent());
-	   	
+            .andExpect(status().isNotFound());
+	}
+	
+	@Test
+	public void testBulkDelete() throws Exception {
+		final String DOMAIN="bulk-delete-test.org";
+		long[] ids=new long[4];
+		for (int i=0; i<ids.length; i++) {
+			PersonDto personDto=getPersonDto();
+			personDto.setEmailAddress("deletable" + i + "@" + DOMAIN);
+			String location=this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+				.content( objectMapper.writeValueAsString(personDto))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isCreated())
+				.andReturn().getResponse().getHeader("Location");
+			ids[i]=Long.parseLong(location.substring(location.lastIndexOf('/')+1));
+		}
+		long missingId=Long.MAX_VALUE;
+		
+		// By id, in the query string and in the body, with missing ids listed:
+		this.mockMvc.perform(delete(SERVICE_ENTITY_NAME).param("ids", ids[0] + "," + missingId + "," + ids[0]))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.deleted").value(1))
+			.andExpect(jsonPath("$.missingIds.length()").value(1))
+			.andExpect(jsonPath("$.missingIds[0]").value(missingId));
+		this.mockMvc.perform(post(SERVICE_ENTITY_NAME + "delete")
+				.content( objectMapper.writeValueAsString(Arrays.asList(ids[0], ids[1])))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.deleted").value(1))
+			.andExpect(jsonPath("$.missingIds[0]").value(ids[0]));
+		this.mockMvc.perform(get(SERVICE_ENTITY_NAME + ids[1]))
+			.andExpect(status().isNotFound());
+		
+		// By filter, which must be given:
+		this.mockMvc.perform(delete(SERVICE_ENTITY_NAME))
+			.andExpect(status().isUnprocessableEntity());
+		// A misspelt criterion is rejected rather than ignored, which would delete too many people:
+		this.mockMvc.perform(delete(SERVICE_ENTITY_NAME).param("emailDomain", DOMAIN).param("bornAfter", "1900-01-01"))
+			.andExpect(status().isUnprocessableEntity())
+			.andExpect(jsonPath("$.message").value(containsString("bornAfter")));
+		this.mockMvc.perform(get(SERVICE_ENTITY_NAME + ids[2]))
+			.andExpect(status().isOk());
+		this.mockMvc.perform(delete(SERVICE_ENTITY_NAME).param("emailDomain", DOMAIN.toUpperCase()))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.deleted").value(2));
+		this.mockMvc.perform(get(SERVICE_ENTITY_NAME + "search").param("emailDomain", DOMAIN))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.totalElements").value(0));
+		this.mockMvc.perform(get(SERVICE_ENTITY_NAME + ids[3]))
+			.andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void testChangeFeed() throws Exception {
+		// A snapshot gives the sequence number to read the changes after:
+		String snapshotSeq=this.mockMvc.perform(get(SERVICE_ENTITY_NAME))
+			.andExpect(status().isOk())
+			.andExpect(header().exists(PersonChangeController.CHANGE_SEQ_HEADER))
+			.andReturn().getResponse().getHeader(PersonChangeController.CHANGE_SEQ_HEADER);
 		
+		PersonDto testPerson = getPersonDto();
+		String location=this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+			.content(objectMapper.writeValueAsString(testPerson))
+			.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isCreated())
+			.andReturn().getResponse().getHeader("Location");
+		String id = location.substring(location.lastIndexOf('/')+1);
+		testPerson.setAge(TEST_AGE2);
+		this.mockMvc.perform(put(location)
+			.content(objectMapper.writeValueAsString(testPerson))
+			.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isOk());
+		this.mockMvc.perform(delete(location))
+			.andExpect(status().isNoContent());
+		
+		// The three changes, in order:
+		MvcResult pollResult=this.mockMvc.perform(get(SERVICE_ENTITY_NAME + "changes")
+			.param("since", snapshotSeq).param("waitSeconds", "0"))
+			.andReturn();
+		String body=this.mockMvc.perform(asyncDispatch(pollResult))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.changes.length()").value(3))
+			.andExpect(jsonPath("$.changes[0].type").value("CREATED"))
+			.andExpect(jsonPath("$.changes[0].id").value(id))
+			.andExpect(jsonPath("$.changes[1].type").value("UPDATED"))
+			.andExpect(jsonPath("$.changes[1].person.age").value(TEST_AGE2))
+			.andExpect(jsonPath("$.changes[2].type").value("DELETED"))
+			.andExpect(jsonPath("$.changes[2].person").isEmpty())
+			.andReturn().getResponse().getContentAsString();
+		long lastSeq=objectMapper.readTree(body).get("lastSeq").asLong();
+		
+		// A long poll is answered when the next change is made:
+		pollResult=this.mockMvc.perform(get(SERVICE_ENTITY_NAME + "changes")
+			.param("since", Long.toString(lastSeq)).param("waitSeconds", "10"))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+			.content(objectMapper.writeValueAsString(getPersonDto()))
+			.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isCreated());
+		this.mockMvc.perform(asyncDispatch(pollResult))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.changes.length()").value(1))
+			.andExpect(jsonPath("$.changes[0].type").value("CREATED"));
+		
+		// The same changes as server-sent events:
+		MvcResult streamResult=this.mockMvc.perform(get(SERVICE_ENTITY_NAME + "changes")
+			.param("since", snapshotSeq).accept(MediaType.TEXT_EVENT_STREAM))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		String events="";
+		for (int i=0; i<50 && !events.contains("event:CREATED\ndata:{\"seq\":" + (lastSeq + 1)); i++) {
+			Thread.sleep(100);
+			events=streamResult.getResponse().getContentAsString();
+		}
+		assertTrue(events, events.contains("event:UPDATED\n"));
+		assertTrue(events, events.contains("event:DELETED\n"));
+		assertTrue(events, events.contains("event:CREATED\ndata:{\"seq\":" + (lastSeq + 1)));
+		
+		// Sequence numbers from before the server started are not retained:
+		pollResult=this.mockMvc.perform(get(SERVICE_ENTITY_NAME + "changes").param("since", "0").param("waitSeconds", "0"))
+			.andReturn();
+		this.mockMvc.perform(asyncDispatch(pollResult))
+			.andExpect(status().isGone());
+	}
+	
+	@Test
+	public void testStats() throws Exception {
+		JsonNode before=objectMapper.readTree(this.mockMvc.perform(get(SERVICE_ENTITY_NAME + "stats"))
+			.andExpect(status().isOk())
+			.andReturn().getResponse().getContentAsString());
+		
+		PersonDto testPerson=getPersonDto();
+		testPerson.setAge(121);
+		testPerson.setDateOfBirth("1897-01-02");
+		testPerson.setEmailAddress("Stats@Stats.Example.com");
+		String location=this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+			.content(objectMapper.writeValueAsString(testPerson))
+			.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isCreated())
+			.andReturn().getResponse().getHeader("Location");
+		
+		this.mockMvc.perform(get(SERVICE_ENTITY_NAME + "stats"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.count").value(before.get("count").asLong() + 1))
+			.andExpect(jsonPath("$.ageCounts.121").value(1))
+			.andExpect(jsonPath("$.birthYearCounts.1897").value(1))
+			.andExpect(jsonPath("$.emailDomainCounts['stats.example.com']").value(1));
+		
+		// An update moves the person from one count to another:
+		testPerson.setAge(122);
+		testPerson.setDateOfBirth("1896-01-02");
+		this.mockMvc.perform(put(location)
+			.content(objectMapper.writeValueAsString(testPerson))
+			.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isOk());
+		this.mockMvc.perform(get(SERVICE_ENTITY_NAME + "stats"))
+			.andExpect(jsonPath("$.count").value(before.get("count").asLong() + 1))
+			.andExpect(jsonPath("$.ageCounts.121").doesNotExist())
+			.andExpect(jsonPath("$.ageCounts.122").value(1))
+			.andExpect(jsonPath("$.birthYearCounts.1897").doesNotExist())
+			.andExpect(jsonPath("$.birthYearCounts.1896").value(1));
+		
+		this.mockMvc.perform(delete(location))
+			.andExpect(status().isNoContent());
+		this.mockMvc.perform(get(SERVICE_ENTITY_NAME + "stats").param("topEmailDomains", "1"))
+			.andExpect(jsonPath("$.count").value(before.get("count").asLong()))
+			.andExpect(jsonPath("$.ageCounts.122").doesNotExist())
+			.andExpect(jsonPath("$.emailDomainCounts['stats.example.com']").doesNotExist())
+			.andExpect(jsonPath("$.emailDomainCounts.length()").value(1));
+	}
+	
+	@Test
+	public void testMetricsArePublished() throws Exception {
+		// Make sure there has been at least one lookup and one validation rejection:
+		String personLocation=this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+				.content( objectMapper.writeValueAsString(getPersonDto()))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isCreated())
+				.andReturn().getResponse().getHeader("Location");
+		this.mockMvc.perform(get(personLocation)).andExpect(status().isOk());
+		
+		PersonDto invalidPerson=getPersonDto();
+		invalidPerson.setAge(-1);
+		this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+				.content( objectMapper.writeValueAsString(invalidPerson))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(status().isUnprocessableEntity());
+		
+		this.mockMvc.perform(get("/actuator/prometheus"))
+			.andExpect(status().isOk())
+			.andExpect(content().string(containsString("http_server_requests_seconds{")))
+			.andExpect(content().string(containsString("quantile=\"0.99\"")))
+			.andExpect(content().string(containsString("person_repository_seconds_count{method=\"findById\",}")))
+			.andExpect(content().string(containsString("person_validation_rejections_total{uri=\"/people")))
+			.andExpect(content().string(containsString("hikaricp_connections_acquire_seconds")))
+			.andExpect(content().string(containsString("cache_gets_total{cache=\"personDto\",result=\"miss\",}")));
 	}
 
 	// For testing purposes, creates a valid personDTO with a unique email address.
+	// Exports the people with the given query parameters and returns the file written.
+	private Path exportFile(String query) throws Exception {
+		String body = this.mockMvc.perform(post(SERVICE_ENTITY_NAME + "export?" + query))
+			.andExpect(status().isOk())
+			.andReturn().getResponse().getContentAsString();
+		JsonNode result = objectMapper.readTree(body);
+		Path file = Paths.get(result.get("file").asText());
+		assertEquals(Files.size(file), result.get("bytes").asLong());
+		return file;
+	}
+	
 	private PersonDto getPersonDto() {
 		PersonDto personDto = new PersonDto();
 		personDto.setAge(TEST_AGE);
@@ -0,0 +1,149 @@
+package com.amex.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.amex.personServer.domain.DateOfBirthFormat;
+import com.amex.personServer.domain.Person;
+import com.amex.personServer.dto.PersonDto;
+import com.amex.personServer.json.PersonJsonReader;
+import com.amex.personServer.json.PersonJsonWriter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/*
+ * The PersonJsonWriter and PersonJsonReader against Jackson data binding of the PersonDto, with
+ * an ObjectMapper configured the way Spring Boot configures the server's.
+ */
+public class PersonJsonTest {
+
+	private static final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+		.featuresToDisable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+
+	@Test
+	public void testWritesWhatJacksonWrites() throws IOException {
+		Person person = new Person();
+		person.setId(12L);
+		person.setName("Zoë \"Zed\" O'Brien\\\n\u0001 \uD83D\uDE00");
+		person.setAge(33);
+		person.setDateOfBirth(LocalDate.of(985, 4, 4));
+		person.setEmailAddress("zoë@example.com");
+		person.setVersion(3L);
+
+		PersonDto personDto = objectMapper.readValue(objectMapper.writeValueAsString(person), PersonDto.class);
+		assertEquals("0985-04-04", personDto.getDateOfBirth());
+		assertEquals(objectMapper.writeValueAsString(personDto), write(writer -> writer.write(person)));
+		assertEquals(objectMapper.writeValueAsString(personDto), write(writer -> writer.write(personDto)));
+
+		PersonDto empty = new PersonDto();
+		assertEquals(objectMapper.writeValueAsString(empty), write(writer -> writer.write(empty)));
+	}
+
+	@Test
+	public void testReadsWhatJacksonReads() throws IOException {
+		String[] jsons = {
+			"{\"id\":1,\"name\":\"Zoë \\\"Zed\\\"\\u0041\",\"age\":33,\"dateOfBirth\":\"1985-04-14\",\"emailAddress\":\"a@b.com\"}",
+			"{\"emailAddress\":\"a@b.com\",\"age\":\"33\",\"name\":7,\"unknown\":{\"a\":[1,{}]},\"version\":5,\"id\":\"\"}",
+			"{\"age\":33.9,\"name\":true,\"dateOfBirth\":null,\"id\":null}",
+			"{}" };
+		for (String json : jsons) {
+			assertEquals(json, objectMapper.readValue(json, PersonDto.class).toString(), read(json).toString());
+		}
+		assertNull(read("null"));
+
+		String array = "[" + String.join(",", jsons) + ",null]";
+		List<PersonDto> expected = objectMapper.readValue(array, new TypeReference<List<PersonDto>>() {});
+		try (JsonParser parser = objectMapper.getFactory().createParser(array)) {
+			assertEquals(expected.toString(), PersonJsonReader.readPersonDtos(parser).toString());
+		}
+	}
+
+	@Test
+	public void testRejectsWhatJacksonRejects() throws IOException {
+		for (String json : Arrays.asList("[]", "\"person\"", "{\"age\":\"old\"}", "{\"age\":[33]}",
+				"{\"name\":{}}", "{\"id\":99999999999999999999}", "{\"age\":33", "{\"age\":33,}")) {
+			try {
+				objectMapper.readValue(json, PersonDto.class);
+				fail("Jackson accepted " + json);
+			} catch (JsonProcessingException e) {
+				// As expected
+			}
+			try {
+				read(json);
+				fail("Accepted " + json);
+			} catch (JsonProcessingException e) {
+				// As expected
+			}
+		}
+	}
+
+	@Test
+	public void testFormatsDatesAsTheFormatterDoes() {
+		char[] chars = new char[32];
+		for (LocalDate date = LocalDate.of(1, 1, 1); date.getYear() < 10000; date = date.plusDays(17)) {
+			assertEquals(date.format(DateOfBirthFormat.FORMATTER), DateOfBirthFormat.format(date));
+			assertEquals(date.format(DateOfBirthFormat.FORMATTER),
+				new String(chars, 0, DateOfBirthFormat.formatEpochDay(date.toEpochDay(), chars)));
+		}
+		for (LocalDate date : Arrays.asList(LocalDate.of(1900, 2, 28), LocalDate.of(2000, 2, 29),
+				LocalDate.of(1969, 12, 31), LocalDate.of(1970, 1, 1), LocalDate.of(10000, 1, 1), LocalDate.of(-5, 6, 7))) {
+			assertEquals(date.format(DateOfBirthFormat.FORMATTER),
+				new String(chars, 0, DateOfBirthFormat.formatEpochDay(date.toEpochDay(), chars)));
+		}
+	}
+
+	@Test
+	public void testParsesDatesAsTheFormatterDoes() {
+		for (String value : Arrays.asList("1985-04-14", "0001-01-01", "9999-12-31", "2000-02-29", "2000-02-30",
+				"1900-02-29", "2001-04-31", "2001-04-32", "2001-13-01", "2001-00-10", "2001-01-00", "0000-01-01",
+				"12345-01-01", "2001-1-01", "2001/01/01", "20a1-01-01", "-001-01-01", "2001-01-1a", "", "x")) {
+			String expected;
+			try {
+				expected = LocalDate.parse(value, DateOfBirthFormat.FORMATTER).toString();
+			} catch (DateTimeParseException e) {
+				expected = "rejected";
+			}
+			String actual;
+			try {
+				actual = DateOfBirthFormat.parse(value).toString();
+			} catch (DateTimeParseException e) {
+				actual = "rejected";
+			}
+			assertEquals(value, expected, actual);
+		}
+	}
+
+	private interface PersonWrite {
+		void write(PersonJsonWriter writer) throws IOException;
+	}
+
+	private static String write(PersonWrite write) throws IOException {
+		StringWriter json = new StringWriter();
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(json)) {
+			write.write(new PersonJsonWriter(generator));
+		}
+		return json.toString();
+	}
+
+	private static PersonDto read(String json) throws IOException {
+		try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+			return PersonJsonReader.readPersonDto(parser);
+		}
+	}
+}
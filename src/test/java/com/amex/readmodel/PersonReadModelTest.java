@@ -0,0 +1,241 @@
+package com.amex.readmodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.amex.personServer.PersonServerApplication;
+import com.amex.personServer.domain.Person;
+import com.amex.personServer.dto.PersonDto;
+import com.amex.personServer.readmodel.PersonReadModel;
+import com.amex.personServer.readmodel.PersonRecord;
+import com.amex.personServer.service.PersonService;
+import com.amex.personServer.stats.PersonStats;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = PersonServerApplication.class, properties = {
+	"person.read-model.enabled=true",
+	// A DB of its own, so that the other suites' direct changes to the table don't make the model stale:
+	"spring.datasource.url=jdbc:h2:mem:readmodeltest" })
+@AutoConfigureMockMvc
+
+/*
+ * Tests of the PersonController and PersonService served from the PersonReadModel.
+ */
+public class PersonReadModelTest {
+	
+	private static final String SERVICE_ENTITY_NAME="/people/";
+	
+	private static int emailAddrCounter=1;
+	
+	@Autowired
+	private MockMvc mockMvc;
+	
+	@Autowired
+	PersonReadModel personReadModel;
+	
+	@Autowired
+	PersonService personService;
+	
+	@Autowired
+	PersonStats personStats;
+	
+	@Autowired
+	PlatformTransactionManager transactionManager;
+	
+	private static ObjectMapper objectMapper=new ObjectMapper();
+	
+	@Test
+	public void testLoadedAtStartup() {
+		// Added by StartupInit before the model was loaded:
+		assertTrue(personReadModel.containsEmailAddress("JOHN.SMITH@yahoo.com"));
+		assertTrue(personReadModel.containsEmailAddress("mark.miller@yahoo.com"));
+		assertFalse(personReadModel.containsEmailAddress("nobody@yahoo.com"));
+	}
+	
+	@Test
+	public void testReadsAndWrites() throws Exception {
+		PersonDto testPerson=getPersonDto();
+		String location=this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+			.content(objectMapper.writeValueAsString(testPerson))
+			.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isCreated())
+			.andReturn().getResponse().getHeader("Location");
+		long id=Long.parseLong(location.substring(location.lastIndexOf('/')+1));
+		assertEquals(testPerson.getEmailAddress(), personReadModel.get(id).getEmailAddress());
+		
+		String eTag=this.mockMvc.perform(get(location))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.name").value(testPerson.getName()))
+			.andExpect(jsonPath("$.dateOfBirth").value(testPerson.getDateOfBirth()))
+			.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		this.mockMvc.perform(get(location).param("fields", "dateOfBirth,id"))
+			.andExpect(status().isOk())
+			.andExpect(header().string(HttpHeaders.ETAG, eTag))
+			.andExpect(content().json("{\"id\":" + id + ",\"dateOfBirth\":\"" + testPerson.getDateOfBirth() + "\"}", true));
+		
+		// The duplicate check is made against the model:
+		PersonDto duplicate=getPersonDto();
+		duplicate.setEmailAddress(testPerson.getEmailAddress().toUpperCase());
+		this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+			.content(objectMapper.writeValueAsString(duplicate))
+			.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isUnprocessableEntity());
+		
+		// A conditional update's new version is known to the model:
+		testPerson.setAge(50);
+		String newETag=this.mockMvc.perform(put(location)
+			.header(HttpHeaders.IF_MATCH, eTag)
+			.content(objectMapper.writeValueAsString(testPerson))
+			.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isOk())
+			.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertEquals(1, personReadModel.get(id).getVersion());
+		this.mockMvc.perform(get(location))
+			.andExpect(status().isOk())
+			.andExpect(header().string(HttpHeaders.ETAG, newETag))
+			.andExpect(jsonPath("$.age").value(50));
+		
+		// As is an unconditional one's, read back after the UPDATE:
+		testPerson.setAge(51);
+		testPerson.setEmailAddress("Changed." + testPerson.getEmailAddress());
+		this.mockMvc.perform(put(location)
+			.content(objectMapper.writeValueAsString(testPerson))
+			.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isOk())
+			.andExpect(header().string(HttpHeaders.ETAG, "\"2\""));
+		assertEquals(2, personReadModel.get(id).getVersion());
+		this.mockMvc.perform(get(location))
+			.andExpect(status().isOk())
+			.andExpect(header().string(HttpHeaders.ETAG, "\"2\""))
+			.andExpect(jsonPath("$.age").value(51));
+		assertFalse(personReadModel.containsEmailAddress(duplicate.getEmailAddress()));
+		assertTrue(personReadModel.containsEmailAddress(testPerson.getEmailAddress()));
+		
+		this.mockMvc.perform(get(SERVICE_ENTITY_NAME))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.length()").value(personReadModel.size()));
+		this.mockMvc.perform(get(SERVICE_ENTITY_NAME).param("fields", "emailAddress"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.length()").value(personReadModel.size()))
+			.andExpect(jsonPath("$[0].length()").value(1));
+		
+		this.mockMvc.perform(delete(location))
+			.andExpect(status().isNoContent());
+		assertNull(personReadModel.get(id));
+		assertFalse(personReadModel.containsEmailAddress(testPerson.getEmailAddress()));
+		this.mockMvc.perform(get(location))
+			.andExpect(status().isNotFound());
+	}
+	
+	@Test
+	public void testManyCreatesAndDeletes() {
+		// Enough people to resize the model's tables several times, with deletes in between:
+		Random random=new Random(42);
+		Map<Long, String> emailsById=new HashMap<>();
+		List<Long> ids=new ArrayList<>();
+		for (int i=0; i<3000; i++) {
+			Person person=getPerson();
+			personService.create(person);
+			emailsById.put(person.getId(), person.getEmailAddress());
+			ids.add(person.getId());
+			if (random.nextInt(3)==0) {
+				Long id=ids.remove(random.nextInt(ids.size()));
+				assertTrue(personService.delete(id));
+			}
+		}
+		
+		for (Map.Entry<Long, String> entry : emailsById.entrySet()) {
+			PersonRecord record=personReadModel.get(entry.getKey());
+			if (ids.contains(entry.getKey())) {
+				assertNotNull(record);
+				assertEquals(entry.getValue(), record.getEmailAddress());
+				assertTrue(personReadModel.containsEmailAddress(entry.getValue()));
+			} else {
+				assertNull(record);
+				assertFalse(personReadModel.containsEmailAddress(entry.getValue()));
+			}
+		}
+		
+		List<Long> servedIds=new ArrayList<>();
+		personReadModel.forEachPerson(record -> servedIds.add(record.getId()));
+		assertTrue(servedIds.containsAll(ids));
+		for (int i=1; i<servedIds.size(); i++) {
+			assertTrue(servedIds.get(i-1) < servedIds.get(i));
+		}
+	}
+	
+	@Test
+	public void testCreatesRetriedAfterRollbackReachModelAndStats() {
+		// As when an import chunk's first attempt is rolled back and the same people are resubmitted:
+		List<Person> people=new ArrayList<>();
+		for (int i=0; i<3; i++) {
+			people.add(getPerson());
+		}
+		new TransactionTemplate(transactionManager).execute(status -> {
+			personService.createAllValidated(people);
+			status.setRollbackOnly();
+			return null;
+		});
+		assertEquals(Long.valueOf(0), people.get(0).getVersion());
+		
+		long count=personStats.getStats(0).getCount();
+		List<String> errors=personService.createAllValidated(people);
+		for (int i=0; i<people.size(); i++) {
+			assertNull(errors.get(i));
+			Person person=people.get(i);
+			assertNotNull(person.getId());
+			assertEquals(person.getEmailAddress(), personReadModel.get(person.getId()).getEmailAddress());
+		}
+		assertEquals(count + people.size(), personStats.getStats(0).getCount());
+	}
+	
+	private Person getPerson() {
+		Person person=new Person();
+		person.setName("Read Model");
+		person.setAge(40);
+		person.setDateOfBirth(LocalDate.parse("1978-03-04"));
+		person.setEmailAddress("Read.Model" + emailAddrCounter++ + "@gmail.com");
+		return person;
+	}
+	
+	private PersonDto getPersonDto() {
+		PersonDto personDto=new PersonDto();
+		personDto.setName("Read Model");
+		personDto.setAge(40);
+		personDto.setDateOfBirth("1978-03-04");
+		personDto.setEmailAddress("Read.Model" + emailAddrCounter++ + "@gmail.com");
+		return personDto;
+	}
+
+}
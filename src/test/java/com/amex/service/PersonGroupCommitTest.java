@@ -0,0 +1,187 @@
+package com.amex.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.amex.personServer.PersonServerApplication;
+import com.amex.personServer.domain.Person;
+import com.amex.personServer.dto.PersonDto;
+import com.amex.personServer.service.PersonGroupCommitter;
+import com.amex.personServer.service.PersonService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = PersonServerApplication.class, properties = {
+	"person.group-commit.enabled=true",
+	"person.group-commit.max-size=4",
+	"person.group-commit.max-delay-ms=50",
+	"spring.datasource.url=jdbc:h2:mem:groupcommittest" })
+@AutoConfigureMockMvc
+
+/*
+ * Tests of POST /people with creates grouped by the PersonGroupCommitter.
+ */
+public class PersonGroupCommitTest {
+
+	private static final String SERVICE_ENTITY_NAME="/people/";
+
+	private static int emailAddrCounter=1;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	PersonGroupCommitter personGroupCommitter;
+
+	@SpyBean
+	PersonService personService;
+
+	private static ObjectMapper objectMapper=new ObjectMapper();
+
+	@Test
+	public void testConcurrentCreatesAreGrouped() throws Exception {
+		// Distinct people, and pairs with the same email that may land in the same group:
+		final int NUM_CLIENTS=12;
+		List<String> contents=new ArrayList<>();
+		for (int i=0; i<NUM_CLIENTS/2; i++) {
+			PersonDto personDto=getPersonDto();
+			contents.add(objectMapper.writeValueAsString(personDto));
+			if (i%2==0) {
+				contents.add(objectMapper.writeValueAsString(personDto));
+			} else {
+				contents.add(objectMapper.writeValueAsString(getPersonDto()));
+			}
+		}
+
+		ExecutorService clients=Executors.newFixedThreadPool(NUM_CLIENTS);
+		CountDownLatch start=new CountDownLatch(1);
+		List<Future<MockHttpServletResponse>> responses=new ArrayList<>();
+		for (String content : contents) {
+			responses.add(clients.submit(() -> {
+				start.await();
+				return this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+					.content(content)
+					.contentType(MediaType.APPLICATION_JSON_UTF8))
+					.andReturn().getResponse();
+			}));
+		}
+		long groups=personGroupCommitter.getGroupCount();
+		long creates=personGroupCommitter.getCreateCount();
+		start.countDown();
+
+		Set<String> locations=new HashSet<>();
+		int rejected=0;
+		for (Future<MockHttpServletResponse> future : responses) {
+			MockHttpServletResponse response=future.get();
+			if (HttpStatus.CREATED.value()==response.getStatus()) {
+				assertEquals("\"0\"", response.getHeader(HttpHeaders.ETAG));
+				locations.add(response.getHeader(HttpHeaders.LOCATION));
+			} else {
+				assertEquals(HttpStatus.UNPROCESSABLE_ENTITY.value(), response.getStatus());
+				assertTrue(response.getContentAsString().contains("Duplicate email address"));
+				rejected++;
+			}
+		}
+		clients.shutdown();
+		// One of each of the 3 pairs is rejected:
+		assertEquals(NUM_CLIENTS - 3, locations.size());
+		assertEquals(3, rejected);
+
+		// At least one commit covered more than one create:
+		assertEquals(NUM_CLIENTS, personGroupCommitter.getCreateCount() - creates);
+		assertTrue(personGroupCommitter.getGroupCount() - groups < NUM_CLIENTS);
+
+		// Each caller returned only once its person was committed:
+		for (String location : locations) {
+			this.mockMvc.perform(get(location))
+				.andExpect(status().isOk());
+		}
+	}
+
+	@Test
+	public void testFailedGroupIsCreatedOneAtATime() throws Exception {
+		// As when a concurrent writer inserts one of the group's emails after it was checked:
+		doThrow(new IllegalArgumentException("Duplicate email address inserted concurrently; no people were created"))
+			.doCallRealMethod()
+			.when(personService).createAllValidated(anyList());
+		long fallbacks=personGroupCommitter.getFallbackCount();
+
+		PersonDto personDto=getPersonDto();
+		String location=this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+				.content(objectMapper.writeValueAsString(personDto))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isCreated())
+			.andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+			.andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+		assertEquals(fallbacks + 1, personGroupCommitter.getFallbackCount());
+		verify(personService).create(any(Person.class));
+
+		this.mockMvc.perform(get(location))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.emailAddress").value(personDto.getEmailAddress()));
+	}
+
+	@Test
+	public void testValidationAndDuplicatesOfExistingPeople() throws Exception {
+		PersonDto personDto=getPersonDto();
+		this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+				.content(objectMapper.writeValueAsString(personDto))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isCreated())
+			.andExpect(jsonPath("$.emailAddress").value(personDto.getEmailAddress()));
+
+		personDto.setEmailAddress(personDto.getEmailAddress().toUpperCase());
+		this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+				.content(objectMapper.writeValueAsString(personDto))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isUnprocessableEntity());
+
+		PersonDto invalidPerson=getPersonDto();
+		invalidPerson.setAge(-1);
+		this.mockMvc.perform(post(SERVICE_ENTITY_NAME)
+				.content(objectMapper.writeValueAsString(invalidPerson))
+				.contentType(MediaType.APPLICATION_JSON_UTF8))
+			.andExpect(status().isUnprocessableEntity())
+			.andExpect(header().doesNotExist(HttpHeaders.LOCATION));
+	}
+
+	private PersonDto getPersonDto() {
+		PersonDto personDto = new PersonDto();
+		personDto.setAge(33);
+		personDto.setDateOfBirth("1985-01-01");
+		personDto.setEmailAddress("Group.Commit" + emailAddrCounter++ + "@gmail.com");
+		personDto.setName("Group Commit");
+		return personDto;
+	}
+}
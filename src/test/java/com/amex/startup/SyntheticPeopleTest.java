@@ -0,0 +1,46 @@
+package com.amex.startup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Period;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.amex.personServer.domain.Person;
+import com.amex.personServer.service.PersonService;
+import com.amex.personServer.startup.SyntheticPeople;
+
+public class SyntheticPeopleTest {
+	
+	@Test
+	public void testSamePeopleForSameSeed() {
+		SyntheticPeople syntheticPeople = new SyntheticPeople(7);
+		for (long n = 1; n <= 1000; n++) {
+			Person person = syntheticPeople.person(n);
+			Person again = new SyntheticPeople(7).person(n);
+			assertEquals(person.getName(), again.getName());
+			assertEquals(person.getAge(), again.getAge());
+			assertEquals(person.getDateOfBirth(), again.getDateOfBirth());
+			assertEquals(person.getEmailAddress(), again.getEmailAddress());
+		}
+		assertNotEquals(new SyntheticPeople(7).person(1).getEmailAddress(), new SyntheticPeople(8).person(1).getEmailAddress());
+	}
+	
+	@Test
+	public void testPeopleAreValidAndUnique() {
+		SyntheticPeople syntheticPeople = new SyntheticPeople(1);
+		Set<String> normalizedEmailAddresses = new HashSet<>();
+		for (long n = 1; n <= 100000; n++) {
+			Person person = syntheticPeople.person(n);
+			PersonService.validatePerson(person);
+			assertTrue(normalizedEmailAddresses.add(person.getNormalizedEmailAddress()));
+			assertEquals(person.getAge().intValue(), 
+				Period.between(person.getDateOfBirth(), SyntheticPeople.REFERENCE_DATE).getYears());
+		}
+	}
+
+}